@@ -0,0 +1,64 @@
+package geometries;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD box kernel on the Java Vector API - one lane per child of the node
+ * <p>
+ * The quantized coordinates are widened from bytes to doubles in the register, and every lane does the
+ * operations of the scalar test in the same order, so the entered children and their
+ * distances are the scalar ones to the last bit.
+ */
+final class VectorBoxKernel implements BoxKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    // nodes narrower than the byte register load only their own children
+    private static final VectorMask<Byte> CHILDREN = BYTES.indexInRange(0, SPECIES.length());
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public int enter(double[] frames, byte[] boxes, int node, int nearX, int nearY, int nearZ,
+                     double ox, double oy, double oz, double invX, double invY, double invZ,
+                     double maxDistance, double[] distances) {
+        int width = SPECIES.length();
+        int frame = node * WideBVH.FRAME_SIZE;
+        double x0 = frames[frame], y0 = frames[frame + 1], z0 = frames[frame + 2];
+        double sx = frames[frame + 3], sy = frames[frame + 4], sz = frames[frame + 5];
+        int b = node * BVHLayout.BOX_SIZE * width;
+        // the inverses are finite, so there are no NaN distances and max and min are the scalar comparisons
+        DoubleVector tMin = plane(boxes, b + nearX, x0, sx).sub(ox).mul(invX).max(0)
+                .max(plane(boxes, b + nearY, y0, sy).sub(oy).mul(invY)
+                        .max(plane(boxes, b + nearZ, z0, sz).sub(oz).mul(invZ)));
+        DoubleVector tMax = plane(boxes, b + 3 * width - nearX, x0, sx).sub(ox).mul(invX).min(maxDistance)
+                .min(plane(boxes, b + 5 * width - nearY, y0, sy).sub(oy).mul(invY)
+                        .min(plane(boxes, b + 7 * width - nearZ, z0, sz).sub(oz).mul(invZ)));
+        tMin.intoArray(distances, 0);
+        return (int) tMin.compare(VectorOperators.LE, tMax.mul(WideBVH.ROUNDING)).toLong();
+    }
+
+    /**
+     * Load a plane of the child boxes
+     *
+     * @param boxes  the quantized child boxes
+     * @param offset index of the plane's first child
+     * @param origin the node origin on the plane's axis
+     * @param step   the node step on the plane's axis
+     * @return the plane coordinate of every child
+     */
+    private static DoubleVector plane(byte[] boxes, int offset, double origin, double step) {
+        ByteVector bytes = SPECIES.length() == BYTES.length()
+                ? ByteVector.fromArray(BYTES, boxes, offset)
+                : ByteVector.fromArray(BYTES, boxes, offset, CHILDREN);
+        DoubleVector levels = (DoubleVector) bytes.convertShape(VectorOperators.B2D, SPECIES, 0);
+        // the bytes are unsigned levels
+        return levels.add(256, levels.lt(0)).mul(step).add(origin);
+    }
+}
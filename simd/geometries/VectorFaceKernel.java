@@ -0,0 +1,110 @@
+package geometries;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD face kernel on the Java Vector API - one lane per face
+ * <p>
+ * Every lane does the operations of the scalar test in the same order (no fused multiply-add), and
+ * the {@link primitives.Util#isZero(double)} and {@link primitives.Util#alignZero(double)}
+ * comparisons are done against their bound, so the distances are the scalar ones to the last bit.
+ */
+final class VectorFaceKernel implements FaceKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // the magnitude below which primitives.Util counts a number as zero
+    private static final double ZERO = 0x1p-40;
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void findDistances(double[] faces, int faceCount, int first, int count,
+                              double ox, double oy, double oz, double dx, double dy, double dz, double[] t) {
+        int i = 0;
+        // whole registers load without a mask, only the tail of the leaf is masked
+        for (; i + SPECIES.length() <= count; i += SPECIES.length())
+            test(faces, faceCount, first + i, SPECIES.maskAll(true), ox, oy, oz, dx, dy, dz).intoArray(t, i);
+        if (i < count) {
+            VectorMask<Double> lanes = SPECIES.indexInRange(i, count);
+            test(faces, faceCount, first + i, lanes, ox, oy, oz, dx, dy, dz).intoArray(t, i, lanes);
+        }
+    }
+
+    /**
+     * Load a component of a register of faces
+     *
+     * @param faces  the faces layout
+     * @param offset index of the first face's component
+     * @param lanes  the faces to load
+     * @return the component
+     */
+    private static DoubleVector load(double[] faces, int offset, VectorMask<Double> lanes) {
+        return lanes.allTrue()
+                ? DoubleVector.fromArray(SPECIES, faces, offset)
+                : DoubleVector.fromArray(SPECIES, faces, offset, lanes);
+    }
+
+    /**
+     * Intersect a ray with a register of faces
+     *
+     * @param faces     the faces layout
+     * @param faceCount the amount of faces in the layout
+     * @param at        the first face of the register
+     * @param lanes     the faces to test
+     * @param ox        ray head x
+     * @param oy        ray head y
+     * @param oz        ray head z
+     * @param dx        ray direction x
+     * @param dy        ray direction y
+     * @param dz        ray direction z
+     * @return the distances, NaN where the ray misses
+     */
+    private static DoubleVector test(double[] faces, int faceCount, int at, VectorMask<Double> lanes,
+                                     double ox, double oy, double oz, double dx, double dy, double dz) {
+        DoubleVector v0x = load(faces, at, lanes);
+        DoubleVector v0y = load(faces, faceCount + at, lanes);
+        DoubleVector v0z = load(faces, 2 * faceCount + at, lanes);
+        DoubleVector e1x = load(faces, 3 * faceCount + at, lanes);
+        DoubleVector e1y = load(faces, 4 * faceCount + at, lanes);
+        DoubleVector e1z = load(faces, 5 * faceCount + at, lanes);
+        DoubleVector e2x = load(faces, 6 * faceCount + at, lanes);
+        DoubleVector e2y = load(faces, 7 * faceCount + at, lanes);
+        DoubleVector e2z = load(faces, 8 * faceCount + at, lanes);
+        DoubleVector zero = DoubleVector.broadcast(SPECIES, ZERO);
+        DoubleVector minusZero = DoubleVector.broadcast(SPECIES, -ZERO);
+
+        // p = v x e2
+        DoubleVector px = e2z.mul(dy).sub(e2y.mul(dz));
+        DoubleVector py = e2x.mul(dz).sub(e2z.mul(dx));
+        DoubleVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+        DoubleVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+        // the ray is parallel to the face - two compares, abs isn't intrinsified everywhere
+        VectorMask<Double> miss = det.lt(zero).and(det.compare(VectorOperators.GT, minusZero));
+        DoubleVector invDet = DoubleVector.broadcast(SPECIES, 1).div(det);
+
+        DoubleVector tx = DoubleVector.broadcast(SPECIES, ox).sub(v0x);
+        DoubleVector ty = DoubleVector.broadcast(SPECIES, oy).sub(v0y);
+        DoubleVector tz = DoubleVector.broadcast(SPECIES, oz).sub(v0z);
+        DoubleVector u = tx.mul(px).add(ty.mul(py)).add(tz.mul(pz)).mul(invDet);
+        // alignZero(u) <= 0 || alignZero(u - 1) >= 0
+        miss = miss.or(u.lt(zero)).or(u.sub(1).compare(VectorOperators.GT, minusZero));
+
+        // q = (p0 - v0) x e1
+        DoubleVector qx = ty.mul(e1z).sub(tz.mul(e1y));
+        DoubleVector qy = tz.mul(e1x).sub(tx.mul(e1z));
+        DoubleVector qz = tx.mul(e1y).sub(ty.mul(e1x));
+        DoubleVector v = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)).mul(invDet);
+        // alignZero(v) <= 0 || alignZero(u + v - 1) >= 0
+        miss = miss.or(v.lt(zero)).or(u.add(v).sub(1).compare(VectorOperators.GT, minusZero));
+
+        DoubleVector distance = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(invDet);
+        // alignZero(t) <= 0
+        miss = miss.or(distance.lt(zero));
+        return distance.blend(Double.NaN, miss);
+    }
+}
@@ -0,0 +1,851 @@
+package geometries;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Builder of a bounding volume hierarchy over a list of intersectables
+ * <p>
+ * The splits are chosen by the surface area heuristic (SAH): for every axis the primitives
+ * are sorted by their box centroids and every split position is priced by
+ * {@code traversalCost + (areaLeft * countLeft + areaRight * countRight) / areaParent}
+ * (a primitive test costs 1).
+ * The cheapest split wins, unless keeping the primitives together in one leaf is cheaper.
+ * Ranges of more than {@value #SWEEP_LIMIT} primitives aren't sorted: their centroids are binned
+ * into {@value #BINS} slices per axis, and only the borders between the slices are priced.
+ * <p>
+ * The subtrees are built in parallel by fork/join tasks, and the binning of the largest ranges
+ * is split into chunks with bins of their own, merged at the end. The {@link Construction#MORTON}
+ * construction sorts the primitives by the Morton codes of their centroids instead and splits at
+ * the code bits - a linear BVH, faster to build and slower to trace.
+ * <p>
+ * The binary hierarchy is then collapsed into nodes of up to {@link #setWidth(int) width} children
+ * (see {@link WideBVH}).
+ * <p>
+ * Nested {@link Geometries} are flattened into the hierarchy, and unbounded geometries
+ * (planes, tubes) are kept out of it, since no box can hold them.
+ */
+public class BVHBuilder {
+    /**
+     * Ways to build the binary hierarchy
+     */
+    public enum Construction {
+        /** top-down surface area heuristic splits - the best hierarchy to trace */
+        SAH,
+        /** splits at the bits of the Morton codes of the centroids - the fastest to build, for dynamic content */
+        MORTON
+    }
+
+    // ranges up to this size are split by the exact sweep, larger ones by binned SAH
+    private static final int SWEEP_LIMIT = 1024;
+    // amount of bins per axis of binned SAH
+    private static final int BINS = 32;
+    // subtrees of at least this many primitives fork their children as separate tasks
+    private static final int FORK_LIMIT = 4096;
+    // ranges longer than this are binned in chunks of this size, in parallel
+    private static final int CHUNK = 1 << 15;
+
+    // the axis with the cheapest split and where to split it - the amount of primitives on the left
+    // of a sweep split, the last bin on the left of a binned split
+    private record Split(int axis, int index, double cost) {
+    }
+
+    /**
+     * Node of the hierarchy while it's built, before it's laid out
+     */
+    private static final class Node {
+        // the node box (min x,y,z then max x,y,z)
+        private final double[] box;
+        // the node's range in the primitive indices
+        private final int start;
+        private final int count;
+        // the children and the split axis, of an inner node
+        private Node left;
+        private Node right;
+        private int axis;
+
+        /**
+         * Constructs a leaf
+         *
+         * @param box   the node box
+         * @param start first index of the range
+         * @param count amount of primitives in the range
+         */
+        private Node(double[] box, int start, int count) {
+            this.box = box;
+            this.start = start;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Centroid bins of a range, three axes of {@value #BINS} bins with the amount of primitives and
+     * the box of every bin
+     */
+    private static final class Bins {
+        private final int[] counts = new int[3 * BINS];
+        private final double[] boxes = new double[3 * BINS * BVHLayout.BOX_SIZE];
+
+        /**
+         * Constructs empty bins
+         */
+        private Bins() {
+            for (int bin = 0; bin < 3 * BINS; ++bin)
+                System.arraycopy(emptyBox(), 0, boxes, bin * BVHLayout.BOX_SIZE, BVHLayout.BOX_SIZE);
+        }
+
+        /**
+         * Add the bins of another part of the range
+         *
+         * @param other the other bins
+         * @return these bins
+         */
+        private Bins merge(Bins other) {
+            for (int bin = 0; bin < 3 * BINS; ++bin) {
+                counts[bin] += other.counts[bin];
+                grow(boxes, bin, other.boxes, bin);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * SAH build of the subtree of a range of the primitives
+     */
+    private final class SahTask extends RecursiveTask<Node> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final double[] bounds;
+        private final int[] indices;
+        private final int start;
+        private final int end;
+
+        /**
+         * Constructs the task
+         *
+         * @param bounds  the primitive boxes
+         * @param indices primitive indices, reordered in place
+         * @param start   first index of the range
+         * @param end     end of the range (exclusive)
+         */
+        private SahTask(double[] bounds, int[] indices, int start, int end) {
+            this.bounds = bounds;
+            this.indices = indices;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Node compute() {
+            int count = end - start;
+            if (count <= SWEEP_LIMIT)
+                return buildNode(bounds, indices, start, end);
+
+            double[] extent = extent(bounds, indices, start, end);
+            double[] box = Arrays.copyOf(extent, BVHLayout.BOX_SIZE);
+            // flat boxes can't be priced by area - the sweep splits them
+            if (area(box) == 0)
+                return buildNode(bounds, indices, start, end);
+            Node node = new Node(box, start, count);
+            Split split = findBinnedSplit(binRange(bounds, indices, start, end, extent), box, count);
+            if (split == null || count <= leafSize && count <= split.cost)
+                return node;
+
+            // the primitives of the left bins first
+            int axis = split.axis;
+            double min = extent[6 + axis];
+            double scale = scale(extent, axis);
+            int i = start;
+            int j = end - 1;
+            while (i <= j)
+                if (bin(centroid(bounds, indices[i], axis), min, scale) <= split.index)
+                    ++i;
+                else {
+                    int temp = indices[i];
+                    indices[i] = indices[j];
+                    indices[j--] = temp;
+                }
+            node.axis = axis;
+            SahTask left = new SahTask(bounds, indices, start, i);
+            SahTask right = new SahTask(bounds, indices, i, end);
+            if (count >= FORK_LIMIT) {
+                left.fork();
+                node.right = right.compute();
+                node.left = left.join();
+            } else {
+                node.left = left.compute();
+                node.right = right.compute();
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Morton code build of the subtree of a range of the primitives, sorted by their codes
+     */
+    private final class MortonTask extends RecursiveTask<Node> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final double[] bounds;
+        private final int[] indices;
+        private final int[] codes;
+        private final int start;
+        private final int end;
+
+        /**
+         * Constructs the task
+         *
+         * @param bounds  the primitive boxes
+         * @param indices primitive indices, sorted by their codes
+         * @param codes   the Morton codes of the sorted primitives
+         * @param start   first index of the range
+         * @param end     end of the range (exclusive)
+         */
+        private MortonTask(double[] bounds, int[] indices, int[] codes, int start, int end) {
+            this.bounds = bounds;
+            this.indices = indices;
+            this.codes = codes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Node compute() {
+            int count = end - start;
+            if (count <= leafSize) {
+                double[] box = emptyBox();
+                for (int i = start; i < end; ++i)
+                    grow(box, bounds, indices[i]);
+                return new Node(box, start, count);
+            }
+
+            // split at the highest bit that differs in the range, the primitives of equal codes in the middle
+            int first = codes[start];
+            int last = codes[end - 1];
+            int middle = (start + end) >>> 1;
+            int axis = 0;
+            if (first != last) {
+                int bit = 31 - Integer.numberOfLeadingZeros(first ^ last);
+                // the codes are x, y, z bit triplets, z lowest
+                axis = 2 - bit % 3;
+                int low = start;
+                int high = end - 1;
+                while (high - low > 1) {
+                    int i = (low + high) >>> 1;
+                    if ((codes[i] & 1 << bit) != 0)
+                        high = i;
+                    else
+                        low = i;
+                }
+                middle = high;
+            }
+            MortonTask left = new MortonTask(bounds, indices, codes, start, middle);
+            MortonTask right = new MortonTask(bounds, indices, codes, middle, end);
+            Node leftNode;
+            Node rightNode;
+            if (count >= FORK_LIMIT) {
+                left.fork();
+                rightNode = right.compute();
+                leftNode = left.join();
+            } else {
+                leftNode = left.compute();
+                rightNode = right.compute();
+            }
+            double[] box = leftNode.box.clone();
+            grow(box, 0, rightNode.box, 0);
+            Node node = new Node(box, start, count);
+            node.left = leftNode;
+            node.right = rightNode;
+            node.axis = axis;
+            return node;
+        }
+    }
+
+    /**
+     * Maximal amount of primitives kept together in one leaf
+     */
+    private int leafSize = 4;
+    /**
+     * Relative cost of a single box test against the cost of a primitive test
+     */
+    private double traversalCost = 0.125;
+    /**
+     * The way the binary hierarchy is built
+     */
+    private Construction construction = Construction.SAH;
+    /**
+     * How much the refits of moved geometries may raise the SAH cost before the hierarchy is rebuilt
+     */
+    private double refitLimit = 1.5;
+    /**
+     * Maximal amount of children of a node of the collapsed hierarchy - the vector length of the SIMD
+     * child test when it's available and fits, 4 otherwise
+     */
+    private int width = BoxKernel.SIMD != null && BoxKernel.SIMD.lanes() >= 2 && BoxKernel.SIMD.lanes() <= 8
+            ? BoxKernel.SIMD.lanes() : 4;
+
+    /**
+     * Set the maximal amount of primitives in a leaf
+     *
+     * @param leafSize maximal amount of primitives in a leaf (at least 1)
+     * @return the updated builder
+     * @throws IllegalArgumentException if the leaf size is smaller than 1
+     */
+    public BVHBuilder setLeafSize(int leafSize) {
+        if (leafSize < 1)
+            throw new IllegalArgumentException("leaf size must be at least 1");
+        this.leafSize = leafSize;
+        return this;
+    }
+
+    /**
+     * Set the relative cost of a box test (the cost of a primitive test is 1)
+     *
+     * @param traversalCost cost of a box test
+     * @return the updated builder
+     * @throws IllegalArgumentException if the cost is negative
+     */
+    public BVHBuilder setTraversalCost(double traversalCost) {
+        if (traversalCost < 0)
+            throw new IllegalArgumentException("traversal cost can't be negative");
+        this.traversalCost = traversalCost;
+        return this;
+    }
+
+    /**
+     * Set the way the binary hierarchy is built
+     *
+     * @param construction SAH splits (the default) or Morton code splits
+     * @return the updated builder
+     */
+    public BVHBuilder setConstruction(Construction construction) {
+        this.construction = construction;
+        return this;
+    }
+
+    /**
+     * Set how much the refits of moved geometries (see {@link Geometries#replace(Intersectable, Intersectable)})
+     * may raise the SAH cost of a hierarchy, relative to its cost when it was built, before it's rebuilt
+     *
+     * @param refitLimit the largest cost ratio (at least 1)
+     * @return the updated builder
+     * @throws IllegalArgumentException if the ratio is smaller than 1
+     */
+    public BVHBuilder setRefitLimit(double refitLimit) {
+        if (refitLimit < 1)
+            throw new IllegalArgumentException("refit limit must be at least 1");
+        this.refitLimit = refitLimit;
+        return this;
+    }
+
+    /**
+     * Set the maximal amount of children of a node - the binary hierarchy is collapsed into nodes of up to
+     * this many children, which a ray tests together (see {@link BoxKernel} for the width it tests with
+     * one instruction)
+     *
+     * @param width maximal amount of children (2 to 8)
+     * @return the updated builder
+     * @throws IllegalArgumentException if the width is not 2 to 8
+     */
+    public BVHBuilder setWidth(int width) {
+        if (width < 2 || width > 8)
+            throw new IllegalArgumentException("node width must be 2 to 8");
+        this.width = width;
+        return this;
+    }
+
+    /**
+     * Get the maximal amount of primitives in a leaf
+     *
+     * @return the leaf size
+     */
+    public int getLeafSize() {
+        return leafSize;
+    }
+
+    /**
+     * Get the maximal amount of children of a node
+     *
+     * @return the node width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the relative cost of a box test
+     *
+     * @return the traversal cost
+     */
+    public double getTraversalCost() {
+        return traversalCost;
+    }
+
+    /**
+     * Get how much the refits may raise the SAH cost before a rebuild
+     *
+     * @return the largest cost ratio
+     */
+    public double getRefitLimit() {
+        return refitLimit;
+    }
+
+    /**
+     * Build the hierarchy
+     *
+     * @param intersectables the geometries to arrange
+     * @return composite holding the unbounded geometries and the hierarchy
+     */
+    public Geometries build(List<Intersectable> intersectables) {
+        List<Intersectable> bounded = new ArrayList<>();
+        Geometries result = new Geometries();
+        for (Intersectable intersectable : flatten(intersectables, new ArrayList<>()))
+            if (intersectable.box == null)
+                result._intersectables.add(intersectable);
+            else
+                bounded.add(intersectable);
+
+        if (!bounded.isEmpty()) {
+            Intersectable[] primitives = bounded.toArray(new Intersectable[0]);
+            result._intersectables.add(new LinearBVH(primitives, this));
+        }
+        return result;
+    }
+
+    /**
+     * Build the flat hierarchy layout over primitive boxes
+     *
+     * @param bounds the primitive boxes, six values per primitive (min x,y,z then max x,y,z)
+     * @return the layout
+     */
+    BVHLayout layout(double[] bounds) {
+        int[] indices = new int[bounds.length / BVHLayout.BOX_SIZE];
+        for (int i = 0; i < indices.length; ++i)
+            indices[i] = i;
+        BVHLayout layout = new BVHLayout(indices);
+        if (indices.length > 0)
+            append(layout, construction == Construction.MORTON
+                    ? mortonTree(bounds, indices)
+                    : ForkJoinPool.commonPool().invoke(new SahTask(bounds, indices, 0, indices.length)), 1);
+        return layout.trim();
+    }
+
+    /**
+     * Lay a subtree out depth first
+     *
+     * @param layout the layout to append the subtree nodes to
+     * @param node   the subtree root
+     * @param depth  depth of the subtree root (the root depth is 1)
+     * @return the index of the subtree root in the layout
+     */
+    private static int append(BVHLayout layout, Node node, int depth) {
+        int index = layout.addNode(node.box);
+        layout.depth = Math.max(layout.depth, depth);
+        if (node.left == null)
+            layout.setLeaf(index, node.start, node.count);
+        else {
+            append(layout, node.left, depth + 1);
+            layout.setInner(index, append(layout, node.right, depth + 1), node.axis);
+        }
+        return index;
+    }
+
+    /**
+     * Build the hierarchy by the Morton codes of the primitive centroids
+     *
+     * @param bounds  the primitive boxes
+     * @param indices primitive indices, sorted here by their codes
+     * @return the root
+     */
+    private Node mortonTree(double[] bounds, int[] indices) {
+        int count = indices.length;
+        double[] extent = extent(bounds, indices, 0, count);
+        // the code above the index, so sorting the keys sorts the indices by their codes
+        long[] keys = new long[count];
+        IntStream.range(0, count).parallel()
+                .forEach(i -> keys[i] = (long) morton(bounds, indices[i], extent) << 32 | indices[i]);
+        Arrays.parallelSort(keys);
+        int[] codes = new int[count];
+        IntStream.range(0, count).parallel().forEach(i -> {
+            indices[i] = (int) keys[i];
+            codes[i] = (int) (keys[i] >>> 32);
+        });
+        return ForkJoinPool.commonPool().invoke(new MortonTask(bounds, indices, codes, 0, count));
+    }
+
+    /**
+     * Morton code of a primitive centroid - 10 bits per axis, interleaved x, y, z from the top
+     *
+     * @param bounds the primitive boxes
+     * @param index  the primitive index
+     * @param extent the box and the centroid bounds of all the primitives (see {@link #extent})
+     * @return the code
+     */
+    private static int morton(double[] bounds, int index, double[] extent) {
+        int code = 0;
+        for (int axis = 0; axis < 3; ++axis) {
+            double min = extent[6 + axis];
+            double size = extent[9 + axis] - min;
+            int cell = size == 0 ? 0 : Math.min(1023, (int) ((centroid(bounds, index, axis) - min) / size * 1024));
+            // spread the 10 bits to every third bit
+            cell = (cell | cell << 16) & 0x030000FF;
+            cell = (cell | cell << 8) & 0x0300F00F;
+            cell = (cell | cell << 4) & 0x030C30C3;
+            cell = (cell | cell << 2) & 0x09249249;
+            code |= cell << 2 - axis;
+        }
+        return code;
+    }
+
+    /**
+     * Box and centroid bounds of a range - long ranges are scanned by parallel chunks
+     *
+     * @param bounds  the primitive boxes
+     * @param indices primitive indices
+     * @param start   first index of the range
+     * @param end     end of the range (exclusive)
+     * @return the box (min x,y,z then max x,y,z), then the (doubled) centroid minimums and maximums
+     */
+    private static double[] extent(double[] bounds, int[] indices, int start, int end) {
+        if (end - start > CHUNK)
+            return IntStream.range(0, (end - start + CHUNK - 1) / CHUNK).parallel()
+                    .mapToObj(c -> extent(bounds, indices, start + c * CHUNK, Math.min(end, start + (c + 1) * CHUNK)))
+                    .reduce((a, b) -> {
+                        grow(a, 0, b, 0);
+                        grow(a, 1, b, 1);
+                        return a;
+                    }).orElseThrow();
+
+        double[] extent = Arrays.copyOf(emptyBox(), 2 * BVHLayout.BOX_SIZE);
+        System.arraycopy(extent, 0, extent, BVHLayout.BOX_SIZE, BVHLayout.BOX_SIZE);
+        for (int i = start; i < end; ++i) {
+            int index = indices[i];
+            grow(extent, 0, bounds, index);
+            for (int axis = 0; axis < 3; ++axis) {
+                double centroid = centroid(bounds, index, axis);
+                extent[6 + axis] = Math.min(extent[6 + axis], centroid);
+                extent[9 + axis] = Math.max(extent[9 + axis], centroid);
+            }
+        }
+        return extent;
+    }
+
+    /**
+     * Bin the centroids of a range - long ranges are binned by parallel chunks, each with its own bins
+     *
+     * @param bounds  the primitive boxes
+     * @param indices primitive indices
+     * @param start   first index of the range
+     * @param end     end of the range (exclusive)
+     * @param extent  the box and the centroid bounds of the range
+     * @return the bins
+     */
+    private static Bins binRange(double[] bounds, int[] indices, int start, int end, double[] extent) {
+        if (end - start > CHUNK)
+            return IntStream.range(0, (end - start + CHUNK - 1) / CHUNK).parallel()
+                    .mapToObj(c -> binRange(bounds, indices, start + c * CHUNK, Math.min(end, start + (c + 1) * CHUNK), extent))
+                    .reduce(Bins::merge).orElseThrow();
+
+        Bins bins = new Bins();
+        double[] scales = {scale(extent, 0), scale(extent, 1), scale(extent, 2)};
+        for (int i = start; i < end; ++i) {
+            int index = indices[i];
+            for (int axis = 0; axis < 3; ++axis) {
+                int bin = axis * BINS + bin(centroid(bounds, index, axis), extent[6 + axis], scales[axis]);
+                ++bins.counts[bin];
+                grow(bins.boxes, bin, bounds, index);
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * Factor from a centroid offset to its bin
+     *
+     * @param extent the box and the centroid bounds of the range
+     * @param axis   the axis
+     * @return the factor, 0 if the centroids coincide on the axis
+     */
+    private static double scale(double[] extent, int axis) {
+        double size = extent[9 + axis] - extent[6 + axis];
+        return size == 0 ? 0 : BINS / size;
+    }
+
+    /**
+     * Get the bin of a centroid
+     *
+     * @param centroid the (doubled) centroid
+     * @param min      the smallest centroid of the range
+     * @param scale    factor from a centroid offset to its bin
+     * @return the bin
+     */
+    private static int bin(double centroid, double min, double scale) {
+        return Math.min(BINS - 1, (int) ((centroid - min) * scale));
+    }
+
+    /**
+     * Find the cheapest SAH split at the bin borders
+     *
+     * @param bins  the bins of the range
+     * @param box   the range box, of a positive area
+     * @param count amount of primitives in the range
+     * @return the cheapest split, or null if all the centroids coincide
+     */
+    private Split findBinnedSplit(Bins bins, double[] box, int count) {
+        double parentArea = area(box);
+        double[] leftAreas = new double[BINS];
+        int[] leftCounts = new int[BINS];
+        Split best = null;
+        for (int axis = 0; axis < 3; ++axis) {
+            // sweep from the left: area and amount of the primitives of the first b + 1 bins
+            double[] left = emptyBox();
+            int leftCount = 0;
+            for (int b = 0; b < BINS - 1; ++b) {
+                leftCount += bins.counts[axis * BINS + b];
+                grow(left, 0, bins.boxes, axis * BINS + b);
+                leftCounts[b] = leftCount;
+                leftAreas[b] = leftCount == 0 ? 0 : area(left);
+            }
+
+            // sweep from the right and price the border before every bin
+            double[] right = emptyBox();
+            for (int b = BINS - 1; b > 0; --b) {
+                grow(right, 0, bins.boxes, axis * BINS + b);
+                int rightCount = count - leftCounts[b - 1];
+                if (leftCounts[b - 1] == 0 || rightCount == 0)
+                    continue;
+                double cost = traversalCost
+                        + (leftAreas[b - 1] * leftCounts[b - 1] + area(right) * rightCount) / parentArea;
+                if (best == null || cost < best.cost)
+                    best = new Split(axis, b - 1, cost);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Collect the leaves of the composites
+     *
+     * @param intersectables the (maybe nested) geometries
+     * @param result         the list to fill
+     * @return the filled list
+     */
+    private static List<Intersectable> flatten(List<Intersectable> intersectables, List<Intersectable> result) {
+        for (Intersectable intersectable : intersectables)
+            if (intersectable instanceof Geometries geometries)
+                flatten(geometries._intersectables, result);
+            else
+                result.add(intersectable);
+        return result;
+    }
+
+    /**
+     * Copy the primitive boxes into one array, six values per primitive (min x,y,z then max x,y,z)
+     *
+     * @param primitives bounded primitives
+     * @return the boxes array
+     */
+    static double[] bounds(Intersectable[] primitives) {
+        double[] bounds = new double[primitives.length * 6];
+        for (int i = 0; i < primitives.length; ++i) {
+            Intersectable.BoundingBox box = primitives[i].box;
+            bounds[6 * i] = box._minimums.getX();
+            bounds[6 * i + 1] = box._minimums.getY();
+            bounds[6 * i + 2] = box._minimums.getZ();
+            bounds[6 * i + 3] = box._maximums.getX();
+            bounds[6 * i + 4] = box._maximums.getY();
+            bounds[6 * i + 5] = box._maximums.getZ();
+        }
+        return bounds;
+    }
+
+    /**
+     * Build the subtree of the primitives in the range [start, end) of the indices array by the exact sweep
+     *
+     * @param bounds  the primitive boxes
+     * @param indices primitive indices, reordered in place
+     * @param start   first index of the range
+     * @param end     end of the range (exclusive)
+     * @return the subtree root
+     */
+    private Node buildNode(double[] bounds, int[] indices, int start, int end) {
+        double[] box = emptyBox();
+        for (int i = start; i < end; ++i)
+            grow(box, bounds, indices[i]);
+        int count = end - start;
+        Node node = new Node(box, start, count);
+
+        Split split = count == 1 ? null : findSplit(bounds, indices, start, end);
+        if (split == null || count <= leafSize && count <= split.cost)
+            return node;
+
+        // the last sorted axis is z, so re-sort only when another axis won
+        if (split.axis != 2)
+            sort(bounds, indices, start, end, split.axis);
+        int middle = start + split.index;
+        node.left = buildNode(bounds, indices, start, middle);
+        node.right = buildNode(bounds, indices, middle, end);
+        node.axis = split.axis;
+        return node;
+    }
+
+    /**
+     * Find the cheapest SAH split of the range
+     *
+     * @param bounds  the primitive boxes
+     * @param indices primitive indices (the range is left sorted by the z axis)
+     * @param start   first index of the range
+     * @param end     end of the range (exclusive)
+     * @return the cheapest split, or null if all the centroids coincide
+     */
+    private Split findSplit(double[] bounds, int[] indices, int start, int end) {
+        int count = end - start;
+        double[] leftAreas = new double[count];
+        Split best = null;
+
+        for (int axis = 0; axis < 3; ++axis) {
+            sort(bounds, indices, start, end, axis);
+            if (centroid(bounds, indices[start], axis) == centroid(bounds, indices[end - 1], axis))
+                continue;
+
+            // sweep from the left: area of the boxes of the first i + 1 primitives
+            double[] box = emptyBox();
+            for (int i = 0; i < count; ++i) {
+                grow(box, bounds, indices[start + i]);
+                leftAreas[i] = area(box);
+            }
+            double parentArea = leftAreas[count - 1];
+            // degenerate (point-like) boxes can't be priced by area - split them in the middle
+            if (parentArea == 0) {
+                if (best == null)
+                    best = new Split(axis, count / 2, traversalCost + count);
+                continue;
+            }
+
+            // sweep from the right and price the split before every primitive
+            box = emptyBox();
+            for (int i = count - 1; i > 0; --i) {
+                grow(box, bounds, indices[start + i]);
+                double cost = traversalCost
+                        + (leftAreas[i - 1] * i + area(box) * (count - i)) / parentArea;
+                if (best == null || cost < best.cost)
+                    best = new Split(axis, i, cost);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Sort a range of the primitive indices by the centroids of their boxes
+     *
+     * @param bounds  the primitive boxes
+     * @param indices primitive indices
+     * @param start   first index of the range
+     * @param end     end of the range (exclusive)
+     * @param axis    the sort axis
+     */
+    static void sort(double[] bounds, int[] indices, int start, int end, int axis) {
+        // insertion sort for the small ranges, quick sort for the rest
+        while (end - start > 16) {
+            double pivot = centroid(bounds, indices[(start + end) >>> 1], axis);
+            int i = start;
+            int j = end - 1;
+            while (i <= j) {
+                while (centroid(bounds, indices[i], axis) < pivot)
+                    ++i;
+                while (centroid(bounds, indices[j], axis) > pivot)
+                    --j;
+                if (i <= j) {
+                    int temp = indices[i];
+                    indices[i++] = indices[j];
+                    indices[j--] = temp;
+                }
+            }
+            // recurse into the smaller part, loop on the bigger one
+            if (j + 1 - start < end - i) {
+                sort(bounds, indices, start, j + 1, axis);
+                start = i;
+            } else {
+                sort(bounds, indices, i, end, axis);
+                end = j + 1;
+            }
+        }
+        for (int i = start + 1; i < end; ++i) {
+            int index = indices[i];
+            double key = centroid(bounds, index, axis);
+            int j = i - 1;
+            while (j >= start && centroid(bounds, indices[j], axis) > key) {
+                indices[j + 1] = indices[j];
+                --j;
+            }
+            indices[j + 1] = index;
+        }
+    }
+
+    /**
+     * Doubled centroid of a primitive box along an axis (the halving doesn't change the order)
+     *
+     * @param bounds the primitive boxes
+     * @param index  the primitive index
+     * @param axis   the axis
+     * @return min + max of the box along the axis
+     */
+    static double centroid(double[] bounds, int index, int axis) {
+        return bounds[6 * index + axis] + bounds[6 * index + 3 + axis];
+    }
+
+    /**
+     * @return a box that any grow overrides
+     */
+    static double[] emptyBox() {
+        return new double[]{
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    }
+
+    /**
+     * Grow a box to contain a primitive box
+     *
+     * @param box    the growing box
+     * @param bounds the primitive boxes
+     * @param index  the primitive index
+     */
+    static void grow(double[] box, double[] bounds, int index) {
+        grow(box, 0, bounds, index);
+    }
+
+    /**
+     * Grow a box in an array of boxes to contain a box of another array
+     *
+     * @param boxes  the growing boxes
+     * @param box    index of the growing box
+     * @param bounds the boxes to contain
+     * @param index  index of the box to contain
+     */
+    private static void grow(double[] boxes, int box, double[] bounds, int index) {
+        for (int axis = 0; axis < 3; ++axis) {
+            boxes[6 * box + axis] = Math.min(boxes[6 * box + axis], bounds[6 * index + axis]);
+            boxes[6 * box + axis + 3] = Math.max(boxes[6 * box + axis + 3], bounds[6 * index + 3 + axis]);
+        }
+    }
+
+    /**
+     * Half of the surface area of a box (only the ratios between areas matter)
+     *
+     * @param box the box
+     * @return half of the box surface area
+     */
+    static double area(double[] box) {
+        double dx = box[3] - box[0];
+        double dy = box[4] - box[1];
+        double dz = box[5] - box[2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+}
@@ -0,0 +1,87 @@
+package geometries;
+
+import java.util.Arrays;
+
+/**
+ * Flat (array backed) layout of a bounding volume hierarchy, built by {@link BVHBuilder}
+ * <p>
+ * The nodes are stored depth first, so the left child of an inner node always follows it.
+ * Every node owns six doubles in {@link #bounds} (min x,y,z then max x,y,z)
+ * and three ints in {@link #nodes}:
+ * <ul>
+ * <li>leaf - first position in {@link #order}, amount of primitives (positive), unused</li>
+ * <li>inner node - index of the right child, zero, split axis (0 - x, 1 - y, 2 - z)</li>
+ * </ul>
+ * {@link #order} lists the primitive indices so that the primitives of every leaf are adjacent.
+ */
+final class BVHLayout {
+    /** amount of doubles per node box */
+    static final int BOX_SIZE = 6;
+    /** amount of ints per node */
+    static final int NODE_SIZE = 3;
+
+    double[] bounds;
+    int[] nodes;
+    final int[] order;
+    int nodeCount = 0;
+    /** the longest path from the root, counted in nodes */
+    int depth = 0;
+
+    /**
+     * Constructs an empty layout, sized for the worst case of one primitive per leaf
+     *
+     * @param order the primitive indices, reordered by the builder
+     */
+    BVHLayout(int[] order) {
+        this.order = order;
+        int maxNodes = Math.max(1, 2 * order.length - 1);
+        bounds = new double[maxNodes * BOX_SIZE];
+        nodes = new int[maxNodes * NODE_SIZE];
+    }
+
+    /**
+     * Append a node
+     *
+     * @param box the node box (min x,y,z then max x,y,z)
+     * @return the index of the new node
+     */
+    int addNode(double[] box) {
+        System.arraycopy(box, 0, bounds, nodeCount * BOX_SIZE, BOX_SIZE);
+        return nodeCount++;
+    }
+
+    /**
+     * Turn a node into a leaf
+     *
+     * @param node   node index
+     * @param offset first position of its primitives in the order array
+     * @param count  amount of its primitives
+     */
+    void setLeaf(int node, int offset, int count) {
+        nodes[node * NODE_SIZE] = offset;
+        nodes[node * NODE_SIZE + 1] = count;
+    }
+
+    /**
+     * Turn a node into an inner node
+     *
+     * @param node  node index
+     * @param right index of the right child
+     * @param axis  split axis
+     */
+    void setInner(int node, int right, int axis) {
+        nodes[node * NODE_SIZE] = right;
+        nodes[node * NODE_SIZE + 2] = axis;
+    }
+
+    /**
+     * Drop the unused tail of the arrays
+     *
+     * @return this layout
+     */
+    BVHLayout trim() {
+        bounds = Arrays.copyOf(bounds, nodeCount * BOX_SIZE);
+        nodes = Arrays.copyOf(nodes, nodeCount * NODE_SIZE);
+        return this;
+    }
+}
@@ -0,0 +1,59 @@
+package geometries;
+
+/**
+ * Slab test of all the children of a {@link WideBVH} node at once, for the SIMD engine path
+ * <p>
+ * A vector register holds the same quantized coordinate of all the children of a node, so a node is
+ * tested with one instruction per plane when its width is the vector length. Like {@link FaceKernel},
+ * the SIMD implementation lives in the {@code simd} source folder and is used only when it was compiled
+ * and the {@code jdk.incubator.vector} module is present; otherwise {@link #SIMD} is null and the
+ * hierarchy tests the children one by one.
+ */
+interface BoxKernel {
+    /** the SIMD kernel, or null if it's not available */
+    BoxKernel SIMD = load();
+
+    /**
+     * Load the SIMD kernel
+     *
+     * @return the kernel, or null if it wasn't compiled or the vector module is missing
+     */
+    private static BoxKernel load() {
+        try {
+            return (BoxKernel) Class.forName("geometries.VectorBoxKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Amount of children tested by one instruction - the only node width the kernel handles
+     *
+     * @return the vector length
+     */
+    int lanes();
+
+    /**
+     * Slab test of the ray with the quantized boxes of all the children of a node, with the same results
+     * as the scalar test of {@link WideBVH} to the last bit
+     *
+     * @param frames      the node frames
+     * @param boxes       the quantized child boxes
+     * @param node        the node index
+     * @param nearX       offset of the near x plane in the node's boxes (0 or 3 * lanes)
+     * @param nearY       offset of the near y plane in the node's boxes (lanes or 4 * lanes)
+     * @param nearZ       offset of the near z plane in the node's boxes (2 * lanes or 5 * lanes)
+     * @param ox          ray head x
+     * @param oy          ray head y
+     * @param oz          ray head z
+     * @param invX        inverse of the ray direction x (finite)
+     * @param invY        inverse of the ray direction y (finite)
+     * @param invZ        inverse of the ray direction z (finite)
+     * @param maxDistance the distance beyond which boxes don't count
+     * @param distances   array that gets the distance each child is entered at (from index 0)
+     * @return bit mask of the entered children, empty slots included
+     */
+    int enter(double[] frames, byte[] boxes, int node, int nearX, int nearY, int nearZ,
+              double ox, double oy, double oz, double invX, double invY, double invZ,
+              double maxDistance, double[] distances);
+}
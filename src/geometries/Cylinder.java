@@ -77,11 +77,8 @@ public class Cylinder extends Tube {
         if (result2 != null) {
             //Add all intersections of bottom's plane that are in the base's bonders
             for (GeoPoint point : result2) {
-                if (point.point.equals(p1)) { //to avoid vector ZERO
-                    result.add(point);
-                }
                 //checks that point is inside the base
-                else if ((point.point.subtract(p1).dotProduct(point.point.subtract(p1)) < this._radius * this._radius)) {
+                if (point.point.distanceSquared(p1) < this._radius * this._radius) {
                     result.add(point);
                 }
             }
@@ -92,7 +89,9 @@ public class Cylinder extends Tube {
         if (result1 != null) {
             //Add all intersections of tube that are in the cylinder's bonders
             for (GeoPoint point : result1) {
-                if (va.dotProduct(point.point.subtract(p1)) > 0 && va.dotProduct(point.point.subtract(p2)) < 0) {
+                Vector u1 = point.point.subtractOrNull(p1);
+                Vector u2 = point.point.subtractOrNull(p2);
+                if (u1 != null && va.dotProduct(u1) > 0 && u2 != null && va.dotProduct(u2) < 0) {
                     result.add(point);
                 }
             }
@@ -103,11 +102,8 @@ public class Cylinder extends Tube {
 
         if (result3 != null) {
             for (GeoPoint point : result3) {
-                if (point.point.equals(p2)) { //to avoid vector ZERO
-                    result.add(point);
-                }
                 //Formula that checks that point is inside the base
-                else if ((point.point.subtract(p2).dotProduct(point.point.subtract(p2)) < this._radius * this._radius)) {
+                if (point.point.distanceSquared(p2) < this._radius * this._radius) {
                     result.add(point);
                 }
             }
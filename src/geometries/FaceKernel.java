@@ -0,0 +1,83 @@
+package geometries;
+
+/**
+ * Ray - triangle intersection of several mesh faces at once, for the SIMD engine path
+ * <p>
+ * The faces are laid out as a structure of arrays (see {@link #layout(double[], int[])}), so a
+ * vector register holds the same coordinate of several faces. The SIMD implementation is built on
+ * the incubating Java Vector API and lives in the {@code simd} source folder; it's used only when
+ * it was compiled and the {@code jdk.incubator.vector} module is present, that is both javac and
+ * java got {@code --add-modules jdk.incubator.vector}. Otherwise {@link #SIMD} is null and the
+ * meshes keep to their scalar test.
+ */
+interface FaceKernel {
+    /** amount of face arrays in the layout - the first vertex, then the edges to the other two */
+    int COMPONENTS = 9;
+
+    /** the SIMD kernel, or null if it's not available */
+    FaceKernel SIMD = load();
+
+    /**
+     * Load the SIMD kernel
+     *
+     * @return the kernel, or null if it wasn't compiled or the vector module is missing
+     */
+    private static FaceKernel load() {
+        try {
+            return (FaceKernel) Class.forName("geometries.VectorFaceKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lay the faces out for the kernel: the x, y, z of the first vertex, the first edge and the
+     * second edge of all the faces, array after array
+     *
+     * @param vertices the vertex positions, x, y, z per vertex
+     * @param indices  three vertex indices per face
+     * @return the faces, component {@code k} of face {@code f} at {@code k * faceCount + f}
+     */
+    static double[] layout(double[] vertices, int[] indices) {
+        int faceCount = indices.length / 3;
+        double[] faces = new double[COMPONENTS * faceCount];
+        for (int f = 0; f < faceCount; ++f) {
+            int a = 3 * indices[3 * f];
+            int b = 3 * indices[3 * f + 1];
+            int c = 3 * indices[3 * f + 2];
+            for (int axis = 0; axis < 3; ++axis) {
+                faces[axis * faceCount + f] = vertices[a + axis];
+                faces[(3 + axis) * faceCount + f] = vertices[b + axis] - vertices[a + axis];
+                faces[(6 + axis) * faceCount + f] = vertices[c + axis] - vertices[a + axis];
+            }
+        }
+        return faces;
+    }
+
+    /**
+     * Amount of faces tested by one instruction
+     *
+     * @return the vector length
+     */
+    int lanes();
+
+    /**
+     * Moller-Trumbore intersection of a ray with adjacent faces, with the same results as the scalar
+     * test of {@link TriangleMesh} to the last bit
+     *
+     * @param faces     the faces, as laid out by {@link #layout(double[], int[])}
+     * @param faceCount the amount of faces in the layout
+     * @param first     the first face to test
+     * @param count     amount of faces to test
+     * @param ox        ray head x
+     * @param oy        ray head y
+     * @param oz        ray head z
+     * @param dx        ray direction x
+     * @param dy        ray direction y
+     * @param dz        ray direction z
+     * @param t         array that gets the distance of each face from the ray's head (from index 0),
+     *                  NaN if the ray misses the face
+     */
+    void findDistances(double[] faces, int faceCount, int first, int count,
+                       double ox, double oy, double oz, double dx, double dy, double dz, double[] t);
+}
@@ -1,37 +1,33 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 
 /**
  * Composite class for all geometries object implementing {@link Intersectable}
  */
 public class Geometries extends Intersectable {
     List<Intersectable> _intersectables;
-    private final List<Intersectable> geometries = new LinkedList<>();
 
 
     public Geometries() {
-    	 //if bvh improvement is used
-        if (BVH){
-            //create bounding box around geometries
-            createBoundingBox();
-        }
         _intersectables = new LinkedList<Intersectable>();
     }
 
     public Geometries(Intersectable...intersectables) {
+        _intersectables = new LinkedList<Intersectable>();
+        Collections.addAll(_intersectables,intersectables);
     	 //if bvh improvement is used
         if (BVH){
             //create bounding box around geometries
             createBoundingBox();
         }
-        _intersectables = new LinkedList<Intersectable>();
-        Collections.addAll(_intersectables,intersectables);
     }
 
     @Override
@@ -47,49 +43,93 @@ public class Geometries extends Intersectable {
         double maxY = Double.NEGATIVE_INFINITY;
         double maxZ = Double.NEGATIVE_INFINITY;
 
+        // an empty composite has nothing to bound
+        if (_intersectables.isEmpty()) {
+            box = null;
+            return;
+        }
+
         // Iterate over the geometries in the list
         for (Intersectable geo : _intersectables) {
-            if (geo.box != null) {
-                // Update minimum and maximum coordinates based on the bounding box of each geometry
-                minX = Math.min(minX, geo.box._minimums.getX());
-                minY = Math.min(minY, geo.box._minimums.getY());
-                minZ = Math.min(minZ, geo.box._minimums.getZ());
-                maxX = Math.max(maxX, geo.box._maximums.getX());
-                maxY = Math.max(maxY, geo.box._maximums.getY());
-                maxZ = Math.max(maxZ, geo.box._maximums.getZ());
+            // one unbounded geometry (e.g. a plane) makes the whole composite unbounded
+            if (geo.box == null) {
+                box = null;
+                return;
             }
+            // Update minimum and maximum coordinates based on the bounding box of each geometry
+            minX = Math.min(minX, geo.box._minimums.getX());
+            minY = Math.min(minY, geo.box._minimums.getY());
+            minZ = Math.min(minZ, geo.box._minimums.getZ());
+            maxX = Math.max(maxX, geo.box._maximums.getX());
+            maxY = Math.max(maxY, geo.box._maximums.getY());
+            maxZ = Math.max(maxZ, geo.box._maximums.getZ());
         }
 
         // Create a new bounding box using the minimum and maximum coordinates
         box = new BoundingBox(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
     }
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
-    
+
+    /**
+     * Replace the flat list of geometries by a bounding volume hierarchy built
+     * with the default {@link BVHBuilder} settings
+     *
+     * @return this geometries object
+     */
+    public Geometries buildBVH() {
+        return buildBVH(new BVHBuilder());
+    }
+
+    /**
+     * Replace the flat list of geometries by a bounding volume hierarchy
+     * (nested composites are flattened into the hierarchy, unbounded geometries stay at the top level)
+     *
+     * @param builder the builder with the wanted split settings
+     * @return this geometries object
+     */
+    public Geometries buildBVH(BVHBuilder builder) {
+        _intersectables = builder.build(_intersectables)._intersectables;
+        createBoundingBox();
+        return this;
+    }
+
     public void add(Intersectable...intersectables){
         Collections.addAll(_intersectables,intersectables);
+        //if bvh improvement is used
+        if (BVH){
+            //grow the bounding box around the new geometries
+            createBoundingBox();
+        }
+    }
+
+    /**
+     * Replace a geometry by its moved version, for animations - in a hierarchy (see {@link #buildBVH()}) only
+     * the boxes above the geometry are refitted, and the hierarchy is rebuilt once the refits have made it
+     * too slow to trace (see {@link BVHBuilder#setRefitLimit(double)})
+     * <p>
+     * The moved version may be the same object, after its box was made again ({@link #createBoundingBox()}).
+     * Not to be called while rendering.
+     *
+     * @param geometry the geometry, maybe inside nested geometries
+     * @param moved    its moved version
+     * @return true if the geometry was found
+     * @throws IllegalArgumentException if an unbounded version replaces a geometry of a hierarchy
+     */
+    public boolean replace(Intersectable geometry, Intersectable moved) {
+        boolean found = false;
+        for (ListIterator<Intersectable> it = _intersectables.listIterator(); !found && it.hasNext(); ) {
+            Intersectable child = it.next();
+            if (child == geometry) {
+                it.set(moved);
+                found = true;
+            } else if (child instanceof Geometries geometries)
+                found = geometries.replace(geometry, moved);
+            else if (child instanceof LinearBVH bvh)
+                found = bvh.replace(geometry, moved);
+        }
+        // the box of every bounded composite on the way grows or shrinks with the moved geometry
+        if (found && box != null)
+            createBoundingBox();
+        return found;
     }
 
     @Override
@@ -115,8 +155,8 @@ public class Geometries extends Intersectable {
 	@Override
 	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
         List<GeoPoint> result = null;
-        for (Intersectable geometry : geometries) {
-            List<GeoPoint> intersections = geometry.findGeoIntersectionsHelper(ray,maxDistance);
+        for (Intersectable geometry : _intersectables) {
+            List<GeoPoint> intersections = geometry.findGeoIntersections(ray,maxDistance);
             if (intersections != null) {
                 if (result == null)
                     result = new LinkedList<>();
@@ -125,6 +165,32 @@ public class Geometries extends Intersectable {
         }
         return result;
     }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        boolean found = false;
+        // every hit shrinks the record's distance, so the later children are searched in a shorter range
+        for (Intersectable geometry : _intersectables)
+            found |= geometry.findClosestHit(ray, hit);
+        return found;
+    }
+
+    @Override
+    protected void findClosestHitsHelper(RayPacket packet, int[] rays, int count) {
+        for (Intersectable geometry : _intersectables)
+            geometry.findClosestHits(packet, rays, count);
+    }
+
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        for (Intersectable geometry : _intersectables) {
+            ktr = geometry.findTransmittance(ray, maxDistance, ktr, minK);
+            // no need to look for more occluders once the light is blocked
+            if (ktr.lowerThan(minK))
+                return Double3.ZERO;
+        }
+        return ktr;
+    }
 	    
 }
 
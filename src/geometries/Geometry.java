@@ -1,8 +1,10 @@
 package geometries;
 
 import primitives.Color;
+import primitives.Double3;
 import primitives.Material;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 import java.util.Objects;
 
@@ -75,6 +77,27 @@ public abstract class Geometry extends Intersectable {
         return Objects.hash(emission);
     }
 
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        // an opaque geometry blocks the light at its first hit, no matter how many hits there are
+        if (getMaterial().kT.lowerThan(minK))
+            return hasHit(ray, maxDistance) ? Double3.ZERO : ktr;
+        return super.findTransmittanceHelper(ray, maxDistance, ktr, minK);
+    }
+
+    /**
+     * Any-hit test of an opaque geometry - whether the ray hits it up to a distance, as
+     * {@link #findGeoIntersectionsHelper(Ray, double)} would. Geometries override it to answer
+     * without building the intersection list
+     *
+     * @param ray         the ray
+     * @param maxDistance the farthest distance of interest
+     * @return true if the ray hits the geometry
+     */
+    protected boolean hasHit(Ray ray, double maxDistance) {
+        return findGeoIntersectionsHelper(ray, maxDistance) != null;
+    }
+
     /**
      * return the normal to the vector in specific point
      *
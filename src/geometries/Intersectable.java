@@ -2,6 +2,7 @@ package geometries;
 
 import primitives.*;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -21,7 +22,7 @@ public abstract class Intersectable {
     /**
      * class representing boundary box
      */
-    public class BoundingBox {
+    public static class BoundingBox {
         public Point _minimums;
         public Point _maximums;
 
@@ -49,6 +50,17 @@ public abstract class Intersectable {
      * /introductionacceleration-structure/bounding-volume-hierarchy-BVH-part1
      */
     public boolean intersectingBoundingBox(Ray ray) {
+        return intersectingBoundingBox(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * return true if ray intersects object not farther than a distance
+     *
+     * @param ray         ray to check
+     * @param maxDistance the farthest distance of interest (a box entered beyond it is missed)
+     * @return whether ray intersects box
+     */
+    public boolean intersectingBoundingBox(Ray ray, double maxDistance) {
         if (!BVH || box == null)
             return true;
         Vector dir = ray.getDir();
@@ -111,7 +123,8 @@ public abstract class Intersectable {
         if (zMax < xMax)
             xMax = zMax;
 
-        return true;
+        // the whole box is behind the ray's head, or it is entered beyond the distance
+        return !(xMax < 0) && !(xMin > maxDistance);
     }
 
     /**
@@ -213,6 +226,177 @@ public abstract class Intersectable {
         }
     }
     
+    /**
+     * Mutable record of the closest hit found so far along a ray.
+     * The closest-hit queries fill it in place, and its distance serves them as the current
+     * farthest distance of interest, so anything beyond the best hit so far is skipped.
+     * <p>
+     * The intersection routines store only what they get for free (the distance, and the normal of
+     * flat geometries, the barycentric coordinates of triangles); the point and the normal of
+     * the final hit are completed once by {@link #complete(Ray)}.
+     * One record may be reused for any number of rays.
+     */
+    public static class HitRecord {
+        /** distance of the hit from the ray's head (the ray direction is normalized) */
+        public double t = Double.POSITIVE_INFINITY;
+        /** the hit geometry */
+        public Geometry geometry;
+        /** the hit point (null until completed) */
+        public Point point;
+        /** the normal of the geometry at the hit point (null until completed) */
+        public Vector normal;
+        /** barycentric coordinates of the hit inside a triangle (weights of the second and third vertices) */
+        public double u, v;
+
+        /**
+         * Clear the record for a new query
+         *
+         * @param maxDistance the farthest distance of interest
+         * @return this record
+         */
+        public HitRecord reset(double maxDistance) {
+            t = maxDistance;
+            geometry = null;
+            point = null;
+            normal = null;
+            u = v = 0;
+            return this;
+        }
+
+        /**
+         * Record a hit if it is closer than the current one
+         *
+         * @param t        distance of the hit
+         * @param geometry the hit geometry
+         * @return true if the hit was recorded
+         */
+        public boolean update(double t, Geometry geometry) {
+            if (!(t < this.t))
+                return false;
+            this.t = t;
+            this.geometry = geometry;
+            point = null;
+            normal = null;
+            return true;
+        }
+
+        /**
+         * Compute the point and the normal of the hit, unless the intersection routine already did
+         *
+         * @param ray the ray the hit was found on
+         * @return this record
+         */
+        public HitRecord complete(Ray ray) {
+            if (point == null)
+                point = ray.pointAt(t);
+            if (normal == null)
+                normal = geometry.getNormal(point);
+            return this;
+        }
+
+        /**
+         * Get the hit as a geo point (adapter to the list based API)
+         *
+         * @return the geo point of the hit, or null if nothing was hit
+         */
+        public GeoPoint toGeoPoint() {
+            return geometry == null ? null : new GeoPoint(geometry, point);
+        }
+    }
+
+    /**
+     * Closest-hit query - find the nearest intersection of the ray that is closer than the record's distance
+     * and store it in the record
+     *
+     * @param ray the ray
+     * @param hit the closest hit found so far (its distance limits the search)
+     * @return true if a closer hit was found
+     */
+    public final boolean findClosestHit(Ray ray, HitRecord hit) {
+        if (BVH && !intersectingBoundingBox(ray, hit.t))
+            return false;
+        return findClosestHitHelper(ray, hit);
+    }
+
+    /**
+     * Closest-hit query implementation (see {@link #findClosestHit(Ray, HitRecord)})
+     *
+     * @param ray the ray
+     * @param hit the closest hit found so far
+     * @return true if a closer hit was found
+     */
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+        if (intersections == null)
+            return false;
+
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        boolean found = false;
+        for (GeoPoint gp : intersections) {
+            // the point lies on the ray, so its projection on the direction is its distance - no root needed
+            double t = (gp.point.getX() - p0.getX()) * dir.getX()
+                    + (gp.point.getY() - p0.getY()) * dir.getY()
+                    + (gp.point.getZ() - p0.getZ()) * dir.getZ();
+            if (hit.update(t, gp.geometry)) {
+                hit.point = gp.point;
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Closest-hit query of a packet of rays - the same as {@link #findClosestHit(Ray, HitRecord)} of every
+     * ray with its record in the packet, but the hierarchies are walked once for the whole packet
+     *
+     * @param packet the rays and their closest hits so far
+     */
+    public final void findClosestHits(RayPacket packet) {
+        if (packet.size() > 0)
+            findClosestHits(packet, packet.all(), packet.size());
+    }
+
+    /**
+     * Closest-hit query of some rays of a packet
+     *
+     * @param packet the packet
+     * @param rays   indices of the rays to trace
+     * @param count  amount of rays in the list
+     */
+    final void findClosestHits(RayPacket packet, int[] rays, int count) {
+        if (BVH && box != null) {
+            // keep the rays that enter the bounding box, the list is copied only if some ray misses it
+            int[] entering = rays;
+            int n = 0;
+            for (int i = 0; i < count; ++i) {
+                int r = rays[i];
+                if (intersectingBoundingBox(packet.getRay(r), packet.getHit(r).t)) {
+                    if (entering != rays)
+                        entering[n] = r;
+                    ++n;
+                } else if (entering == rays)
+                    entering = Arrays.copyOf(rays, count);
+            }
+            rays = entering;
+            count = n;
+        }
+        if (count > 0)
+            findClosestHitsHelper(packet, rays, count);
+    }
+
+    /**
+     * Packet closest-hit query implementation (see {@link #findClosestHits(RayPacket)}), by default ray by ray
+     *
+     * @param packet the packet
+     * @param rays   indices of the rays to trace, all of them enter the bounding box
+     * @param count  amount of rays in the list
+     */
+    protected void findClosestHitsHelper(RayPacket packet, int[] rays, int count) {
+        for (int i = 0; i < count; ++i)
+            findClosestHitHelper(packet.getRay(rays[i]), packet.getHit(rays[i]));
+    }
+
     public final List<Point> findIntersections(Ray ray, double maxDistance) {
         var geoList = findGeoIntersections(ray, maxDistance);
         return geoList == null ? null : geoList.stream().map(gp -> gp.point).toList();
@@ -226,4 +410,43 @@ public abstract class Intersectable {
     }
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance);
 
+    /**
+     * Any-hit (occlusion) query - find how much light passes along the ray up to a distance.
+     * Every crossed geometry multiplies the transmittance by its kT, and the query stops as soon
+     * as the transmittance drops below the threshold, without collecting the rest of the occluders.
+     *
+     * @param ray         the ray (from the lit point towards the light)
+     * @param maxDistance the distance to the light
+     * @param ktr         the transmittance accumulated so far
+     * @param minK        the threshold below which the light is considered blocked
+     * @return the accumulated transmittance, or {@link Double3#ZERO} if the light is blocked
+     */
+    public final Double3 findTransmittance(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        // a box beyond the light can't block it
+        if (BVH && !intersectingBoundingBox(ray, maxDistance))
+            return ktr;
+        return findTransmittanceHelper(ray, maxDistance, ktr, minK);
+    }
+
+    /**
+     * Occlusion query implementation (see {@link #findTransmittance(Ray, double, Double3, double)})
+     *
+     * @param ray         the ray
+     * @param maxDistance the distance to the light
+     * @param ktr         the transmittance accumulated so far
+     * @param minK        the threshold below which the light is considered blocked
+     * @return the accumulated transmittance, or {@link Double3#ZERO} if the light is blocked
+     */
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        if (intersections == null)
+            return ktr;
+        for (GeoPoint gp : intersections) {
+            ktr = gp.geometry.getMaterial().kT.product(ktr);
+            if (ktr.lowerThan(minK))
+                return Double3.ZERO;
+        }
+        return ktr;
+    }
+
 }
@@ -0,0 +1,190 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounding volume hierarchy stored in flat arrays (see {@link WideBVH})
+ * <p>
+ * There are no node objects: the node frames are plain doubles, the child boxes bytes and the children
+ * and primitive ranges plain ints, so a node test touches a couple of cache lines instead of a chain of
+ * box, point and triad objects. The binary hierarchy of the builder is collapsed into nodes of several
+ * children, which a ray tests together and visits nearest first.
+ * <p>
+ * A moved primitive only refits the boxes on its path to the root, until the refits have made the
+ * hierarchy too slow to trace and it's built again.
+ */
+class LinearBVH extends Intersectable {
+    // the primitives, in leaf order
+    private Intersectable[] _primitives;
+    private WideBVH _bvh;
+    // the settings of the builds and the rebuilds
+    private final BVHBuilder _builder;
+    // the primitive boxes in leaf order and the position of every primitive, made by the first replace
+    private double[] _bounds;
+    private Map<Intersectable, Integer> _positions;
+
+    /**
+     * Constructs the hierarchy
+     *
+     * @param primitives the bounded primitives
+     * @param builder    the builder with the wanted settings
+     */
+    LinearBVH(Intersectable[] primitives, BVHBuilder builder) {
+        _builder = builder;
+        build(primitives);
+    }
+
+    /**
+     * Build the hierarchy over primitives
+     *
+     * @param primitives the bounded primitives, in any order
+     */
+    private void build(Intersectable[] primitives) {
+        BVHLayout layout = _builder.layout(BVHBuilder.bounds(primitives));
+        _primitives = new Intersectable[primitives.length];
+        for (int i = 0; i < primitives.length; ++i)
+            _primitives[i] = primitives[layout.order[i]];
+        _bvh = new WideBVH(layout, _builder.getWidth());
+        _bounds = null;
+        _positions = null;
+        createBoundingBox();
+    }
+
+    /**
+     * Replace a primitive by its moved version, and refit the boxes above it - or rebuild the hierarchy, if
+     * the refits have raised its SAH cost above the builder's limit
+     *
+     * @param primitive the primitive
+     * @param moved     its moved version (maybe the same object, with a new box)
+     * @return true if the primitive is in the hierarchy
+     * @throws IllegalArgumentException if the moved version is unbounded
+     */
+    boolean replace(Intersectable primitive, Intersectable moved) {
+        if (_positions == null) {
+            _bounds = BVHBuilder.bounds(_primitives);
+            _positions = new IdentityHashMap<>(2 * _primitives.length);
+            for (int i = 0; i < _primitives.length; ++i)
+                _positions.put(_primitives[i], i);
+            _bvh.startRefits(_bounds, _builder.getTraversalCost());
+        }
+        if (!_positions.containsKey(primitive))
+            return false;
+        if (moved.box == null)
+            throw new IllegalArgumentException("an unbounded geometry can't be moved into a hierarchy");
+
+        int position = _positions.remove(primitive);
+        _primitives[position] = moved;
+        _positions.put(moved, position);
+        double[] box = BVHBuilder.bounds(new Intersectable[]{moved});
+        System.arraycopy(box, 0, _bounds, position * BVHLayout.BOX_SIZE, BVHLayout.BOX_SIZE);
+        _bvh.refit(_bounds, position);
+        if (_bvh.getDegradation() > _builder.getRefitLimit())
+            build(_primitives);
+        else
+            createBoundingBox();
+        return true;
+    }
+
+    @Override
+    public void createBoundingBox() {
+        double[] bounds = _bvh.bounds;
+        box = new BoundingBox(
+                new Point(bounds[0], bounds[1], bounds[2]),
+                new Point(bounds[3], bounds[4], bounds[5]));
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        return traverse(ray, Double.POSITIVE_INFINITY, false);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        return traverse(ray, maxDistance, true);
+    }
+
+    /**
+     * Collect the intersections of the primitives in the leaves the ray goes through
+     *
+     * @param ray         the ray
+     * @param maxDistance boxes farther than this are skipped
+     * @param bounded     whether to ask the primitives for intersections up to the distance only
+     * @return the intersections, or null if there are none
+     */
+    private List<GeoPoint> traverse(Ray ray, double maxDistance, boolean bounded) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double invX = 1 / dir.getX(), invY = 1 / dir.getY(), invZ = 1 / dir.getZ();
+
+        List<GeoPoint> result = null;
+        WideBVH.Stack stack = _bvh.start();
+        for (int leaf; (leaf = _bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, maxDistance)) >= 0; )
+            for (int i = _bvh.first(leaf), end = i + _bvh.count(leaf); i < end; ++i) {
+                List<GeoPoint> intersections = bounded
+                        ? _primitives[i].findGeoIntersections(ray, maxDistance)
+                        : _primitives[i].findGeoIntersections(ray);
+                if (intersections != null) {
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.addAll(intersections);
+                }
+            }
+        return result;
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double invX = 1 / dir.getX(), invY = 1 / dir.getY(), invZ = 1 / dir.getZ();
+
+        boolean found = false;
+        WideBVH.Stack stack = _bvh.start();
+        // the traversal uses the best distance so far - nodes behind the closest hit are skipped
+        for (int leaf; (leaf = _bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, hit.t)) >= 0; )
+            for (int i = _bvh.first(leaf), end = i + _bvh.count(leaf); i < end; ++i)
+                found |= _primitives[i].findClosestHit(ray, hit);
+        return found;
+    }
+
+    @Override
+    protected void findClosestHitsHelper(RayPacket packet, int[] rays, int count) {
+        if (!packet.isCoherent()) {
+            super.findClosestHitsHelper(packet, rays, count);
+            return;
+        }
+        _bvh.traverse(packet, rays, count, (first, primitives, entering, rayCount) -> {
+            for (int i = first, end = first + primitives; i < end; ++i)
+                _primitives[i].findClosestHits(packet, entering, rayCount);
+        });
+    }
+
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double invX = 1 / dir.getX(), invY = 1 / dir.getY(), invZ = 1 / dir.getZ();
+
+        // the nearer leaves are the likelier occluders
+        WideBVH.Stack stack = _bvh.start();
+        for (int leaf; (leaf = _bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, maxDistance)) >= 0; )
+            for (int i = _bvh.first(leaf), end = i + _bvh.count(leaf); i < end; ++i) {
+                ktr = _primitives[i].findTransmittance(ray, maxDistance, ktr, minK);
+                // the light is blocked - the rest of the tree doesn't matter
+                if (ktr.lowerThan(minK))
+                    return Double3.ZERO;
+            }
+        return ktr;
+    }
+}
@@ -0,0 +1,286 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary cache of a {@link TriangleMesh} with its material and its built hierarchy
+ * <p>
+ * The file holds the mesh arrays exactly as the mesh keeps them (little endian), after a fixed
+ * header, so opening it maps the file and copies every array in bulk - nothing is parsed and the
+ * hierarchy is not built again. The layout:
+ * <ul>
+ * <li>header - magic, version, vertex count, face count, node count, depth (ints), node width (an int,
+ * padded to 8 bytes), then kD, kS, kR, kT (three doubles each), shininess (a long) and the emission
+ * (three doubles)</li>
+ * <li>the vertices, the root box and the node frames (doubles), then the face indices and the node
+ * children (ints), then the quantized child boxes (bytes) - see {@link WideBVH}</li>
+ * </ul>
+ * The cache is trusted - it is checked for its size and version only, so it must be written by
+ * {@link #write(TriangleMesh, Path)}.
+ */
+public final class MeshCache {
+    // "MESH" in ASCII
+    private static final int MAGIC = 0x4853454D;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8 * Integer.BYTES + 15 * Double.BYTES + Long.BYTES;
+    // largest region mapped at once
+    private static final int MAP_SIZE = 1 << 30;
+
+    private MeshCache() {
+    }
+
+    /**
+     * Write a mesh into a cache file
+     * <p>
+     * The file is written aside and then moved over the target, so a reader never sees a partial cache.
+     *
+     * @param mesh the mesh
+     * @param path the cache file
+     * @throws IOException if the file can't be written
+     */
+    public static void write(TriangleMesh mesh, Path path) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "mesh", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                WideBVH bvh = mesh._bvh;
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION)
+                        .putInt(mesh._vertices.length / 3).putInt(mesh._indices.length / 3)
+                        .putInt(bvh.getNodeCount()).putInt(bvh.depth).putInt(bvh.width).putInt(0);
+                Material material = mesh.getMaterial();
+                putDouble3(header, material.kD);
+                putDouble3(header, material.kS);
+                putDouble3(header, material.kR);
+                putDouble3(header, material.kT);
+                header.putLong(material.nShininess);
+                putDouble3(header, mesh.getEmission().getRgb());
+                writeFully(channel, header.flip());
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+                writeDoubles(channel, buffer, mesh._vertices);
+                writeDoubles(channel, buffer, bvh.bounds);
+                writeDoubles(channel, buffer, bvh.frames);
+                writeInts(channel, buffer, mesh._indices);
+                writeInts(channel, buffer, bvh.children);
+                writeBytes(channel, buffer, bvh.boxes);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Open a cache file
+     *
+     * @param path the cache file
+     * @return the mesh, with its material and emission
+     * @throws IOException if the file can't be read or is not a mesh cache of this version
+     */
+    public static TriangleMesh read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE)
+                throw new IOException("not a mesh cache: " + path);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC)
+                throw new IOException("not a mesh cache: " + path);
+            if (header.getInt() != VERSION)
+                throw new IOException("mesh cache of another version: " + path);
+            int vertexCount = header.getInt();
+            int faceCount = header.getInt();
+            int nodeCount = header.getInt();
+            int depth = header.getInt();
+            int width = header.getInt();
+            header.getInt();
+            long expected = HEADER_SIZE
+                    + (3L * vertexCount + BVHLayout.BOX_SIZE + (long) WideBVH.FRAME_SIZE * nodeCount) * Double.BYTES
+                    + (3L * faceCount + 2L * width * nodeCount) * Integer.BYTES
+                    + (long) BVHLayout.BOX_SIZE * width * nodeCount;
+            if (vertexCount < 0 || faceCount <= 0 || nodeCount <= 0 || depth <= 0 || width < 2 || width > 8
+                    || channel.size() != expected)
+                throw new IOException("corrupted mesh cache: " + path);
+
+            Material material = new Material()
+                    .setkD(getDouble3(header)).setkS(getDouble3(header))
+                    .setKr(getDouble3(header)).setKt(getDouble3(header))
+                    .setShininess((int) header.getLong());
+            Double3 emission = getDouble3(header);
+
+            long position = HEADER_SIZE;
+            double[] vertices = new double[3 * vertexCount];
+            position = readDoubles(channel, position, vertices);
+            double[] bounds = new double[BVHLayout.BOX_SIZE];
+            position = readDoubles(channel, position, bounds);
+            double[] frames = new double[WideBVH.FRAME_SIZE * nodeCount];
+            position = readDoubles(channel, position, frames);
+            int[] indices = new int[3 * faceCount];
+            position = readInts(channel, position, indices);
+            int[] children = new int[2 * width * nodeCount];
+            position = readInts(channel, position, children);
+            byte[] boxes = new byte[BVHLayout.BOX_SIZE * width * nodeCount];
+            readBytes(channel, position, boxes);
+
+            TriangleMesh mesh = new TriangleMesh(vertices, indices,
+                    new WideBVH(width, bounds, frames, boxes, children, depth));
+            mesh.setMaterial(material)
+                    .setEmission(new Color(emission.d1(), emission.d2(), emission.d3()));
+            return mesh;
+        }
+    }
+
+    /**
+     * Put the three numbers of a triad
+     *
+     * @param buffer the buffer
+     * @param value  the triad
+     */
+    private static void putDouble3(ByteBuffer buffer, Double3 value) {
+        buffer.putDouble(value.d1()).putDouble(value.d2()).putDouble(value.d3());
+    }
+
+    /**
+     * Get a triad
+     *
+     * @param buffer the buffer
+     * @return the triad
+     */
+    private static Double3 getDouble3(ByteBuffer buffer) {
+        return new Double3(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    /**
+     * Write an array through a buffer
+     *
+     * @param channel the file
+     * @param buffer  the buffer
+     * @param values  the array
+     * @throws IOException if the file can't be written
+     */
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        int step = buffer.capacity() / Double.BYTES;
+        for (int i = 0; i < values.length; i += step) {
+            int length = Math.min(step, values.length - i);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(values, i, length);
+            writeFully(channel, buffer.limit(length * Double.BYTES));
+        }
+    }
+
+    /**
+     * Write an array through a buffer
+     *
+     * @param channel the file
+     * @param buffer  the buffer
+     * @param values  the array
+     * @throws IOException if the file can't be written
+     */
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int step = buffer.capacity() / Integer.BYTES;
+        for (int i = 0; i < values.length; i += step) {
+            int length = Math.min(step, values.length - i);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, i, length);
+            writeFully(channel, buffer.limit(length * Integer.BYTES));
+        }
+    }
+
+    /**
+     * Write an array through a buffer
+     *
+     * @param channel the file
+     * @param buffer  the buffer
+     * @param values  the array
+     * @throws IOException if the file can't be written
+     */
+    private static void writeBytes(FileChannel channel, ByteBuffer buffer, byte[] values) throws IOException {
+        int step = buffer.capacity();
+        for (int i = 0; i < values.length; i += step) {
+            int length = Math.min(step, values.length - i);
+            buffer.clear();
+            buffer.put(values, i, length);
+            writeFully(channel, buffer.flip());
+        }
+    }
+
+    /**
+     * Write all the buffer content
+     *
+     * @param channel the file
+     * @param buffer  the buffer
+     * @throws IOException if the file can't be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Copy an array out of the mapped file
+     *
+     * @param channel  the file
+     * @param position the array position in the file
+     * @param values   the array to fill
+     * @return the position after the array
+     * @throws IOException if the file can't be mapped
+     */
+    private static long readDoubles(FileChannel channel, long position, double[] values) throws IOException {
+        int step = MAP_SIZE / Double.BYTES;
+        for (int i = 0; i < values.length; i += step) {
+            int length = Math.min(step, values.length - i);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values, i, length);
+            position += (long) length * Double.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * Copy an array out of the mapped file
+     *
+     * @param channel  the file
+     * @param position the array position in the file
+     * @param values   the array to fill
+     * @return the position after the array
+     * @throws IOException if the file can't be mapped
+     */
+    private static long readInts(FileChannel channel, long position, int[] values) throws IOException {
+        int step = MAP_SIZE / Integer.BYTES;
+        for (int i = 0; i < values.length; i += step) {
+            int length = Math.min(step, values.length - i);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, i, length);
+            position += (long) length * Integer.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * Copy an array out of the mapped file
+     *
+     * @param channel  the file
+     * @param position the array position in the file
+     * @param values   the array to fill
+     * @return the position after the array
+     * @throws IOException if the file can't be mapped
+     */
+    private static long readBytes(FileChannel channel, long position, byte[] values) throws IOException {
+        for (int i = 0; i < values.length; i += MAP_SIZE) {
+            int length = Math.min(MAP_SIZE, values.length - i);
+            channel.map(FileChannel.MapMode.READ_ONLY, position, length).get(values, i, length);
+            position += length;
+        }
+        return position;
+    }
+}
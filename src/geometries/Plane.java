@@ -93,56 +93,96 @@ public class Plane extends Geometry {
         return getNormal();
     }
 
-    @Override
-    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+    /**
+     * Find the distance along the ray to its intersection with the plane
+     *
+     * @param ray the ray
+     * @return the distance, or NaN if the ray doesn't cross the plane in front of its head
+     */
+    double findDistance(Ray ray) {
         Point P0 = ray.getP0(); // according to the illustration P0 is the same point of the ray's P0 (that's why the definition))
         Vector v = ray.getDir(); // according to the illustration v is the same vector of the ray's vector (that's why the definition))
 
         if (this._q0.equals(P0)) { // if the ray starting from the plane it doesn't cut the plane at all
-            return null; // so return null
+            return Double.NaN; // so there is no distance
         }
 
         Vector n = this._normal; // the normal to the plane
 
-        double nv = n.dotProduct(v); // the formula's denominator of "t" (t =(n*(Q-P0))/nv)
+        double nv = VectorMath.dot(n.getX(), n.getY(), n.getZ(), v.getX(), v.getY(), v.getZ()); // the formula's denominator of "t" (t =(n*(Q-P0))/nv)
 
         // ray is lying on the plane axis
         if (isZero(nv)) { // can't divide by zero (nv is the denominator)
-            return null;
+            return Double.NaN;
         }
 
-        Vector Q0_P0 = this._q0.subtract(P0);
-        double nP0Q0 = alignZero(n.dotProduct(Q0_P0));
+        // n*(Q0-P0) straight from the coordinates, without building the vector
+        double nP0Q0 = alignZero(VectorMath.dot(n.getX(), n.getY(), n.getZ(),
+                _q0.getX() - P0.getX(), _q0.getY() - P0.getY(), _q0.getZ() - P0.getZ()));
 
         // t should be bigger than 0
         if (isZero(nP0Q0)) {
-            return null;
+            return Double.NaN;
         }
 
         double t = alignZero(nP0Q0 / nv);
 
         // t should be bigger than 0
-        if (t <= 0) {
-            return null;
-        }
+        return t > 0 ? t : Double.NaN;
+    }
 
-        // "this" - the specific geometry, "rey.getPoint(t)" - the point that the ray
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        double t = findDistance(ray);
+        // "this" - the specific geometry, "ray.pointAt(t)" - the point that the ray
         // cross the geometry
-        return List.of(new GeoPoint(this, ray.getPoint(t)));
+        return Double.isNaN(t) ? null : List.of(new GeoPoint(this, ray.pointAt(t)));
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        // NaN (no intersection) is never closer than the current hit
+        if (!hit.update(findDistance(ray), this))
+            return false;
+        hit.normal = _normal;
+        return true;
     }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
-        double numerator = _normal.dotProduct(_q0.subtract(ray.getP0()));
-        double denominator = _normal.dotProduct(ray.getDir());
-        if (isZero(denominator))
+        double t = findDistance(ray, maxDistance);
+        return Double.isNaN(t) ? null : List.of(new GeoPoint(this,ray.pointAt(t)));
+    }
+
+    @Override
+    protected boolean hasHit(Ray ray, double maxDistance) {
+        return !Double.isNaN(findDistance(ray, maxDistance));
+    }
+
+    /**
+     * Find the distance from the ray's head to the plane, up to a maximal distance, straight from
+     * the coordinates
+     *
+     * @param ray         the ray
+     * @param maxDistance the farthest distance of interest
+     * @return the distance, or NaN if the ray doesn't cross the plane in front of its head and up to the distance
+     */
+    double findDistance(Ray ray, double maxDistance) {
+        Point P0 = ray.getP0();
+        Vector v = ray.getDir();
+        double ux = _q0.getX() - P0.getX(), uy = _q0.getY() - P0.getY(), uz = _q0.getZ() - P0.getZ();
+        // the ray starts on the plane
+        if (isZero(ux) && isZero(uy) && isZero(uz))
         {
-            return null;
+            return Double.NaN;
         }
-        double t = alignZero(numerator / denominator);
-        if (t > 0  && alignZero(t - maxDistance) <= 0)
+        double numerator = VectorMath.dot(_normal.getX(), _normal.getY(), _normal.getZ(), ux, uy, uz);
+        double denominator = VectorMath.dot(_normal.getX(), _normal.getY(), _normal.getZ(), v.getX(), v.getY(), v.getZ());
+        if (isZero(denominator))
         {
-            return List.of(new GeoPoint(this,ray.getPoint(t)));
+            return Double.NaN;
         }
-        return null;
+        double t = alignZero(numerator / denominator);
+        return t > 0  && alignZero(t - maxDistance) <= 0 ? t : Double.NaN;
     }
 }
\ No newline at end of file
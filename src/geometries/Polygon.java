@@ -1,7 +1,6 @@
 package geometries;
 
 import primitives.*;
-import java.util.ArrayList;
 
 import static primitives.Util.*;
 import java.util.List;
@@ -17,6 +16,17 @@ public class Polygon extends Geometry {
     public void createBoundingBox() {
         if (vertices == null)
             return;
+        box = boundingBox(vertices);
+    }
+
+    /**
+     * Find the box of the vertices - the constructor uses it rather than the overridable
+     * {@link #createBoundingBox()}
+     *
+     * @param vertices the polygon vertices
+     * @return the box
+     */
+    private static BoundingBox boundingBox(List<Point> vertices) {
         // Initialize the minimum X coordinate
         double minX = Double.POSITIVE_INFINITY;
         // Initialize the minimum Y coordinate
@@ -41,7 +51,7 @@ public class Polygon extends Geometry {
         }
 
         // Create a new BoundingBox object using the calculated minimum and maximum coordinates
-        box = new BoundingBox(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
+        return new BoundingBox(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
     }
     
     
@@ -66,6 +76,11 @@ public class Polygon extends Geometry {
             throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
         this.vertices = List.of(vertices);
         _plane = new Plane(vertices[0], vertices[1], vertices[2]);
+        //if bvh improvement is used
+        if (BVH) {
+            //create bounding box
+            box = boundingBox(this.vertices);
+        }
         if (vertices.length == 3)
             return;
 
@@ -93,41 +108,72 @@ public class Polygon extends Geometry {
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-        List<GeoPoint> intersections = _plane.findGeoIntersections(ray);
-
-        if (intersections == null) {
+        double t = _plane.findDistance(ray);
+        if (Double.isNaN(t) || !isInside(ray)) {
             return null;
         }
+        return List.of(new GeoPoint(this, ray.pointAt(t)));
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        double t = _plane.findDistance(ray);
+        // the plane is crossed beyond the closest hit so far (or not at all) - no need for the side checks
+        if (!(t < hit.t) || !isInside(ray)) {
+            return false;
+        }
+        hit.update(t, this);
+        hit.normal = _plane.getNormal();
+        return true;
+    }
 
+    /**
+     * Checks whether the ray passes inside the polygon edges: the ray direction must lie on the same side
+     * of all the planes spanned by the ray's head and each edge.
+     * The calculation is done straight on the coordinates, without building vectors.
+     *
+     * @param ray the ray
+     * @return true if the ray crosses the polygon's plane inside the polygon
+     */
+    private boolean isInside(Ray ray) {
         Point p0 = ray.getP0();
         Vector v = ray.getDir();
+        double dx = v.getX(), dy = v.getY(), dz = v.getZ();
 
-        Vector v1 = vertices.get(1).subtract(p0);
-        Vector v2 = vertices.get(0).subtract(p0);
+        Point vertex = vertices.get(1);
+        double ax = vertex.getX() - p0.getX(), ay = vertex.getY() - p0.getY(), az = vertex.getZ() - p0.getZ();
+        vertex = vertices.get(0);
+        double bx = vertex.getX() - p0.getX(), by = vertex.getY() - p0.getY(), bz = vertex.getZ() - p0.getZ();
 
-        double sign = v.dotProduct(v1.crossProduct(v2));
+        // v * (v1 x v2)
+        double sign = VectorMath.tripleProduct(dx, dy, dz, ax, ay, az, bx, by, bz);
 
         if (isZero(sign)) {
-            return null;
+            return false;
         }
 
         boolean positive = sign > 0;
 
         for (int i = vertices.size() - 1; i > 0; --i) {
-            v1 = v2;
-            v2 = vertices.get(i).subtract(p0);
-            sign = alignZero(v.dotProduct(v1.crossProduct(v2)));
+            ax = bx;
+            ay = by;
+            az = bz;
+            vertex = vertices.get(i);
+            bx = vertex.getX() - p0.getX();
+            by = vertex.getY() - p0.getY();
+            bz = vertex.getZ() - p0.getZ();
+            sign = alignZero(VectorMath.tripleProduct(dx, dy, dz, ax, ay, az, bx, by, bz));
 
             if (isZero(sign)) {
-                return null;
+                return false;
             }
 
             if (positive != (sign > 0)) {
-                return null;
+                return false;
             }
         }
 
-        return List.of(new GeoPoint(this, intersections.get(0).point));
+        return true;
     }
 
     public Polygon setMaterial(Material material) {
@@ -141,31 +187,22 @@ public class Polygon extends Geometry {
     }
     
     /**
-     * Finds intersections between the given ray and the list of points.
+     * Finds intersections between the given ray and the list of points, up to a maximal distance.
      * @param ray The ray to find intersections with.
+     * @param maxDistance The farthest distance of an intersection.
      * @return A list of points representing the intersections with the ray.
      */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
-         List <Point> intersectionList = _plane.findIntersections(ray);
-            if(intersectionList == null)
-                return null;
-            Point intersectionPoint = intersectionList.getFirst();
-            List <Double> listNum = new ArrayList<>();
-            // Check if intersection point is inside the polygon
-            for (int i = 0; i < vertices.size(); i++) {
-                Vector v1 =  vertices.get(i).subtract(ray.getP0());
-                Vector v2 =  vertices.get((i+1)%vertices.size()).subtract(ray.getP0());
-                Vector n = v1.crossProduct(v2);
-                double num = n.dotProduct(ray.getDir());
-                if (isZero(num)) {
-                    return null;
-                }
-                listNum.add(num);
-            }
-            if (listNum.stream().allMatch(value -> value > 0) || listNum.stream().allMatch(value -> value < 0)) {
-                return List.of(new GeoPoint(this,intersectionPoint));
-            }
+        double t = _plane.findDistance(ray, maxDistance);
+        if (Double.isNaN(t) || !isInside(ray)) {
             return null;
+        }
+        return List.of(new GeoPoint(this, ray.pointAt(t)));
+    }
+
+    @Override
+    protected boolean hasHit(Ray ray, double maxDistance) {
+        return !Double.isNaN(_plane.findDistance(ray, maxDistance)) && isInside(ray);
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package geometries;
+
+import geometries.Intersectable.HitRecord;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Packet of rays traced through the scene together, with the closest hit record of each ray
+ * <p>
+ * Neighbouring primary rays (the rays of adjacent pixels, or the samples of one pixel) leave the
+ * same point in nearly the same direction, so they enter mostly the same hierarchy nodes. A packet
+ * lets the hierarchies test a node once for all its rays (see {@link #missesBox(double[], int, double)})
+ * and pay the per-ray tests only for the nodes some ray may enter. The packet is coherent when all
+ * its rays leave the same point and their directions lie in one octant - then they agree on the near
+ * child of every node and the interval of their slab distances is exact. Other packets are traced ray
+ * by ray.
+ * <p>
+ * The coordinates are kept in plain arrays for the traversal. A packet is reused: {@link #clear()}
+ * it and {@link #add(Ray)} the next rays; the hit records are reused as well.
+ */
+public class RayPacket {
+    private final Ray[] _rays;
+    private final HitRecord[] _hits;
+    // ray heads, directions and inverse directions, one entry per ray
+    final double[] ox, oy, oz;
+    final double[] dx, dy, dz;
+    final double[] invX, invY, invZ;
+    // the ray indices 0 .. capacity - 1, the initial ray list of a query
+    private final int[] _all;
+    private int _size;
+    private boolean _coherent;
+    // smallest and largest inverse direction on each axis
+    private double _minX, _minY, _minZ, _maxX, _maxY, _maxZ;
+    // the farthest distance of interest of all the rays (their closest hits so far)
+    double farthest;
+
+    /**
+     * Constructs an empty packet
+     *
+     * @param capacity the largest amount of rays
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public RayPacket(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("packet capacity must be positive");
+        _rays = new Ray[capacity];
+        _hits = new HitRecord[capacity];
+        _all = new int[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            _hits[i] = new HitRecord();
+            _all[i] = i;
+        }
+        ox = new double[capacity];
+        oy = new double[capacity];
+        oz = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        dz = new double[capacity];
+        invX = new double[capacity];
+        invY = new double[capacity];
+        invZ = new double[capacity];
+    }
+
+    /**
+     * Remove all the rays
+     *
+     * @return this packet
+     */
+    public RayPacket clear() {
+        _size = 0;
+        return this;
+    }
+
+    /**
+     * Add a ray, with an empty hit record
+     *
+     * @param ray the ray
+     * @return the ray's index in the packet
+     * @throws IllegalStateException if the packet is full
+     */
+    public int add(Ray ray) {
+        if (_size == _rays.length)
+            throw new IllegalStateException("the packet is full");
+        int i = _size++;
+        _rays[i] = ray;
+        _hits[i].reset(Double.POSITIVE_INFINITY);
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        ox[i] = p0.getX();
+        oy[i] = p0.getY();
+        oz[i] = p0.getZ();
+        dx[i] = dir.getX();
+        dy[i] = dir.getY();
+        dz[i] = dir.getZ();
+        invX[i] = 1 / dx[i];
+        invY[i] = 1 / dy[i];
+        invZ[i] = 1 / dz[i];
+
+        if (i == 0) {
+            _minX = _maxX = invX[0];
+            _minY = _maxY = invY[0];
+            _minZ = _maxZ = invZ[0];
+            // a direction parallel to an axis plane gives infinite slab distances, which have no interval
+            _coherent = Double.isFinite(invX[0]) && Double.isFinite(invY[0]) && Double.isFinite(invZ[0]);
+            return i;
+        }
+        _minX = Math.min(_minX, invX[i]);
+        _maxX = Math.max(_maxX, invX[i]);
+        _minY = Math.min(_minY, invY[i]);
+        _maxY = Math.max(_maxY, invY[i]);
+        _minZ = Math.min(_minZ, invZ[i]);
+        _maxZ = Math.max(_maxZ, invZ[i]);
+        _coherent = _coherent
+                && ox[i] == ox[0] && oy[i] == oy[0] && oz[i] == oz[0]
+                && Double.isFinite(invX[i]) && Double.isFinite(invY[i]) && Double.isFinite(invZ[i])
+                && _minX * _maxX > 0 && _minY * _maxY > 0 && _minZ * _maxZ > 0;
+        return i;
+    }
+
+    /**
+     * Get the amount of rays
+     *
+     * @return amount of rays
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Get a ray
+     *
+     * @param i ray index
+     * @return the ray
+     */
+    public Ray getRay(int i) {
+        return _rays[i];
+    }
+
+    /**
+     * Get the closest hit of a ray - filled by {@link Intersectable#findClosestHits(RayPacket)}
+     *
+     * @param i ray index
+     * @return the hit record, with no geometry if the ray hits nothing
+     */
+    public HitRecord getHit(int i) {
+        return _hits[i];
+    }
+
+    /**
+     * Check whether the rays leave the same point in directions of one octant, so the packet may be
+     * traced as a whole
+     *
+     * @return true if the packet is coherent
+     */
+    public boolean isCoherent() {
+        return _coherent;
+    }
+
+    /**
+     * Get the list of all the ray indices
+     *
+     * @return the indices 0 .. size - 1 (followed by unused indices)
+     */
+    int[] all() {
+        return _all;
+    }
+
+    /**
+     * Update the farthest distance of interest of the packet, for the box culling
+     *
+     * @param rays  the ray indices
+     * @param count amount of rays in the list
+     */
+    void updateFarthest(int[] rays, int count) {
+        double max = 0;
+        for (int i = 0; i < count; ++i)
+            max = Math.max(max, _hits[rays[i]].t);
+        farthest = max;
+    }
+
+    /**
+     * Interval test of a node box against all the rays of a coherent packet
+     * <p>
+     * The rays share their head, so on every axis the slab distances of the rays are the head's
+     * distance from the slab times each ray's inverse direction, whose extremes are the products with
+     * the extreme inverse directions (the same floating point operations as the per-ray test). If even
+     * the farthest entry of the packet lies beyond its nearest exit, no ray enters the box.
+     *
+     * @param bounds      the hierarchy node boxes (min x,y,z then max x,y,z per node)
+     * @param b           the box position in the bounds array
+     * @param maxDistance the farthest distance of interest of all the rays
+     * @return true if none of the rays passes through the box (false doesn't mean that some ray does)
+     */
+    boolean missesBox(double[] bounds, int b, double maxDistance) {
+        double tMin = 0;
+        double tMax = maxDistance;
+        // the near slab is the min one for positive directions, and the max one for negative ones
+        double nearX, farX, nearY, farY, nearZ, farZ;
+        if (_minX > 0) {
+            nearX = bounds[b];
+            farX = bounds[b + 3];
+        } else {
+            nearX = bounds[b + 3];
+            farX = bounds[b];
+        }
+        if (_minY > 0) {
+            nearY = bounds[b + 1];
+            farY = bounds[b + 4];
+        } else {
+            nearY = bounds[b + 4];
+            farY = bounds[b + 1];
+        }
+        if (_minZ > 0) {
+            nearZ = bounds[b + 2];
+            farZ = bounds[b + 5];
+        } else {
+            nearZ = bounds[b + 5];
+            farZ = bounds[b + 2];
+        }
+        double o = ox[0];
+        // the smallest entry and the largest exit distance of the packet on the axis
+        tMin = Math.max(tMin, Math.min((nearX - o) * _minX, (nearX - o) * _maxX));
+        tMax = Math.min(tMax, Math.max((farX - o) * _minX, (farX - o) * _maxX));
+        o = oy[0];
+        tMin = Math.max(tMin, Math.min((nearY - o) * _minY, (nearY - o) * _maxY));
+        tMax = Math.min(tMax, Math.max((farY - o) * _minY, (farY - o) * _maxY));
+        o = oz[0];
+        tMin = Math.max(tMin, Math.min((nearZ - o) * _minZ, (nearZ - o) * _maxZ));
+        tMax = Math.min(tMax, Math.max((farZ - o) * _minZ, (farZ - o) * _maxZ));
+        return tMin > tMax * WideBVH.ROUNDING;
+    }
+}
@@ -2,11 +2,13 @@ package geometries;
 
 import primitives.Color;
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.List;
 import java.util.Objects;
@@ -20,13 +22,13 @@ public class Sphere extends Geometry {
     private Material _material = new Material();
 
     public Sphere(Point center, double radius) {
+        _center = center;
+        _radius = radius;
     	 //if bvh improvement is used
         if (BVH){
             //create bounding box
             createBoundingBox();
         }
-        _center = center;
-        _radius = radius;
     }
     
     @Override
@@ -73,7 +75,7 @@ public class Sphere extends Geometry {
      * @return geo point
      */
     private GeoPoint getGeoPoint(Ray ray, double t) {
-        return new GeoPoint(this, ray.getPoint(t));
+        return new GeoPoint(this, ray.pointAt(t));
     }
 
 
@@ -112,8 +114,11 @@ public class Sphere extends Geometry {
 
     @Override
     public Vector getNormal(Point point) {
-        Vector v = point.subtract(_center);
-        return v.normalize(); //Return normalize normal vector.
+        // the normalized vector from the center, straight from the coordinates
+        double[] n = new double[3];
+        VectorMath.normalize(point.getX() - _center.getX(), point.getY() - _center.getY(),
+                point.getZ() - _center.getZ(), n);
+        return new Vector(n[0], n[1], n[2]);
     }
 
     @Override
@@ -122,14 +127,13 @@ public class Sphere extends Geometry {
         Point O = this._center; //the sphere's center point
         Vector V = ray.getDir(); // "the v vector" from the presentation
 
+        Vector U = O.subtractOrNull(p0);
         // if p0 on center, calculate with line parametric representation
         // the direction vector normalized.
-        if (O.equals(p0)) {
-            Point newPoint = p0.add(ray.getDir().scale(this._radius));
-            return List.of(new GeoPoint(this, newPoint));
+        if (U == null) {
+            return List.of(new GeoPoint(this, ray.pointAt(this._radius)));
         }
 
-        Vector U = O.subtract(p0);
         double tm = V.dotProduct(U);
         double d = Math.sqrt(U.lengthSquared() - tm * tm);
         if (d >= this._radius) {
@@ -141,22 +145,46 @@ public class Sphere extends Geometry {
         double t2 = tm + th;
 
         if (t1 > 0 && t2 > 0) {
-            Point p1 = ray.getPoint(t1);
-            Point p2 = ray.getPoint(t2);
+            Point p1 = ray.pointAt(t1);
+            Point p2 = ray.pointAt(t2);
             return List.of(new GeoPoint(this, p1), new GeoPoint(this, p2));
         }
 
         if (t1 > 0) {
-            Point p1 = ray.getPoint(t1);
+            Point p1 = ray.pointAt(t1);
             return List.of(new GeoPoint(this, p1));
         }
 
         if (t2 > 0) {
-            Point p2 = ray.getPoint(t2);
+            Point p2 = ray.pointAt(t2);
             return List.of(new GeoPoint(this, p2));
         }
         return null;
     }
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDir();
+
+        // u = O - P0, straight from the coordinates (no zero vector trouble when P0 is the center)
+        double ux = _center.getX() - p0.getX();
+        double uy = _center.getY() - p0.getY();
+        double uz = _center.getZ() - p0.getZ();
+
+        double tm = VectorMath.dot(v.getX(), v.getY(), v.getZ(), ux, uy, uz);
+        double dSquared = VectorMath.dot(ux, uy, uz, ux, uy, uz) - tm * tm;
+        double radiusSquared = _radius * _radius;
+        if (dSquared >= radiusSquared)
+            return false;
+
+        double th = Math.sqrt(radiusSquared - dSquared);
+        double t = tm - th;
+        // the ray starts inside the sphere - it hits the far side only
+        if (!(t > 0))
+            t = tm + th;
+        return t > 0 && hit.update(t, this);
+    }
+
     /**
      * Finds the intersections of a given ray with the geometry of the object.
      *
@@ -165,38 +193,68 @@ public class Sphere extends Geometry {
      */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double maxDistance) {
-    	 Point P0 = ray.getP0();
-         Vector v = ray.getDir();
+         double[] t = new double[2];
+         return switch (findDistances(ray, maxDistance, t)) {
+             case 0 -> null;
+             case 1 -> List.of(getGeoPoint(ray, t[0]));
+             default -> List.of(getGeoPoint(ray, t[0]), getGeoPoint(ray, t[1]));
+         };
+    }
+
+    @Override
+    protected boolean hasHit(Ray ray, double maxDistance) {
+        return findDistances(ray, maxDistance, null) > 0;
+    }
 
-         Vector u;
+    /**
+     * Finds the distances of the intersections up to a maximal distance, straight from the coordinates
+     *
+     * @param ray         the ray
+     * @param maxDistance the farthest distance of interest
+     * @param t           array that gets the distances, or null to only count them
+     * @return the amount of intersections
+     */
+    private int findDistances(Ray ray, double maxDistance, double[] t) {
+         Point P0 = ray.getP0();
+         Vector v = ray.getDir();
 
-         try
-         {
-             u = this._center.subtract(P0);
-         }
-         catch (IllegalArgumentException e)
-         {
-             return List.of(new GeoPoint(this, ray.getPoint(this._radius)));
+         double ux = _center.getX() - P0.getX();
+         double uy = _center.getY() - P0.getY();
+         double uz = _center.getZ() - P0.getZ();
+         // the ray starts at the center
+         if (isZero(ux) && isZero(uy) && isZero(uz)) {
+             if (t != null)
+                 t[0] = this._radius;
+             return 1;
          }
 
-         double tm = v.dotProduct(u);
-         double d = Math.sqrt(u.lengthSquared() - tm * tm);
+         double tm = VectorMath.dot(v.getX(), v.getY(), v.getZ(), ux, uy, uz);
+         double d = Math.sqrt(VectorMath.dot(ux, uy, uz, ux, uy, uz) - tm * tm);
 
          if (d >= this._radius)
-             return null;
+             return 0;
 
          double th = Math.sqrt(this._radius * this._radius - d * d);
 
          double t1 = alignZero(tm - th);
          if (alignZero(t1 - maxDistance) > 0)
-             return null;
+             return 0;
 
          double t2 = alignZero(tm + th);
          if (t2 <= 0)
-             return null;
+             return 0;
 
-         if (alignZero(t2 - maxDistance) >= 0)
-             return t1 <= 0 ? null : List.of(getGeoPoint(ray, t1));
-         return t1 <= 0 ? List.of(getGeoPoint(ray, t2)) : List.of(getGeoPoint(ray, t1), getGeoPoint(ray, t2));
-}
+         int count = 0;
+         if (!(t1 <= 0)) {
+             if (t != null)
+                 t[count] = t1;
+             ++count;
+         }
+         if (!(alignZero(t2 - maxDistance) >= 0)) {
+             if (t != null)
+                 t[count] = t2;
+             ++count;
+         }
+         return count;
+    }
 }
\ No newline at end of file
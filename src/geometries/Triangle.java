@@ -4,13 +4,28 @@ import primitives.Point;
 import primitives.Material;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 import static primitives.Util.*;
 import java.util.List;
 
 public class Triangle extends Polygon {
 
+    // the first vertex and the edges from it to the other two, as plain doubles for the intersection test
+    private final double _v0x, _v0y, _v0z;
+    private final double _e1x, _e1y, _e1z;
+    private final double _e2x, _e2y, _e2z;
+
     public Triangle(Point p1, Point p2, Point p3) {
         super(p1, p2, p3);
+        _v0x = p1.getX();
+        _v0y = p1.getY();
+        _v0z = p1.getZ();
+        _e1x = p2.getX() - _v0x;
+        _e1y = p2.getY() - _v0y;
+        _e1z = p2.getZ() - _v0z;
+        _e2x = p3.getX() - _v0x;
+        _e2y = p3.getY() - _v0y;
+        _e2z = p3.getZ() - _v0z;
     }
 
     @Override
@@ -81,64 +96,85 @@ public class Triangle extends Polygon {
                 '}';
     }
 
-  /**  @Override
+    @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-        // Check if the ray intersects the plane.
-        List<GeoPoint> intersections = _plane.findGeoIntersections(ray);
-        if (intersections == null) return null;
-
-        Point p0 = ray.getP0();
-        Vector v = ray.getDir();
-
-        Vector v1 = vertices.get(0).subtract(p0);
-        Vector v2 = vertices.get(1).subtract(p0);
-        Vector v3 = vertices.get(2).subtract(p0);
-
-        // Check every side of the triangle
-        double s1 = v.dotProduct(v1.crossProduct(v2));
-        if (isZero(s1)) return null;
-
-        double s2 = v.dotProduct(v2.crossProduct(v3));
-        if (isZero(s2)) return null;
-
-        double s3 = v.dotProduct(v3.crossProduct(v1));
-        if (isZero(s3)) return null;
-
-        if (!((s1 > 0 && s2 > 0 && s3 > 0) || (s1 < 0 && s2 < 0 && s3 < 0))) return null;
-
-        return List.of(new GeoPoint(this, intersections.get(0).point));
+        return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
     }
-    **/
+
     @Override
-    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-        List<Point> intersections = _plane.findIntersections(ray);
-        // if there are no intersections with the plane, there are no intersections with the triangle
-        if (intersections == null) {
+    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        double t = findDistance(ray, null);
+        if (!(alignZero(t - maxDistance) <= 0)) {
             return null;
         }
+        return List.of(new GeoPoint(this, ray.pointAt(t)));
+    }
+
+    @Override
+    protected boolean hasHit(Ray ray, double maxDistance) {
+        return alignZero(findDistance(ray, null) - maxDistance) <= 0;
+    }
 
-        // if the ray intersects the plane at the triangle's plane
-        Vector v1 = vertices.get(0).subtract(ray.getP0());
-        Vector v2 = vertices.get(1).subtract(ray.getP0());
-        Vector v3 = vertices.get(2).subtract(ray.getP0());
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        double t = findDistance(ray, hit);
+        if (!(t < hit.t)) {
+            return false;
+        }
+        hit.update(t, this);
+        hit.normal = _plane.getNormal();
+        return true;
+    }
 
-        Vector n1 = v1.crossProduct(v2).normalize();
-        Vector n2 = v2.crossProduct(v3).normalize();
-        Vector n3 = v3.crossProduct(v1).normalize();
+    /**
+     * Moller-Trumbore intersection: solves {@code p0 + t*v = v0 + u*e1 + v*e2} straight from the
+     * precomputed vertex and edges, without building points or vectors.
+     * Hits on the edges and the vertices don't count, as in the polygon test.
+     *
+     * @param ray the ray
+     * @param hit record that gets the barycentric coordinates of the hit, or null
+     * @return the distance of the hit from the ray's head, or NaN if the ray misses the triangle
+     */
+    private double findDistance(Ray ray, HitRecord hit) {
+        Vector dir = ray.getDir();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+
+        // p = v x e2
+        double px = dy * _e2z - dz * _e2y;
+        double py = dz * _e2x - dx * _e2z;
+        double pz = dx * _e2y - dy * _e2x;
+        double det = VectorMath.dot(_e1x, _e1y, _e1z, px, py, pz);
+        // the ray is parallel to the triangle's plane
+        if (isZero(det)) {
+            return Double.NaN;
+        }
+        double invDet = 1 / det;
 
-        double s1 = ray.getDir().dotProduct(n1);
-        double s2 = ray.getDir().dotProduct(n2);
-        double s3 = ray.getDir().dotProduct(n3);
+        Point p0 = ray.getP0();
+        double tx = p0.getX() - _v0x, ty = p0.getY() - _v0y, tz = p0.getZ() - _v0z;
+        double u = VectorMath.dot(tx, ty, tz, px, py, pz) * invDet;
+        if (alignZero(u) <= 0 || alignZero(u - 1) >= 0) {
+            return Double.NaN;
+        }
 
-        // if the ray is parallel to the triangle's plane
-        if (isZero(s1) || isZero(s2) || isZero(s3)) {
-            return null;
+        // q = (p0 - v0) x e1
+        double qx = ty * _e1z - tz * _e1y;
+        double qy = tz * _e1x - tx * _e1z;
+        double qz = tx * _e1y - ty * _e1x;
+        double v = VectorMath.dot(dx, dy, dz, qx, qy, qz) * invDet;
+        if (alignZero(v) <= 0 || alignZero(u + v - 1) >= 0) {
+            return Double.NaN;
         }
 
-        if ((s1 > 0 && s2 > 0 && s3 > 0) || (s1 < 0 && s2 < 0 && s3 < 0)) {
-            return List.of(new GeoPoint(this, intersections.get(0)));
+        double t = alignZero(VectorMath.dot(_e2x, _e2y, _e2z, qx, qy, qz) * invDet);
+        if (t <= 0) {
+            return Double.NaN;
+        }
+        // fill the barycentrics only for a hit that is going to be recorded
+        if (hit != null && t < hit.t) {
+            hit.u = u;
+            hit.v = v;
         }
-        // if the ray intersects the plane but not the triangle
-        return null;
+        return t;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,448 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import primitives.VectorMath;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static primitives.Util.*;
+
+/**
+ * Indexed triangle mesh - many triangles sharing one material, stored in primitive arrays
+ * <p>
+ * The vertex positions are kept in one {@code double[]} (x, y, z per vertex) and the faces in one
+ * {@code int[]} (three vertex indices per face), so a face costs 12 bytes of indices instead of a
+ * {@link Triangle} object with its vertex list and plane. The mesh arranges its faces in its own
+ * bounding volume hierarchy (see {@link WideBVH}), and tests the faces with the Moller-Trumbore
+ * algorithm straight on the arrays.
+ * <p>
+ * The face normals follow the vertex order: {@code (v1 - v0) x (v2 - v0)}, as for a triangle.
+ */
+public final class TriangleMesh extends Geometry {
+    // meshes with at least this many faces compute their face boxes in parallel
+    private static final int PARALLEL_FACES = 1 << 14;
+
+    final double[] _vertices;
+    // three vertex indices per face, the faces in leaf order
+    final int[] _indices;
+    // the hierarchy over the faces
+    final WideBVH _bvh;
+    // the faces laid out for the SIMD kernel, and the distances of a leaf per thread (null on the scalar path)
+    private final double[] _faces;
+    private final ThreadLocal<double[]> _distances;
+
+    /**
+     * Constructs a mesh
+     *
+     * @param vertices the vertex positions, x, y, z per vertex
+     * @param indices  the faces, three vertex indices per face
+     * @throws IllegalArgumentException if the arrays are not made of whole vertices and faces,
+     *                                  an index is out of range, or there are no faces
+     */
+    public TriangleMesh(double[] vertices, int[] indices) {
+        if (vertices.length % 3 != 0)
+            throw new IllegalArgumentException("vertices must have three coordinates each");
+        if (indices.length == 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("faces must have three vertices each");
+        int vertexCount = vertices.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("vertex index " + index + " out of range");
+        _vertices = vertices;
+
+        int faceCount = indices.length / 3;
+        // the face boxes are independent - large meshes fill them in parallel
+        double[] faceBounds = new double[faceCount * 6];
+        IntStream faces = IntStream.range(0, faceCount);
+        (faceCount >= PARALLEL_FACES ? faces.parallel() : faces).forEach(f -> {
+            for (int axis = 0; axis < 3; ++axis) {
+                double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < 3; ++k) {
+                    double value = vertices[3 * indices[3 * f + k] + axis];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                faceBounds[6 * f + axis] = min;
+                faceBounds[6 * f + axis + 3] = max;
+            }
+        });
+
+        BVHBuilder builder = new BVHBuilder();
+        BVHLayout layout = builder.layout(faceBounds);
+        _indices = new int[indices.length];
+        for (int f = 0; f < faceCount; ++f)
+            System.arraycopy(indices, 3 * layout.order[f], _indices, 3 * f, 3);
+        _bvh = new WideBVH(layout, builder.getWidth());
+        _faces = FaceKernel.SIMD == null ? null : FaceKernel.layout(_vertices, _indices);
+        _distances = distances();
+        createBoundingBox();
+    }
+
+    /**
+     * Constructs a mesh over a hierarchy built before (see {@link MeshCache})
+     *
+     * @param vertices the vertex positions, x, y, z per vertex
+     * @param indices  the faces, three vertex indices per face, in leaf order
+     * @param bvh      the hierarchy over the faces
+     */
+    TriangleMesh(double[] vertices, int[] indices, WideBVH bvh) {
+        _vertices = vertices;
+        _indices = indices;
+        _bvh = bvh;
+        _faces = FaceKernel.SIMD == null ? null : FaceKernel.layout(_vertices, _indices);
+        _distances = distances();
+        createBoundingBox();
+    }
+
+    /**
+     * Make the per thread arrays for the distances of a leaf, sized for the largest leaf
+     *
+     * @return the arrays, or null on the scalar path
+     */
+    private ThreadLocal<double[]> distances() {
+        if (_faces == null)
+            return null;
+        int size = _bvh.getLargestLeaf();
+        return ThreadLocal.withInitial(() -> new double[size]);
+    }
+
+    /**
+     * Constructs a mesh from shared vertex points
+     *
+     * @param vertices the vertices
+     * @param indices  the faces, three vertex indices per face
+     * @throws IllegalArgumentException if an index is out of range or there are no faces
+     */
+    public TriangleMesh(Point[] vertices, int[] indices) {
+        this(coordinates(vertices), indices);
+    }
+
+    /**
+     * Copy the coordinates of points into an array
+     *
+     * @param points the points
+     * @return x, y, z per point
+     */
+    private static double[] coordinates(Point[] points) {
+        double[] coordinates = new double[points.length * 3];
+        for (int i = 0; i < points.length; ++i) {
+            coordinates[3 * i] = points[i].getX();
+            coordinates[3 * i + 1] = points[i].getY();
+            coordinates[3 * i + 2] = points[i].getZ();
+        }
+        return coordinates;
+    }
+
+    /**
+     * Get the amount of faces
+     *
+     * @return amount of faces
+     */
+    public int getFaceCount() {
+        return _indices.length / 3;
+    }
+
+    @Override
+    public void createBoundingBox() {
+        double[] bounds = _bvh.bounds;
+        box = new BoundingBox(
+                new Point(bounds[0], bounds[1], bounds[2]),
+                new Point(bounds[3], bounds[4], bounds[5]));
+    }
+
+    /**
+     * Find the normal at a point of the mesh
+     * <p>
+     * The closest-hit query stores the normal of the hit face in its record, so this search over all
+     * the faces is needed only for points found by the list queries.
+     *
+     * @param point a point on the mesh
+     * @return the normal of the face the point lies on (of the nearest face plane if several contain it)
+     * @throws IllegalArgumentException if no face contains the point
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        double[] normal = new double[3];
+        for (int f = 0; f < getFaceCount(); ++f) {
+            // a face of zero area has no plane, no point lies on it
+            if (faceNormal(f, normal) == 0)
+                continue;
+            int v = 3 * _indices[3 * f];
+            double distance = Math.abs(normal[0] * (point.getX() - _vertices[v])
+                    + normal[1] * (point.getY() - _vertices[v + 1])
+                    + normal[2] * (point.getZ() - _vertices[v + 2]));
+            if (distance < bestDistance && contains(f, point)) {
+                best = f;
+                bestDistance = distance;
+            }
+        }
+        if (best < 0)
+            throw new IllegalArgumentException("The point is not on any face of the mesh");
+        return faceNormal(best);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        return findGeoIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+        double invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+
+        List<GeoPoint> result = null;
+        WideBVH.Stack stack = _bvh.start();
+        for (int leaf; (leaf = _bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, maxDistance)) >= 0; )
+            for (int f = _bvh.first(leaf), end = f + _bvh.count(leaf); f < end; ++f) {
+                double t = findDistance(f, ox, oy, oz, dx, dy, dz, null);
+                if (alignZero(t - maxDistance) <= 0) {
+                    if (result == null)
+                        result = new LinkedList<>();
+                    result.add(new GeoPoint(this, ray.pointAt(t)));
+                }
+            }
+        return result;
+    }
+
+    @Override
+    protected boolean findClosestHitHelper(Ray ray, HitRecord hit) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+        double invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+
+        int closest = -1;
+        double[] distances = _faces == null ? null : _distances.get();
+        WideBVH.Stack stack = _bvh.start();
+        // nodes behind the closest hit so far are skipped
+        for (int leaf; (leaf = _bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, hit.t)) >= 0; ) {
+            int face = findClosestFace(_bvh.first(leaf), _bvh.count(leaf), ox, oy, oz, dx, dy, dz, hit, distances);
+            if (face >= 0)
+                closest = face;
+        }
+        if (closest < 0)
+            return false;
+        // the normal of the winning face only
+        hit.normal = faceNormal(closest);
+        return true;
+    }
+
+    @Override
+    protected void findClosestHitsHelper(RayPacket packet, int[] rays, int count) {
+        if (!packet.isCoherent()) {
+            super.findClosestHitsHelper(packet, rays, count);
+            return;
+        }
+        // the closest face of every ray, its normal is computed once the traversal is over
+        int[] closest = new int[packet.size()];
+        for (int i = 0; i < count; ++i)
+            closest[rays[i]] = -1;
+        double[] distances = _faces == null ? null : _distances.get();
+        _bvh.traverse(packet, rays, count, (first, faces, entering, rayCount) -> {
+            for (int i = 0; i < rayCount; ++i) {
+                int r = entering[i];
+                int face = findClosestFace(first, faces, packet.ox[r], packet.oy[r], packet.oz[r],
+                        packet.dx[r], packet.dy[r], packet.dz[r], packet.getHit(r), distances);
+                if (face >= 0)
+                    closest[r] = face;
+            }
+        });
+        for (int i = 0; i < count; ++i)
+            if (closest[rays[i]] >= 0)
+                packet.getHit(rays[i]).normal = faceNormal(closest[rays[i]]);
+    }
+
+    /**
+     * Intersect a ray with the faces of a leaf, keeping the closest hit in the record
+     *
+     * @param first     the first face
+     * @param count     amount of faces
+     * @param ox        ray head x
+     * @param oy        ray head y
+     * @param oz        ray head z
+     * @param dx        ray direction x
+     * @param dy        ray direction y
+     * @param dz        ray direction z
+     * @param hit       the closest hit so far
+     * @param distances the thread's leaf distances array for the SIMD kernel, null on the scalar path
+     * @return the face of a closer hit, or -1 if none of the faces is closer
+     */
+    private int findClosestFace(int first, int count, double ox, double oy, double oz,
+                                double dx, double dy, double dz, HitRecord hit, double[] distances) {
+        int closest = -1;
+        if (distances != null) {
+            // the kernel filters the leaf, the few closer faces are tested again for their barycentrics
+            FaceKernel.SIMD.findDistances(_faces, _indices.length / 3, first, count,
+                    ox, oy, oz, dx, dy, dz, distances);
+            for (int i = 0; i < count; ++i)
+                if (distances[i] < hit.t && hit.update(findDistance(first + i, ox, oy, oz, dx, dy, dz, hit), this))
+                    closest = first + i;
+        } else {
+            for (int f = first, end = f + count; f < end; ++f)
+                if (hit.update(findDistance(f, ox, oy, oz, dx, dy, dz, hit), this))
+                    closest = f;
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minK) {
+        // a transparent mesh needs all its crossings
+        if (!getMaterial().kT.lowerThan(minK))
+            return super.findTransmittanceHelper(ray, maxDistance, ktr, minK);
+
+        // an opaque mesh blocks the light at any face - stop at the first one found
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+        double invX = 1 / dx, invY = 1 / dy, invZ = 1 / dz;
+
+        double[] distances = _faces == null ? null : _distances.get();
+        WideBVH.Stack stack = _bvh.start();
+        for (int leaf; (leaf = _bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, maxDistance)) >= 0; ) {
+            int first = _bvh.first(leaf);
+            int count = _bvh.count(leaf);
+            if (_faces != null) {
+                FaceKernel.SIMD.findDistances(_faces, _indices.length / 3, first, count,
+                        ox, oy, oz, dx, dy, dz, distances);
+                for (int i = 0; i < count; ++i)
+                    if (alignZero(distances[i] - maxDistance) <= 0)
+                        return Double3.ZERO;
+            } else {
+                for (int f = first, end = f + count; f < end; ++f)
+                    if (alignZero(findDistance(f, ox, oy, oz, dx, dy, dz, null) - maxDistance) <= 0)
+                        return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Moller-Trumbore intersection of the ray with a face (see {@link Triangle})
+     *
+     * @param face the face index
+     * @param ox   ray head x
+     * @param oy   ray head y
+     * @param oz   ray head z
+     * @param dx   ray direction x
+     * @param dy   ray direction y
+     * @param dz   ray direction z
+     * @param hit  record that gets the barycentric coordinates of a hit closer than its distance, or null
+     * @return the distance of the hit from the ray's head, or NaN if the ray misses the face
+     */
+    private double findDistance(int face, double ox, double oy, double oz,
+                                double dx, double dy, double dz, HitRecord hit) {
+        int a = 3 * _indices[3 * face];
+        int b = 3 * _indices[3 * face + 1];
+        int c = 3 * _indices[3 * face + 2];
+        double v0x = _vertices[a], v0y = _vertices[a + 1], v0z = _vertices[a + 2];
+        double e1x = _vertices[b] - v0x, e1y = _vertices[b + 1] - v0y, e1z = _vertices[b + 2] - v0z;
+        double e2x = _vertices[c] - v0x, e2y = _vertices[c + 1] - v0y, e2z = _vertices[c + 2] - v0z;
+
+        // p = v x e2
+        double px = dy * e2z - dz * e2y;
+        double py = dz * e2x - dx * e2z;
+        double pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        // the ray is parallel to the face
+        if (isZero(det))
+            return Double.NaN;
+        double invDet = 1 / det;
+
+        double tx = ox - v0x, ty = oy - v0y, tz = oz - v0z;
+        double u = (tx * px + ty * py + tz * pz) * invDet;
+        if (alignZero(u) <= 0 || alignZero(u - 1) >= 0)
+            return Double.NaN;
+
+        // q = (p0 - v0) x e1
+        double qx = ty * e1z - tz * e1y;
+        double qy = tz * e1x - tx * e1z;
+        double qz = tx * e1y - ty * e1x;
+        double v = (dx * qx + dy * qy + dz * qz) * invDet;
+        if (alignZero(v) <= 0 || alignZero(u + v - 1) >= 0)
+            return Double.NaN;
+
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * invDet);
+        if (t <= 0)
+            return Double.NaN;
+        if (hit != null && t < hit.t) {
+            hit.u = u;
+            hit.v = v;
+        }
+        return t;
+    }
+
+    /**
+     * Compute the normal of a face
+     *
+     * @param face the face index
+     * @return the unit normal
+     */
+    private Vector faceNormal(int face) {
+        double[] n = new double[3];
+        if (faceNormal(face, n) == 0)
+            throw new IllegalArgumentException("A face of zero area has no normal");
+        return new Vector(n[0], n[1], n[2]);
+    }
+
+    /**
+     * Compute the normal of a face into an array, without the exception of a face of zero area
+     *
+     * @param face   the face index
+     * @param normal receives the x, y and z of the unit normal
+     * @return twice the area of the face - 0 if the face has no normal
+     */
+    private double faceNormal(int face, double[] normal) {
+        int a = 3 * _indices[3 * face];
+        int b = 3 * _indices[3 * face + 1];
+        int c = 3 * _indices[3 * face + 2];
+        double e1x = _vertices[b] - _vertices[a], e1y = _vertices[b + 1] - _vertices[a + 1];
+        double e1z = _vertices[b + 2] - _vertices[a + 2];
+        double e2x = _vertices[c] - _vertices[a], e2y = _vertices[c + 1] - _vertices[a + 1];
+        double e2z = _vertices[c + 2] - _vertices[a + 2];
+        VectorMath.cross(e1x, e1y, e1z, e2x, e2y, e2z, normal);
+        return VectorMath.normalize(normal[0], normal[1], normal[2], normal);
+    }
+
+    /**
+     * Check whether a point lies inside the projection of a face on its plane
+     *
+     * @param face  the face index
+     * @param point the point
+     * @return true if the point's barycentric coordinates are all non negative
+     */
+    private boolean contains(int face, Point point) {
+        int a = 3 * _indices[3 * face];
+        int b = 3 * _indices[3 * face + 1];
+        int c = 3 * _indices[3 * face + 2];
+        double e1x = _vertices[b] - _vertices[a], e1y = _vertices[b + 1] - _vertices[a + 1];
+        double e1z = _vertices[b + 2] - _vertices[a + 2];
+        double e2x = _vertices[c] - _vertices[a], e2y = _vertices[c + 1] - _vertices[a + 1];
+        double e2z = _vertices[c + 2] - _vertices[a + 2];
+        double px = point.getX() - _vertices[a], py = point.getY() - _vertices[a + 1];
+        double pz = point.getZ() - _vertices[a + 2];
+
+        double d11 = e1x * e1x + e1y * e1y + e1z * e1z;
+        double d12 = e1x * e2x + e1y * e2y + e1z * e2z;
+        double d22 = e2x * e2x + e2y * e2y + e2z * e2z;
+        double d1p = e1x * px + e1y * py + e1z * pz;
+        double d2p = e2x * px + e2y * py + e2z * pz;
+        double denominator = d11 * d22 - d12 * d12;
+        double u = (d22 * d1p - d12 * d2p) / denominator;
+        double v = (d11 * d2p - d12 * d1p) / denominator;
+        return alignZero(u) >= 0 && alignZero(v) >= 0 && alignZero(u + v - 1) <= 0;
+    }
+}
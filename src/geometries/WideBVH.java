@@ -0,0 +1,832 @@
+package geometries;
+
+import java.util.Arrays;
+
+import static geometries.BVHLayout.BOX_SIZE;
+import static geometries.BVHLayout.NODE_SIZE;
+
+/**
+ * Wide bounding volume hierarchy - the binary hierarchy of a {@link BVHLayout} collapsed into nodes of up
+ * to {@link #width} children, with the child boxes quantized relative to their node
+ * <p>
+ * Every node keeps a frame: the minimum of its box and the step of 1/255 of its extent on each axis. The
+ * box of a child is stored as six unsigned bytes, the steps from the origin rounded outwards, so it
+ * holds the exact box and a 4-wide node takes 48 bytes of frame and 56 bytes of child boxes and references,
+ * instead of the 180 bytes of its three binary nodes. A ray visits a node once and tests all its children
+ * there, and the entered children are visited nearest first.
+ * <p>
+ * The arrays:
+ * <ul>
+ * <li>{@link #frames} - per node the origin x,y,z and the step x,y,z</li>
+ * <li>{@link #boxes} - per node the quantized child boxes coordinate by coordinate: the min x of all the
+ * children, then their min y, min z, max x, max y and max z</li>
+ * <li>{@link #children} - two ints per child slot: the node index and zero for an inner child, the first
+ * primitive and the amount of primitives for a leaf, and -1, -1 for the empty slots (after the used ones)</li>
+ * </ul>
+ */
+final class WideBVH {
+    /** amount of doubles per node frame */
+    static final int FRAME_SIZE = 6;
+    /** widening of the far slab distance against rounding errors of flat (zero thickness) boxes */
+    static final double ROUNDING = 1 + 1e-12;
+    // the largest quantized coordinate
+    private static final int LEVELS = 255;
+    // the quantized coordinates as doubles - a load is cheaper than a conversion in the child loop
+    private static final double[] LEVEL = new double[LEVELS + 1];
+
+    static {
+        for (int i = 0; i <= LEVELS; ++i)
+            LEVEL[i] = i;
+    }
+
+    /** the largest amount of children of a node */
+    final int width;
+    /** the exact box of the whole hierarchy (min x,y,z then max x,y,z) */
+    final double[] bounds;
+    /** the node frames */
+    final double[] frames;
+    /** the quantized child boxes */
+    final byte[] boxes;
+    /** the child references */
+    final int[] children;
+    /** the longest path from the root, counted in nodes */
+    final int depth;
+    // traversal stacks, one per thread
+    private final ThreadLocal<Stack> _stacks;
+    // the SIMD child test, if it fits the width
+    private final BoxKernel _kernel;
+    // the exact boxes and the SAH cost, made by startRefits
+    private Refit _refit;
+
+    /**
+     * Intersects the primitives of a leaf with some rays of a packet
+     */
+    @FunctionalInterface
+    interface PacketLeaf {
+        /**
+         * Intersect the rays with the leaf primitives
+         *
+         * @param first    the leaf's first primitive
+         * @param count    amount of primitives in the leaf
+         * @param rays     indices of the packet rays that enter the leaf box
+         * @param rayCount amount of rays in the list
+         */
+        void intersect(int first, int count, int[] rays, int rayCount);
+    }
+
+    /**
+     * Traversal state of a ray - the entered nodes and leaves that are not visited yet
+     */
+    static final class Stack {
+        // child slots (-1 for the root) and the distances the ray enters them at
+        private final int[] slots;
+        private final double[] distances;
+        // entry distances of the children of a node, from the kernel
+        private final double[] entries = new double[8];
+        private int top;
+
+        /**
+         * Constructs an empty stack
+         *
+         * @param capacity the largest amount of pending entries
+         */
+        private Stack(int capacity) {
+            slots = new int[capacity];
+            distances = new double[capacity];
+        }
+    }
+
+    /**
+     * Collapse a binary hierarchy
+     *
+     * @param layout the binary hierarchy
+     * @param width  the largest amount of children of a node (2 to 8)
+     */
+    WideBVH(BVHLayout layout, int width) {
+        this(layout.bounds, layout.nodes, width);
+    }
+
+    /**
+     * Collapse a binary hierarchy
+     * <p>
+     * Starting from the two children of a binary node, the inner child with the largest box surface is
+     * replaced by its own two children, until the node is full or all its children are leaves.
+     *
+     * @param bounds the binary node boxes
+     * @param nodes  the binary nodes
+     * @param width  the largest amount of children of a node (2 to 8)
+     */
+    WideBVH(double[] bounds, int[] nodes, int width) {
+        Collapse collapse = new Collapse(bounds, nodes, width);
+        collapse.node(0, 1);
+        int count = collapse.nodeCount;
+        this.width = width;
+        this.bounds = Arrays.copyOf(bounds, BOX_SIZE);
+        this.frames = Arrays.copyOf(collapse.frames, count * FRAME_SIZE);
+        this.boxes = Arrays.copyOf(collapse.boxes, count * BOX_SIZE * width);
+        this.children = Arrays.copyOf(collapse.children, count * 2 * width);
+        this.depth = collapse.depth;
+        _stacks = ThreadLocal.withInitial(() -> new Stack((this.width - 1) * this.depth + 1));
+        _kernel = BoxKernel.SIMD != null && BoxKernel.SIMD.lanes() == width ? BoxKernel.SIMD : null;
+    }
+
+    /**
+     * Constructs a hierarchy collapsed before (see {@link MeshCache})
+     *
+     * @param width    the largest amount of children of a node
+     * @param bounds   the exact box of the whole hierarchy
+     * @param frames   the node frames
+     * @param boxes    the quantized child boxes
+     * @param children the child references
+     * @param depth    the longest path from the root
+     */
+    WideBVH(int width, double[] bounds, double[] frames, byte[] boxes, int[] children, int depth) {
+        this.width = width;
+        this.bounds = bounds;
+        this.frames = frames;
+        this.boxes = boxes;
+        this.children = children;
+        this.depth = depth;
+        _stacks = ThreadLocal.withInitial(() -> new Stack((this.width - 1) * this.depth + 1));
+        _kernel = BoxKernel.SIMD != null && BoxKernel.SIMD.lanes() == width ? BoxKernel.SIMD : null;
+    }
+
+    /**
+     * Get the amount of nodes
+     *
+     * @return amount of nodes
+     */
+    int getNodeCount() {
+        return frames.length / FRAME_SIZE;
+    }
+
+    /**
+     * Get the amount of primitives in the largest leaf
+     *
+     * @return the largest leaf size
+     */
+    int getLargestLeaf() {
+        int largest = 0;
+        for (int i = 1; i < children.length; i += 2)
+            largest = Math.max(largest, children[i]);
+        return largest;
+    }
+
+    /**
+     * Get the first primitive of a leaf
+     *
+     * @param leaf the child slot of the leaf
+     * @return the first primitive
+     */
+    int first(int leaf) {
+        return children[2 * leaf];
+    }
+
+    /**
+     * Get the amount of primitives of a leaf
+     *
+     * @param leaf the child slot of the leaf
+     * @return amount of primitives
+     */
+    int count(int leaf) {
+        return children[2 * leaf + 1];
+    }
+
+    /**
+     * Prepare the refits - find the exact boxes of all the nodes, and the SAH cost of the hierarchy
+     *
+     * @param primitives    the primitive boxes in leaf order, before any of them changes
+     * @param traversalCost cost of a node visit against a primitive test, for the SAH cost
+     */
+    void startRefits(double[] primitives, double traversalCost) {
+        _refit = new Refit(this, primitives, traversalCost);
+    }
+
+    /**
+     * Refit the boxes above a primitive whose box has changed - the node boxes on the path to the root
+     * are recomputed and quantized again, up to the first one that stays the same
+     * <p>
+     * Must follow {@link #startRefits(double[], double)}. The quantized boxes are changed in place,
+     * so no ray may traverse the hierarchy meanwhile.
+     *
+     * @param primitives the primitive boxes in leaf order, the changed one included
+     * @param primitive  position of the changed primitive in leaf order
+     */
+    void refit(double[] primitives, int primitive) {
+        double[] slotBounds = _refit.slotBounds;
+        int slot = _refit.leaves[primitive];
+        double[] box = BVHBuilder.emptyBox();
+        for (int i = first(slot), end = i + count(slot); i < end; ++i)
+            BVHBuilder.grow(box, primitives, i);
+
+        while (!Arrays.equals(box, 0, BOX_SIZE, slotBounds, slot * BOX_SIZE, (slot + 1) * BOX_SIZE)) {
+            _refit.cost += _refit.weight(this, slot) * (area(box, 0) - area(slotBounds, slot));
+            System.arraycopy(box, 0, slotBounds, slot * BOX_SIZE, BOX_SIZE);
+            // the node box and frame follow the children, and all the children are quantized again
+            int node = slot / width;
+            box = BVHBuilder.emptyBox();
+            for (int c = node * width; c < (node + 1) * width && count(c) >= 0; ++c)
+                BVHBuilder.grow(box, slotBounds, c);
+            frame(frames, node, box, 0);
+            for (int c = node * width; c < (node + 1) * width && count(c) >= 0; ++c)
+                quantize(frames, boxes, width, c, slotBounds, c);
+            slot = _refit.parents[node];
+            if (slot < 0) {
+                _refit.cost += _refit.traversalCost * (area(box, 0) - area(bounds, 0));
+                System.arraycopy(box, 0, bounds, 0, BOX_SIZE);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Get the SAH cost of the hierarchy relative to its cost before the refits
+     *
+     * @return the cost ratio, 1 if it was never refitted
+     */
+    double getDegradation() {
+        double rootArea = area(bounds, 0);
+        if (_refit == null || _refit.builtCost == 0 || rootArea == 0)
+            return 1;
+        return _refit.cost / rootArea / _refit.builtCost;
+    }
+
+    /**
+     * Start a ray traversal at the root (its box is tested by the owner's bounding box)
+     *
+     * @return the thread's traversal stack
+     */
+    Stack start() {
+        Stack stack = _stacks.get();
+        stack.slots[0] = -1;
+        stack.distances[0] = 0;
+        stack.top = 1;
+        return stack;
+    }
+
+    /**
+     * Go on to the next leaf the ray enters, the nearest first
+     * <p>
+     * A node is entered at the distance of its box slab test; entries farther than the given distance
+     * are dropped, so a closest-hit query passes the distance of its best hit so far. The children of a
+     * node are tested together by the {@link BoxKernel} when the node width is its vector length, one by
+     * one otherwise.
+     *
+     * @param stack       the traversal stack, from {@link #start()}
+     * @param ox          ray head x
+     * @param oy          ray head y
+     * @param oz          ray head z
+     * @param invX        inverse of the ray direction x
+     * @param invY        inverse of the ray direction y
+     * @param invZ        inverse of the ray direction z
+     * @param maxDistance the farthest distance of interest
+     * @return the child slot of the leaf, or -1 when there are no more leaves
+     */
+    int nextLeaf(Stack stack, double ox, double oy, double oz,
+                 double invX, double invY, double invZ, double maxDistance) {
+        // the near plane of a child box is its min one for positive directions
+        int nearX = invX >= 0 ? 0 : 3 * width, farX = 3 * width - nearX;
+        int nearY = (invY >= 0 ? 1 : 4) * width, farY = 5 * width - nearY;
+        int nearZ = (invZ >= 0 ? 2 : 5) * width, farZ = 7 * width - nearZ;
+
+        // the kernel's min and max would keep the NaN distance of a plane through the head of a ray
+        // parallel to it, so such rays test the children one by one
+        BoxKernel kernel = Double.isInfinite(invX) || Double.isInfinite(invY) || Double.isInfinite(invZ)
+                ? null : _kernel;
+        int[] slots = stack.slots;
+        double[] distances = stack.distances;
+        int top = stack.top;
+        double farthest = maxDistance * ROUNDING;
+        while (top > 0) {
+            --top;
+            // entered beyond a hit found since it was pushed
+            if (distances[top] > farthest)
+                continue;
+            int slot = slots[top];
+            int node = 0;
+            if (slot >= 0) {
+                if (children[2 * slot + 1] > 0) {
+                    stack.top = top;
+                    return slot;
+                }
+                node = children[2 * slot];
+            }
+
+            int pushed = top;
+            if (kernel != null) {
+                double[] entries = stack.entries;
+                int entered = kernel.enter(frames, boxes, node, nearX, nearY, nearZ,
+                        ox, oy, oz, invX, invY, invZ, maxDistance, entries);
+                for (; entered != 0; entered &= entered - 1) {
+                    int c = Integer.numberOfTrailingZeros(entered);
+                    int child = node * width + c;
+                    // the empty slots are the last ones
+                    if (children[2 * child + 1] < 0)
+                        break;
+                    slots[top] = child;
+                    distances[top++] = entries[c];
+                }
+            } else {
+                int frame = node * FRAME_SIZE;
+                double x0 = frames[frame], y0 = frames[frame + 1], z0 = frames[frame + 2];
+                double sx = frames[frame + 3], sy = frames[frame + 4], sz = frames[frame + 5];
+                for (int c = 0; c < width; ++c) {
+                    int child = node * width + c;
+                    if (children[2 * child + 1] < 0)
+                        break;
+                    int b = node * BOX_SIZE * width + c;
+                    // a plane through the head of a ray parallel to it gives NaN, which narrows nothing
+                    double tMin = 0;
+                    double tMax = maxDistance;
+                    double t = (x0 + LEVEL[boxes[b + nearX] & 0xFF] * sx - ox) * invX;
+                    if (t > tMin) tMin = t;
+                    t = (x0 + LEVEL[boxes[b + farX] & 0xFF] * sx - ox) * invX;
+                    if (t < tMax) tMax = t;
+                    t = (y0 + LEVEL[boxes[b + nearY] & 0xFF] * sy - oy) * invY;
+                    if (t > tMin) tMin = t;
+                    t = (y0 + LEVEL[boxes[b + farY] & 0xFF] * sy - oy) * invY;
+                    if (t < tMax) tMax = t;
+                    t = (z0 + LEVEL[boxes[b + nearZ] & 0xFF] * sz - oz) * invZ;
+                    if (t > tMin) tMin = t;
+                    t = (z0 + LEVEL[boxes[b + farZ] & 0xFF] * sz - oz) * invZ;
+                    if (t < tMax) tMax = t;
+                    if (tMin <= tMax * ROUNDING) {
+                        slots[top] = child;
+                        distances[top++] = tMin;
+                    }
+                }
+            }
+            // the entered children farthest first, so the nearest is popped next
+            for (int i = pushed + 1; i < top; ++i) {
+                int child = slots[i];
+                double t = distances[i];
+                int j = i;
+                for (; j > pushed && distances[j - 1] < t; --j) {
+                    slots[j] = slots[j - 1];
+                    distances[j] = distances[j - 1];
+                }
+                slots[j] = child;
+                distances[j] = t;
+            }
+        }
+        stack.top = 0;
+        return -1;
+    }
+
+    /**
+     * Closest-hit traversal of a coherent packet - the hierarchy is walked once for all the rays
+     * <p>
+     * Every child box is first tested against the whole packet by the interval test
+     * ({@link RayPacket#missesBox(double[], int, double)}), then ray by ray until the first ray that
+     * enters it. The rays before that one missed the child, so they miss everything inside it, and it is
+     * searched from that ray on. A leaf gets the rays that enter its box. The children are visited in the
+     * order their first rays enter them. Once a single ray is left the interval test is skipped, which
+     * leaves the plain ray traversal.
+     *
+     * @param packet the coherent packet
+     * @param rays   indices of the packet rays to trace
+     * @param count  amount of rays in the list
+     * @param leaf   intersects the primitives of a leaf
+     */
+    void traverse(RayPacket packet, int[] rays, int count, PacketLeaf leaf) {
+        // pending child slots, each with the position of its first active ray
+        int capacity = (width - 1) * depth + 1;
+        int[] slots = new int[capacity];
+        int[] actives = new int[capacity];
+        double[] distances = new double[capacity];
+        int[] entering = new int[count];
+        double[] box = new double[BOX_SIZE];
+        packet.updateFarthest(rays, count);
+
+        slots[0] = -1;
+        int top = 1;
+        while (top > 0) {
+            --top;
+            int slot = slots[top];
+            int active = actives[top];
+            if (slot >= 0 && children[2 * slot + 1] > 0) {
+                // the rays that enter the leaf now - the earlier ones missed it already when it was pushed
+                childBox(slot, box);
+                int rayCount = 0;
+                for (int i = active; i < count; ++i) {
+                    int r = rays[i];
+                    if (hitsBox(box, 0, packet.ox[r], packet.oy[r], packet.oz[r],
+                            packet.invX[r], packet.invY[r], packet.invZ[r], packet.getHit(r).t))
+                        entering[rayCount++] = r;
+                }
+                if (rayCount > 0) {
+                    leaf.intersect(children[2 * slot], children[2 * slot + 1], entering, rayCount);
+                    // the hits narrow the packet's range
+                    packet.updateFarthest(rays, count);
+                }
+                continue;
+            }
+
+            int node = slot < 0 ? 0 : children[2 * slot];
+            int pushed = top;
+            for (int c = 0; c < width; ++c) {
+                int child = node * width + c;
+                if (children[2 * child + 1] < 0)
+                    break;
+                childBox(child, box);
+                int first = firstEntering(box, packet, rays, active, count);
+                if (first == count)
+                    continue;
+                int r = rays[first];
+                double t = entry(box[0], box[1], box[2], box[3], box[4], box[5],
+                        packet.ox[r], packet.oy[r], packet.oz[r], packet.invX[r], packet.invY[r], packet.invZ[r],
+                        packet.getHit(r).t);
+                int i = top++;
+                while (i > pushed && distances[i - 1] < t) {
+                    slots[i] = slots[i - 1];
+                    actives[i] = actives[i - 1];
+                    distances[i] = distances[i - 1];
+                    --i;
+                }
+                slots[i] = child;
+                actives[i] = first;
+                distances[i] = t;
+            }
+        }
+    }
+
+    /**
+     * Get the box of a child, as the traversal sees it
+     *
+     * @param child the child slot
+     * @param box   array that gets the box (min x,y,z then max x,y,z)
+     */
+    void childBox(int child, double[] box) {
+        int node = child / width;
+        int c = child % width;
+        int frame = node * FRAME_SIZE;
+        int b = node * BOX_SIZE * width + c;
+        for (int k = 0; k < BOX_SIZE; ++k)
+            box[k] = frames[frame + k % 3] + (boxes[b + k * width] & 0xFF) * frames[frame + 3 + k % 3];
+    }
+
+    /**
+     * Find the first ray of a packet list that enters a box
+     *
+     * @param box    the box (min x,y,z then max x,y,z)
+     * @param packet the coherent packet
+     * @param rays   indices of the packet rays
+     * @param start  position of the first ray to test in the list
+     * @param count  amount of rays in the list
+     * @return the position of the ray in the list, or count if no ray enters the box
+     */
+    private static int firstEntering(double[] box, RayPacket packet, int[] rays, int start, int count) {
+        if (count - start > 1 && packet.missesBox(box, 0, packet.farthest))
+            return count;
+        for (int i = start; i < count; ++i) {
+            int r = rays[i];
+            if (hitsBox(box, 0, packet.ox[r], packet.oy[r], packet.oz[r],
+                    packet.invX[r], packet.invY[r], packet.invZ[r], packet.getHit(r).t))
+                return i;
+        }
+        return count;
+    }
+
+    /**
+     * Slab test of a box, with the distance the ray enters it at
+     * <p>
+     * Axes the ray is parallel to give infinite or NaN slab distances; NaN comparisons are
+     * always false, so such an axis just doesn't narrow the interval.
+     *
+     * @param minX        box min x
+     * @param minY        box min y
+     * @param minZ        box min z
+     * @param maxX        box max x
+     * @param maxY        box max y
+     * @param maxZ        box max z
+     * @param ox          ray head x
+     * @param oy          ray head y
+     * @param oz          ray head z
+     * @param invX        inverse of the ray direction x
+     * @param invY        inverse of the ray direction y
+     * @param invZ        inverse of the ray direction z
+     * @param maxDistance the farthest distance of interest
+     * @return the entry distance (0 if the head is inside), or -1 if the ray doesn't pass through the box
+     * between its head and the distance
+     */
+    private static double entry(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                                double ox, double oy, double oz, double invX, double invY, double invZ,
+                                double maxDistance) {
+        double tMin = 0;
+        double tMax = maxDistance;
+
+        double t1 = (minX - ox) * invX;
+        double t2 = (maxX - ox) * invX;
+        if (t1 > t2) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        if (t1 > tMin) tMin = t1;
+        if (t2 < tMax) tMax = t2;
+
+        t1 = (minY - oy) * invY;
+        t2 = (maxY - oy) * invY;
+        if (t1 > t2) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        if (t1 > tMin) tMin = t1;
+        if (t2 < tMax) tMax = t2;
+
+        t1 = (minZ - oz) * invZ;
+        t2 = (maxZ - oz) * invZ;
+        if (t1 > t2) {
+            double temp = t1;
+            t1 = t2;
+            t2 = temp;
+        }
+        if (t1 > tMin) tMin = t1;
+        if (t2 < tMax) tMax = t2;
+
+        return tMin <= tMax * ROUNDING ? tMin : -1;
+    }
+
+    /**
+     * Slab test of a box in an array of boxes
+     *
+     * @param bounds      the boxes (min x,y,z then max x,y,z per box)
+     * @param index       box index
+     * @param ox          ray head x
+     * @param oy          ray head y
+     * @param oz          ray head z
+     * @param invX        inverse of the ray direction x
+     * @param invY        inverse of the ray direction y
+     * @param invZ        inverse of the ray direction z
+     * @param maxDistance the farthest distance of interest
+     * @return true if the ray passes through the box between its head and the distance
+     */
+    static boolean hitsBox(double[] bounds, int index, double ox, double oy, double oz,
+                           double invX, double invY, double invZ, double maxDistance) {
+        int b = index * BOX_SIZE;
+        return entry(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5],
+                ox, oy, oz, invX, invY, invZ, maxDistance) >= 0;
+    }
+
+    /**
+     * Half of the surface area of a box (see {@link BVHBuilder#area(double[])})
+     *
+     * @param boxes an array of boxes
+     * @param box   the box index
+     * @return half of the box surface area
+     */
+    private static double area(double[] boxes, int box) {
+        int b = box * BOX_SIZE;
+        double dx = boxes[b + 3] - boxes[b];
+        double dy = boxes[b + 4] - boxes[b + 1];
+        double dz = boxes[b + 5] - boxes[b + 2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    /**
+     * Set the frame of a node to a box: the box minimum, and steps that reach the box maximum in
+     * {@value #LEVELS} levels
+     *
+     * @param frames the node frames
+     * @param node   the node index
+     * @param bounds an array of boxes
+     * @param box    index of the node box in the array
+     */
+    private static void frame(double[] frames, int node, double[] bounds, int box) {
+        int frame = node * FRAME_SIZE;
+        int b = box * BOX_SIZE;
+        for (int axis = 0; axis < 3; ++axis) {
+            double origin = bounds[b + axis];
+            double max = bounds[b + 3 + axis];
+            double step = (max - origin) / LEVELS;
+            while (origin + LEVELS * step < max)
+                step = Math.nextUp(step);
+            frames[frame + axis] = origin;
+            frames[frame + 3 + axis] = step;
+        }
+    }
+
+    /**
+     * Quantize the box of a child in the frame of its node, rounding outwards
+     *
+     * @param frames the node frames
+     * @param boxes  the quantized child boxes
+     * @param width  the node width
+     * @param slot   the child slot
+     * @param bounds an array of boxes
+     * @param box    index of the child box in the array
+     */
+    private static void quantize(double[] frames, byte[] boxes, int width, int slot, double[] bounds, int box) {
+        int node = slot / width;
+        int frame = node * FRAME_SIZE;
+        int q = node * BOX_SIZE * width + slot % width;
+        int b = box * BOX_SIZE;
+        for (int axis = 0; axis < 3; ++axis) {
+            double origin = frames[frame + axis];
+            double step = frames[frame + 3 + axis];
+            double min = bounds[b + axis];
+            double max = bounds[b + 3 + axis];
+            // a flat frame maps every level to its origin
+            int low = 0;
+            int high = LEVELS;
+            if (step > 0) {
+                low = Math.clamp((long) Math.floor((min - origin) / step), 0, LEVELS);
+                while (low > 0 && origin + low * step > min)
+                    --low;
+                high = Math.clamp((long) Math.ceil((max - origin) / step), 0, LEVELS);
+                while (high < LEVELS && origin + high * step < max)
+                    ++high;
+            }
+            boxes[q + axis * width] = (byte) low;
+            boxes[q + (3 + axis) * width] = (byte) high;
+        }
+    }
+
+    /**
+     * State of the refits of a hierarchy - the exact boxes the quantized ones are made of, and the SAH cost
+     * they add up to: the areas of the node boxes times the traversal cost, and of the leaf boxes times
+     * their amount of primitives
+     */
+    private static final class Refit {
+        // the exact box of every child slot
+        private final double[] slotBounds;
+        // the parent slot of every node (-1 for the root), and the leaf slot of every primitive
+        private final int[] parents;
+        private final int[] leaves;
+        private final double traversalCost;
+        // the cost, and the cost per root area of the hierarchy before the refits
+        private double cost;
+        private final double builtCost;
+
+        /**
+         * Find the exact boxes of a hierarchy
+         *
+         * @param bvh           the hierarchy
+         * @param primitives    the primitive boxes in leaf order
+         * @param traversalCost cost of a node visit against a primitive test
+         */
+        private Refit(WideBVH bvh, double[] primitives, double traversalCost) {
+            slotBounds = new double[bvh.children.length / 2 * BOX_SIZE];
+            parents = new int[bvh.getNodeCount()];
+            leaves = new int[primitives.length / BOX_SIZE];
+            this.traversalCost = traversalCost;
+            parents[0] = -1;
+            cost = traversalCost * area(bvh.bounds, 0);
+            fit(bvh, primitives, 0);
+            double rootArea = area(bvh.bounds, 0);
+            builtCost = rootArea == 0 ? 0 : cost / rootArea;
+        }
+
+        /**
+         * Find the exact boxes of the children of a node and below
+         *
+         * @param bvh        the hierarchy
+         * @param primitives the primitive boxes in leaf order
+         * @param node       the node index
+         */
+        private void fit(WideBVH bvh, double[] primitives, int node) {
+            int width = bvh.width;
+            for (int slot = node * width; slot < (node + 1) * width && bvh.count(slot) >= 0; ++slot) {
+                double[] box = BVHBuilder.emptyBox();
+                if (bvh.count(slot) > 0)
+                    for (int i = bvh.first(slot), end = i + bvh.count(slot); i < end; ++i) {
+                        BVHBuilder.grow(box, primitives, i);
+                        leaves[i] = slot;
+                    }
+                else {
+                    int child = bvh.first(slot);
+                    parents[child] = slot;
+                    fit(bvh, primitives, child);
+                    for (int c = child * width; c < (child + 1) * width && bvh.count(c) >= 0; ++c)
+                        BVHBuilder.grow(box, slotBounds, c);
+                }
+                System.arraycopy(box, 0, slotBounds, slot * BOX_SIZE, BOX_SIZE);
+                cost += weight(bvh, slot) * area(box, 0);
+            }
+        }
+
+        /**
+         * Get the cost of a child per its box area
+         *
+         * @param bvh  the hierarchy
+         * @param slot the child slot
+         * @return the amount of primitives of a leaf, the traversal cost of a node
+         */
+        private double weight(WideBVH bvh, int slot) {
+            return bvh.count(slot) > 0 ? bvh.count(slot) : traversalCost;
+        }
+    }
+
+    /**
+     * The state of a collapse - the wide arrays, sized for the worst case and trimmed at the end
+     */
+    private static final class Collapse {
+        private final double[] bounds;
+        private final int[] nodes;
+        private final int width;
+        private final double[] frames;
+        private final byte[] boxes;
+        private final int[] children;
+        private int nodeCount;
+        private int depth;
+
+        /**
+         * Constructs the state of a collapse
+         *
+         * @param bounds the binary node boxes
+         * @param nodes  the binary nodes
+         * @param width  the largest amount of children of a node
+         */
+        Collapse(double[] bounds, int[] nodes, int width) {
+            if (width < 2 || width > 8)
+                throw new IllegalArgumentException("node width must be 2 to 8");
+            this.bounds = bounds;
+            this.nodes = nodes;
+            this.width = width;
+            // every wide node but a leaf root takes at least one binary inner node
+            int capacity = 1;
+            for (int base = 0; base < nodes.length; base += NODE_SIZE)
+                if (nodes[base + 1] == 0)
+                    ++capacity;
+            frames = new double[capacity * FRAME_SIZE];
+            boxes = new byte[capacity * BOX_SIZE * width];
+            children = new int[capacity * 2 * width];
+        }
+
+        /**
+         * Collapse the subtree of a binary node into a wide node
+         *
+         * @param binary the binary node
+         * @param level  depth of the new node (the root depth is 1)
+         * @return the wide node index
+         */
+        int node(int binary, int level) {
+            int node = nodeCount++;
+            depth = Math.max(depth, level);
+
+            // a leaf root is the single child of the wide root
+            int[] entries = new int[width];
+            int count = 1;
+            entries[0] = binary;
+            if (nodes[binary * NODE_SIZE + 1] == 0) {
+                entries[0] = binary + 1;
+                entries[1] = nodes[binary * NODE_SIZE];
+                count = 2;
+                while (count < width) {
+                    int largest = -1;
+                    double largestArea = -1;
+                    for (int i = 0; i < count; ++i) {
+                        if (nodes[entries[i] * NODE_SIZE + 1] != 0)
+                            continue;
+                        double area = area(entries[i]);
+                        if (area > largestArea) {
+                            largestArea = area;
+                            largest = i;
+                        }
+                    }
+                    if (largest < 0)
+                        break;
+                    int opened = entries[largest];
+                    entries[largest] = opened + 1;
+                    entries[count++] = nodes[opened * NODE_SIZE];
+                }
+            }
+
+            frame(frames, node, bounds, binary);
+            for (int c = 0; c < width; ++c) {
+                int slot = node * width + c;
+                if (c >= count) {
+                    children[2 * slot] = -1;
+                    children[2 * slot + 1] = -1;
+                    continue;
+                }
+                int entry = entries[c];
+                quantize(frames, boxes, width, slot, bounds, entry);
+                int base = entry * NODE_SIZE;
+                if (nodes[base + 1] > 0) {
+                    children[2 * slot] = nodes[base];
+                    children[2 * slot + 1] = nodes[base + 1];
+                } else {
+                    children[2 * slot] = node(entry, level + 1);
+                    children[2 * slot + 1] = 0;
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Half of the surface area of a binary node box (see {@link BVHBuilder#area(double[])})
+         *
+         * @param binary the binary node
+         * @return half of the box surface area
+         */
+        private double area(int binary) {
+            int b = binary * BOX_SIZE;
+            double dx = bounds[b + 3] - bounds[b];
+            double dy = bounds[b + 4] - bounds[b + 1];
+            double dz = bounds[b + 5] - bounds[b + 2];
+            return dx * dy + dy * dz + dz * dx;
+        }
+    }
+}
@@ -40,7 +40,8 @@ public class DirectionalLight extends Light implements LightSource {
      */
     @Override
     public Vector getL(Point p) {
-        return this.direction.normalize();
+        // normalized once by the constructor
+        return this.direction;
     }
 	@Override
 	public double getDistance(Point p) {
@@ -3,6 +3,7 @@ package lighting;
 import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
+import primitives.VectorMath;
 
 /**
  * The {@code PointLight} class extends the {@code Light} class and represents a light source located at a
@@ -84,8 +85,11 @@ public class PointLight extends Light implements LightSource {
         // if the point is the same as the light source, return null
         if (p.equals(position))
             return null;
-        // otherwise, return the normalized vector from the light source to the point
-        return p.subtract(position).normalize();
+        // otherwise, return the normalized vector from the light source to the point - straight from the
+        // coordinates, without the temporary vector of the difference
+        double[] l = new double[3];
+        VectorMath.normalize(p.getX() - position.getX(), p.getY() - position.getY(), p.getZ() - position.getZ(), l);
+        return new Vector(l[0], l[1], l[2]);
     }
     /**
 	 * Calculates the distance from the current point to the given point.
@@ -3,7 +3,6 @@ package lighting;
 import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
-import static primitives.Util.alignZero;
 
 /**
  * The {@code SpotLight} class extends the {@code PointLight} class and represents a light source that has
@@ -53,10 +52,9 @@ public class SpotLight extends PointLight {
      */
     @Override
     public Color getIntensity(Point point) {
-        double cos = alignZero(direction.dotProduct(getL(point)));
-        return narrowBeam != 1
-                ? super.getIntensity(point).scale(Math.pow(Math.max(0, direction.dotProduct(getL(point))), narrowBeam))
-                : super.getIntensity(point).scale(Math.max(0, direction.dotProduct(getL(point))));
+        // the direction to the point is computed once
+        double cos = Math.max(0, direction.dotProduct(getL(point)));
+        return super.getIntensity(point).scale(narrowBeam != 1 ? Math.pow(cos, narrowBeam) : cos);
     }
 
     /**
@@ -80,8 +78,4 @@ public class SpotLight extends PointLight {
 	public double getDistance(Point p) {
 		return super.getDistance(p);
 	}
-	 @Override
-	    public Vector getL(Point p) {
-	        return p.subtract(super.position).normalize();
-	    }
 }
\ No newline at end of file
@@ -64,6 +64,12 @@ public class Color {
       return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
    }
 
+   /**
+    * Get the RGB components of the color, without the limit of 255
+    * @return triad of Red/Green/Blue components
+    */
+   public Double3 getRgb() { return rgb; }
+
    /**
     * Operation of adding this and one or more other colors (by component)
     * @param  colors one or more other colors to add
@@ -115,6 +121,18 @@ public class Color {
 	}
 
 
+   /**
+    * Check whether another color differs from this color by no more than a threshold in every component
+    * @param  other     the other color
+    * @param  threshold the largest allowed difference of a component
+    * @return           true if the colors are similar
+    */
+   public boolean isSimilar(Color other, double threshold) {
+      return Math.abs(rgb._d1 - other.rgb._d1) <= threshold
+            && Math.abs(rgb._d2 - other.rgb._d2) <= threshold
+            && Math.abs(rgb._d3 - other.rgb._d3) <= threshold;
+   }
+
    @Override
    public String toString() { return "rgb:" + rgb; }
 }
\ No newline at end of file
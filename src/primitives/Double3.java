@@ -41,6 +41,33 @@ public class Double3 {
 		this._d3 = value;
 	}
 
+    /**
+     * Get the first number of the triad
+     *
+     * @return the first number
+     */
+    public double d1() {
+        return _d1;
+    }
+
+    /**
+     * Get the second number of the triad
+     *
+     * @return the second number
+     */
+    public double d2() {
+        return _d2;
+    }
+
+    /**
+     * Get the third number of the triad
+     *
+     * @return the third number
+     */
+    public double d3() {
+        return _d3;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
@@ -72,13 +72,23 @@ public class Point {
 
     // Subtracting the point from the vector.
     public Vector subtract(Point point) {
-
-        Double3 result = _xyz.subtract(point._xyz);
-
-        if (result.equals(Double3.ZERO)) {
+        Vector result = subtractOrNull(point);
+        if (result == null) {
             throw new IllegalArgumentException("ZERO vector not allowed");
         }
-        return new Vector(result);
+        return result;
+    }
+
+    /**
+     * Subtract a point without the ZERO vector exception - for the per-ray paths, where the
+     * points may meet and a thrown exception costs far more than the subtraction
+     *
+     * @param point the point to subtract
+     * @return the vector from the given point to this point, or null if the points are the same
+     */
+    public Vector subtractOrNull(Point point) {
+        Double3 result = _xyz.subtract(point._xyz);
+        return result.equals(Double3.ZERO) ? null : Vector.ofNonZero(result);
     }
 
     /**
@@ -36,12 +36,41 @@ public class Ray {
      * @param dir direction
      */
     public Ray(Point p, Vector n, Vector dir) {
-        this.dir = dir.normalize();
-        double nv = n.dotProduct(this.dir);
-        Vector delta  =n.scale(DELTA);
-        if (nv < 0)
-            delta = delta.scale(-1);
-        this.p0 = p.add(delta);
+        this(p, n, dir._xyz._d1, dir._xyz._d2, dir._xyz._d3);
+    }
+
+    /**
+     * Constructor for ray deflected by DELTA, from the direction coordinates - the direction and
+     * the offset are computed without temporary vectors
+     *
+     * @param p  origin
+     * @param n  normal vector
+     * @param dx x of the direction
+     * @param dy y of the direction
+     * @param dz z of the direction
+     */
+    public Ray(Point p, Vector n, double dx, double dy, double dz) {
+        this(p, n._xyz._d1, n._xyz._d2, n._xyz._d3, dx, dy, dz);
+    }
+
+    /**
+     * Constructor for ray deflected by DELTA, from the normal and direction coordinates - for the
+     * secondary rays, whose vectors are computed straight from the coordinates
+     *
+     * @param p  origin
+     * @param nx x of the normal
+     * @param ny y of the normal
+     * @param nz z of the normal
+     * @param dx x of the direction
+     * @param dy y of the direction
+     * @param dz z of the direction
+     */
+    public Ray(Point p, double nx, double ny, double nz, double dx, double dy, double dz) {
+        double length = VectorMath.length(dx, dy, dz);
+        this.dir = Vector.ofNonZero(new Double3(dx / length, dy / length, dz / length));
+        double nv = VectorMath.dot(nx, ny, nz, this.dir._xyz._d1, this.dir._xyz._d2, this.dir._xyz._d3);
+        double delta = nv < 0 ? -DELTA : DELTA;
+        this.p0 = new Point(p._xyz._d1 + nx * delta, p._xyz._d2 + ny * delta, p._xyz._d3 + nz * delta);
     }
 
     @Override
@@ -75,7 +104,20 @@ public class Ray {
         if (isZero(t)) {
             throw new IllegalArgumentException("t is equal to 0 produce an illegal ZERO vector");
         }
-        return this.p0.add(this.dir.scale(t));
+        return pointAt(t);
+    }
+
+    /**
+     * get Point at specific distance in the ray's direction, without the check of {@link #getPoint(double)} -
+     * for the per-ray paths, a distance of (about) 0 gives the ray head
+     *
+     * @param t is a distance for reaching new Point
+     * @return new {@link Point}
+     */
+    public Point pointAt(double t) {
+        return new Point(p0._xyz._d1 + dir._xyz._d1 * t,
+                p0._xyz._d2 + dir._xyz._d2 * t,
+                p0._xyz._d3 + dir._xyz._d3 * t);
     }
     /**
      * Finds the closest Point in the given list.
@@ -89,8 +131,9 @@ public class Ray {
         }
         GeoPoint closestPoint = list.getFirst();
         double minDistance = Double.MAX_VALUE;
+        // squared distances keep the order - no need for the root
         for (GeoPoint p : list) {
-            double distance = p0.distance(p.point);
+            double distance = p0.distanceSquared(p.point);
             if (distance < minDistance) {
                 minDistance = distance;
                 closestPoint = p;
@@ -8,20 +8,38 @@ public class Vector extends Point {
 	  public static final Vector Z = new Vector(0,0,1);
  // Creating a constructor for the class Vector.
  public Vector(Double3 xyz) {
+     this(xyz, "ZERO vector not allowed");
+ }
+
+ // Creating a constructor for the class Vector.
+ public Vector(double x, double y, double z) {
+     this(new Double3(x, y, z), "ZERO vector is not allowed");
+ }
+
+ /**
+  * Creating a vector, checking its coordinates unless they were already checked
+  *
+  * @param xyz         the coordinates
+  * @param zeroMessage the message of the ZERO vector exception, null if the coordinates aren't ZERO
+  */
+ private Vector(Double3 xyz, String zeroMessage) {
      super(xyz);
 
      //Check if the coordinates create ZERO vector.
-     if (_xyz.equals(Double3.ZERO)) {
-         throw new IllegalArgumentException("ZERO vector not allowed");
+     if (zeroMessage != null && _xyz.equals(Double3.ZERO)) {
+         throw new IllegalArgumentException(zeroMessage);
      }
  }
 
- // Creating a constructor for the class Vector.
- public Vector(double x, double y, double z) {
-     super(x, y, z);
-     if (_xyz.equals(Double3.ZERO)) {
-         throw new IllegalArgumentException("ZERO vector is not allowed");
-     }
+ /**
+  * Create a vector of coordinates that were already checked not to be ZERO - for the per-ray paths,
+  * which check them on their own
+  *
+  * @param xyz the coordinates, not ZERO
+  * @return the vector
+  */
+ static Vector ofNonZero(Double3 xyz) {
+     return new Vector(xyz, null);
  }
 
  /**
@@ -73,6 +91,26 @@ public class Vector extends Point {
      return new Vector((u2 * v3 - v2 * u3), -(u1 * v3 - v1 * u3), (u1 * v2 - v1 * u2));
  }
 
+ /**
+  * Cross product without the ZERO vector exception - for the per-ray paths, where the vectors
+  * may be parallel and a thrown exception costs far more than the product
+  *
+  * @param vector the second vector
+  * @return the cross product, or null if the vectors are parallel
+  */
+ public Vector crossProductOrNull(Vector vector) {
+     double u1 = _xyz._d1;
+     double u2 = _xyz._d2;
+     double u3 = _xyz._d3;
+
+     double v1 = vector._xyz._d1;
+     double v2 = vector._xyz._d2;
+     double v3 = vector._xyz._d3;
+
+     Double3 result = new Double3((u2 * v3 - v2 * u3), -(u1 * v3 - v1 * u3), (u1 * v2 - v1 * u2));
+     return result.equals(Double3.ZERO) ? null : ofNonZero(result);
+ }
+
  // Calculating the length of the vector squared.
  public double lengthSquared() {
      double u1 = _xyz._d1;
@@ -0,0 +1,104 @@
+package primitives;
+
+/**
+ * Vector math on plain coordinates, for the per-ray paths
+ * <p>
+ * Every {@link Vector} operation allocates a new vector (and its {@link Double3}), which the JIT
+ * can't always remove where the vectors are passed around. These kernels take the coordinates as
+ * doubles and return doubles, so the intersection and shading code can keep its temporaries in
+ * local variables. The operations are done in the same order as the Vector methods, so the
+ * results are the same to the last bit.
+ *
+ * @author Shirel Cohen & Neomi Golkin
+ */
+public final class VectorMath {
+    /**
+     * Empty private constructor to hide the public one
+     */
+    private VectorMath() {
+    }
+
+    /**
+     * Dot product of two vectors (see {@link Vector#dotProduct(Vector)})
+     *
+     * @param ax x of the first vector
+     * @param ay y of the first vector
+     * @param az z of the first vector
+     * @param bx x of the second vector
+     * @param by y of the second vector
+     * @param bz z of the second vector
+     * @return the dot product
+     */
+    public static double dot(double ax, double ay, double az, double bx, double by, double bz) {
+        return ax * bx + ay * by + az * bz;
+    }
+
+    /**
+     * Length of a vector (see {@link Vector#length()})
+     *
+     * @param x x of the vector
+     * @param y y of the vector
+     * @param z z of the vector
+     * @return the length
+     */
+    public static double length(double x, double y, double z) {
+        return Math.sqrt(dot(x, y, z, x, y, z));
+    }
+
+    /**
+     * Cross product of two vectors (see {@link Vector#crossProduct(Vector)}) - parallel vectors give
+     * zeros rather than an exception
+     *
+     * @param ax     x of the first vector
+     * @param ay     y of the first vector
+     * @param az     z of the first vector
+     * @param bx     x of the second vector
+     * @param by     y of the second vector
+     * @param bz     z of the second vector
+     * @param result receives the x, y and z of the product
+     */
+    public static void cross(double ax, double ay, double az, double bx, double by, double bz, double[] result) {
+        result[0] = ay * bz - by * az;
+        result[1] = -(ax * bz - bx * az);
+        result[2] = ax * by - bx * ay;
+    }
+
+    /**
+     * Normalize a vector (see {@link Vector#normalize()}) - a zero vector gives NaNs rather than an
+     * exception
+     *
+     * @param x      x of the vector
+     * @param y      y of the vector
+     * @param z      z of the vector
+     * @param result receives the x, y and z of the unit vector (may be the caller's input array)
+     * @return the length of the vector
+     */
+    public static double normalize(double x, double y, double z, double[] result) {
+        double length = length(x, y, z);
+        result[0] = x / length;
+        result[1] = y / length;
+        result[2] = z / length;
+        return length;
+    }
+
+    /**
+     * Triple product {@code d * (a x b)} - the volume spanned by the vectors, its sign tells on which
+     * side of the plane of a and b the vector d lies
+     *
+     * @param dx x of the vector d
+     * @param dy y of the vector d
+     * @param dz z of the vector d
+     * @param ax x of the vector a
+     * @param ay y of the vector a
+     * @param az z of the vector a
+     * @param bx x of the vector b
+     * @param by y of the vector b
+     * @param bz z of the vector b
+     * @return the triple product
+     */
+    public static double tripleProduct(double dx, double dy, double dz,
+                                       double ax, double ay, double az,
+                                       double bx, double by, double bz) {
+        return dot(dx, dy, dz, ay * bz - az * by, az * bx - ax * bz, ax * by - ay * bx);
+    }
+}
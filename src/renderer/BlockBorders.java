@@ -0,0 +1,78 @@
+package renderer;
+
+import primitives.Color;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The pixel corner colors on the borders between neighbouring blocks of an adaptive render
+ * <p>
+ * Every block traces the corners of its own pixels into a small array of its own; only the corners on a
+ * border with a neighbour block are kept here, from the first of the two blocks that finishes until the
+ * second one takes them. So the memory follows the front of the blocks in progress and not the image
+ * size, and every corner is still traced once when the neighbours aren't rendered at the same time.
+ * <p>
+ * A border is identified by its first corner and its direction, which works because neighbouring blocks
+ * share whole borders (the blocks are the bands of the tiles of a grid).
+ */
+class BlockBorders {
+    // the borders left by one of their two blocks
+    private final ConcurrentHashMap<Long, Color[]> borders = new ConcurrentHashMap<>();
+    // amount of corners in a row of the image
+    private final long cornersX;
+
+    /**
+     * Constructs the borders of an image
+     *
+     * @param nX amount of columns of pixels
+     */
+    BlockBorders(int nX) {
+        cornersX = nX + 1L;
+    }
+
+    /**
+     * Take a border its other block has left
+     *
+     * @param horizontal whether the border is a row of corners (or a column)
+     * @param x          column of the first corner
+     * @param y          row of the first corner
+     * @param length     amount of corners
+     * @return the corner colors, or null if the other block didn't leave them (yet)
+     */
+    Color[] take(boolean horizontal, int x, int y, int length) {
+        Color[] border = borders.remove(key(horizontal, x, y));
+        return border != null && border.length == length ? border : null;
+    }
+
+    /**
+     * Leave a border to its other block - or drop it, if the other block left the same border meanwhile
+     * (both were rendered at the same time, and both are done with it)
+     *
+     * @param horizontal whether the border is a row of corners (or a column)
+     * @param x          column of the first corner
+     * @param y          row of the first corner
+     * @param border     the corner colors
+     */
+    void leave(boolean horizontal, int x, int y, Color[] border) {
+        borders.compute(key(horizontal, x, y), (key, left) -> left == null ? border : null);
+    }
+
+    /**
+     * Get the amount of borders kept
+     *
+     * @return the amount of borders waiting for their other block
+     */
+    int size() {
+        return borders.size();
+    }
+
+    /**
+     * @param horizontal whether the border is a row of corners (or a column)
+     * @param x          column of the first corner
+     * @param y          row of the first corner
+     * @return the border key
+     */
+    private long key(boolean horizontal, int x, int y) {
+        return (y * cornersX + x) * 2 + (horizontal ? 0 : 1);
+    }
+}
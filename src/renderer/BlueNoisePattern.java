@@ -0,0 +1,88 @@
+package renderer;
+
+/**
+ * Blue noise samples - point sets with no two points close together, laid as a 4x4 tile over the image
+ * <p>
+ * Every set is made by Mitchell's best candidate algorithm on the pixel torus: each new point is the
+ * candidate farthest from the points chosen so far. The sets are made once per amount of samples,
+ * and neighbouring pixels use different sets.
+ */
+public class BlueNoisePattern implements SamplePattern {
+    // the tile is TILE x TILE pixels, with a point set each
+    private static final int TILE = 4;
+    // candidates per point already chosen
+    private static final int CANDIDATES = 8;
+
+    private final long seed;
+    // the point sets for the last amount of samples asked for
+    private volatile double[][] cache = new double[0][0];
+
+    /**
+     * Constructs the pattern
+     *
+     * @param seed seed of the candidates
+     */
+    public BlueNoisePattern(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void fill(double[] offsets, int column, int row) {
+        double[][] sets = cache;
+        if (sets.length == 0 || sets[0].length != offsets.length) {
+            sets = new double[TILE * TILE][];
+            for (int i = 0; i < sets.length; ++i)
+                sets[i] = bestCandidates(offsets.length / 2, i);
+            cache = sets;
+        }
+        double[] points = sets[Math.floorMod(row, TILE) * TILE + Math.floorMod(column, TILE)];
+        System.arraycopy(points, 0, offsets, 0, offsets.length);
+    }
+
+    /**
+     * Make a point set by the best candidate algorithm
+     *
+     * @param count amount of points
+     * @param set   the set index (seeds its candidates)
+     * @return the points offsets, interleaved
+     */
+    private double[] bestCandidates(int count, int set) {
+        double[] points = new double[2 * count];
+        int random = 0;
+        for (int k = 0; k < count; ++k) {
+            double bestX = 0, bestY = 0, bestDistance = -1;
+            for (int c = 0, candidates = Math.max(1, k * CANDIDATES); c < candidates; ++c) {
+                double x = SamplePattern.random(seed, set, k, random++) - 0.5;
+                double y = SamplePattern.random(seed, set, k, random++) - 0.5;
+                double distance = Double.POSITIVE_INFINITY;
+                for (int p = 0; p < k; ++p)
+                    distance = Math.min(distance, torusDistanceSquared(x, y, points[2 * p], points[2 * p + 1]));
+                if (distance > bestDistance) {
+                    bestDistance = distance;
+                    bestX = x;
+                    bestY = y;
+                }
+            }
+            points[2 * k] = bestX;
+            points[2 * k + 1] = bestY;
+        }
+        return points;
+    }
+
+    /**
+     * Squared distance of two points on the pixel torus (the pixel wraps around its edges)
+     *
+     * @param x1 first point x
+     * @param y1 first point y
+     * @param x2 second point x
+     * @param y2 second point y
+     * @return the squared distance
+     */
+    private static double torusDistanceSquared(double x1, double y1, double x2, double y2) {
+        double dx = Math.abs(x1 - x2);
+        double dy = Math.abs(y1 - y2);
+        dx = Math.min(dx, 1 - dx);
+        dy = Math.min(dy, 1 - dy);
+        return dx * dx + dy * dy;
+    }
+}
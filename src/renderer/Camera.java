@@ -3,13 +3,18 @@ package renderer;
 import primitives.*;
 import primitives.Point;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.MissingResourceException;
-import java.util.stream.IntStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
 import static primitives.Util.*;
 
 public class Camera {
+    // side of the squares of neighbouring pixels whose rays are traced together
+    private static final int PACKET_SIDE = 8;
+
     private Point position;
     private Vector vTo;
     private Vector vUp;
@@ -17,6 +22,7 @@ public class Camera {
     private int height;
     private int width;
     private double distance;
+    // computed on demand, reset whenever the camera moves
     private Point viewPlaneCenter;
     private ImageWriter imageWriter;
     private RayTracerBase rayTracer;
@@ -26,6 +32,22 @@ public class Camera {
      * Amount of threads for multi threading, if not set is 0, so no multi threading is done
      */
     private int threads = 0;
+    /**
+     * Tile width and height in pixels for the render scheduler
+     */
+    private int tileSize = 16;
+    /**
+     * The order the tiles are rendered in
+     */
+    private TileScheduler.TileOrder tileOrder = TileScheduler.TileOrder.HILBERT;
+    /**
+     * Progress print interval in seconds, 0 if printing is not required
+     */
+    private double printInterval = 0;
+    /**
+     * Whether the primary rays of neighbouring pixels (or the samples of a pixel) are traced together
+     */
+    private boolean rayPackets = true;
 
     /**
      * Camera object constructor
@@ -141,6 +163,7 @@ public class Camera {
      */
     public Camera setVPDistance(double distance) {
         this.distance = distance;
+        this.viewPlaneCenter = null;
         return this;
     }
 
@@ -177,6 +200,29 @@ public class Camera {
         return this;
     }
 
+    /**
+     * Set the pattern of the anti aliasing samples inside a pixel
+     *
+     * @param pattern the sample pattern
+     * @return the updated Camera object
+     */
+    public Camera setSamplePattern(SamplePattern pattern) {
+        this.antiAliasing.setPattern(pattern);
+        return this;
+    }
+
+    /**
+     * Set adaptive anti aliasing: the pixels are supersampled (up to about the grid size) only where
+     * the colors differ by more than the threshold
+     *
+     * @param threshold the largest color component difference of similar samples
+     * @return the updated Camera object
+     */
+    public Camera setAdaptiveAntiAliasing(double threshold) {
+        this.antiAliasing.setThreshold(threshold).setAdaptive(true);
+        return this;
+    }
+
      /**
      * Creates the rays that pass at the center of the requested pixel on the View Plane
      *
@@ -188,7 +234,7 @@ public class Camera {
      */
     public List<Ray> constructRay(int nX, int nY, int j, int i) {
         // Image Center
-        Point pIJ = this.position.add(this.vTo.scale(this.distance));
+        Point pIJ = getViewPlaneCenter();
 
         // Ratio (pixel width & height)
         double rX = (double) this.width / nX;
@@ -203,7 +249,7 @@ public class Camera {
         if (yI != 0)
             pIJ = pIJ.add(vUp.scale(yI));
 
-        return this.antiAliasing.constructRaysThroughGrid(rX, rY,position, pIJ, this.vUp, this.vRight);
+        return this.antiAliasing.constructRaysThroughGrid(rX, rY,position, pIJ, this.vUp, this.vRight, j, i);
     }
 
     /**
@@ -215,11 +261,11 @@ public class Camera {
      * @return Ray
      */
     public Ray constructRay2(int nX, int nY, int j, int i){
-        double rY = height / nY;
-        double rX = width / nX;
+        double rY = (double) height / nY;
+        double rX = (double) width / nX;
         double xJ = (j - ((nX - 1) / 2.0))* rX;
         double yI = -(i - ((nY - 1) / 2.0)) * rY;
-        Point pIJ = this.viewPlaneCenter;
+        Point pIJ = getViewPlaneCenter();
         if (xJ != 0)
             pIJ = pIJ.add(vRight.scale(xJ));
         if (yI != 0)
@@ -275,30 +321,15 @@ public class Camera {
 
             int nY = imageWriter.getNy();
             int nX = imageWriter.getNx();
-            //if not using multi threads
-            if (threads < 1) {
-                //goes through every pixel in view plane  and casts ray, meaning creates a ray for every pixel and sets the color
-                for (int row = 0; row < nY; row++) {
-                    for (int column = 0; column < nX; column++) {
-                        castRay(nX, nY, row, column);
-                    }
-                }
-                return imageWriter;
-
-            }
-            //if using multi threads
-            Pixel.initialize(nY, nX, 1);
-            while (threads-- > 0) {
-                new Thread(() ->
-                {
-                    for (Pixel pixel = new Pixel();
-                         pixel.nextPixel();
-                         Pixel.pixelDone()) {
-                        imageWriter.writePixel(pixel.col, pixel.row, castRay(nX, nY, pixel.row, pixel.col));
-                    }
-                }).start();
-            }
-            Pixel.waitToFinish();
+            PixelFrame frame = pixelFrame(nX, nY);
+            //goes through every pixel in view plane and casts ray, meaning creates a ray for every pixel and sets the color
+            //without threads the tiles are rendered by this thread
+            TileScheduler scheduler = new TileScheduler(nX, nY, tileSize, tileOrder);
+            if (rayPackets)
+                scheduler.render(threads, (column, row, columns, rows) -> castRays(frame, column, row, columns, rows),
+                        printInterval);
+            else
+                scheduler.render(threads, (column, row) -> castRay(frame, column, row), printInterval);
             return imageWriter;
         }
         //if one of the resources was not set
@@ -306,27 +337,164 @@ public class Camera {
             throw new UnsupportedOperationException("renderImage - value not set yet" + e.getKey());
         }
     }
+
+    /**
+     * Renders the image asynchronously on virtual threads (see {@link TileScheduler}), with at most the
+     * set amount of threads (or all the cores if not set) rendering at the same time
+     *
+     * @return future of the image writer, cancelling it stops the render
+     * @throws MissingResourceException if not all fields are initialized
+     */
+    public CompletableFuture<ImageWriter> renderImageAsync() throws MissingResourceException {
+        return renderImageAsync(new Semaphore(threads < 1 ? Runtime.getRuntime().availableProcessors() : threads), null);
+    }
+
+    /**
+     * Renders the image asynchronously on virtual threads (see {@link TileScheduler})
+     *
+     * @param permits bounds the amount of tiles rendered at the same time, may be shared by several renders
+     * @param timeout the render deadline, null if there is none
+     * @return future of the image writer, cancelling it stops the render; it completes exceptionally with a
+     * {@link java.util.concurrent.TimeoutException} if the deadline passes first
+     * @throws MissingResourceException if not all fields are initialized
+     */
+    public CompletableFuture<ImageWriter> renderImageAsync(Semaphore permits, Duration timeout)
+            throws MissingResourceException {
+        if (this.position == null ||
+            this.vTo == null ||
+            this.vUp == null ||
+            this.vRight == null ||
+            this.height <= 0 ||
+            this.width <= 0 ||
+            this.distance <= 0 ||
+            this.imageWriter == null ||
+            this.rayTracer == null)
+            throw new MissingResourceException("Missing resources", "Camera", "");
+
+        int nY = imageWriter.getNy();
+        int nX = imageWriter.getNx();
+        PixelFrame frame = pixelFrame(nX, nY);
+        TileScheduler scheduler = new TileScheduler(nX, nY, tileSize, tileOrder);
+        CompletableFuture<Void> render = rayPackets
+                ? scheduler.renderAsync(permits,
+                (column, row, columns, rows) -> castRays(frame, column, row, columns, rows), timeout)
+                : scheduler.renderAsync(permits, (column, row) -> castRay(frame, column, row), timeout);
+        CompletableFuture<ImageWriter> result = render.thenApply(ignore -> imageWriter);
+        // cancelling the image future cancels the render itself
+        result.whenComplete((ignore, e) -> render.cancel(false));
+        return result;
+    }
+
     /**
      * Casts a ray from the camera through a pixel in the image, and writes the color of the intersection point to the
      * corresponding pixel in the image.
      *
-     * @param nX     the number of pixels in the x-direction of the image
-     * @param nY     the number of pixels in the y-direction of the image
+     * @param frame  the pixel geometry of the render
      * @param column the column number of the pixel to cast the ray through
      * @param row    the row number of the pixel to cast the ray through
-     * @throws MissingResourceException if the imageWriter or rayTracerBase have not been set
      */
-    private Color castRay(int nX, int nY, int column, int row) {
+    private Color castRay(PixelFrame frame, int column, int row) {
 
-        //create the ray
-        Ray ray = constructRay2(nX, nY, row, column);
+        //create the ray through the pixel center
+        Ray ray = frame.ray(position, column + 0.5, row + 0.5);
         //calculates the color of pixel in ray using traceRay method from Class TraceRay
         Color pixelColor = rayTracer.traceRay(ray);
         //writes the color of the pixel to image
-        imageWriter.writePixel(row, column, pixelColor);
+        imageWriter.writePixel(column, row, pixelColor);
         return pixelColor;
     }
 
+    /**
+     * Casts the rays through a block of pixels and writes their colors; the rays of every square of
+     * {@link #PACKET_SIDE} x {@link #PACKET_SIDE} pixels are listed together, so the tracer gets them as a packet
+     *
+     * @param frame   the pixel geometry of the render
+     * @param column0 the first column of the block
+     * @param row0    the first row of the block
+     * @param columns amount of columns
+     * @param rows    amount of rows
+     */
+    private void castRays(PixelFrame frame, int column0, int row0, int columns, int rows) {
+        int columnEnd = column0 + columns;
+        int rowEnd = row0 + rows;
+        Ray[] rays = new Ray[columns * rows];
+        int n = 0;
+        for (int square = column0; square < columnEnd; square += PACKET_SIDE)
+            for (int row = row0; row < rowEnd; ++row)
+                for (int column = square; column < Math.min(square + PACKET_SIDE, columnEnd); ++column)
+                    rays[n++] = frame.ray(position, column + 0.5, row + 0.5);
+
+        Color[] colors = new Color[n];
+        rayTracer.traceRays(rays, n, colors);
+        n = 0;
+        for (int square = column0; square < columnEnd; square += PACKET_SIDE)
+            for (int row = row0; row < rowEnd; ++row)
+                for (int column = square; column < Math.min(square + PACKET_SIDE, columnEnd); ++column)
+                    imageWriter.writePixel(column, row, colors[n++]);
+    }
+
+    /**
+     * Get the View Plane center, computing it if the camera moved since the last call
+     *
+     * @return the View Plane center
+     */
+    private Point getViewPlaneCenter() {
+        Point center = this.viewPlaneCenter;
+        if (center == null) {
+            center = this.position.add(this.vTo.scale(this.distance));
+            this.viewPlaneCenter = center;
+        }
+        return center;
+    }
+
+    /**
+     * Pixel geometry of a render, in plain doubles: the vector from the camera to the top left corner of the
+     * View Plane, and the steps of one pixel rightwards and downwards
+     * <p>
+     * A sample at image coordinates (x, y) (in pixels, from the top left corner) is traced in the direction
+     * {@code corner + x * right + y * down}, so making a primary ray needs no intermediate points or vectors.
+     */
+    private record PixelFrame(double cornerX, double cornerY, double cornerZ,
+                              double rightX, double rightY, double rightZ,
+                              double downX, double downY, double downZ) {
+        /**
+         * Construct the ray through a point of the image
+         *
+         * @param position the camera position
+         * @param x        image column coordinate in pixels (the pixel center is at column index + 0.5)
+         * @param y        image row coordinate in pixels (the pixel center is at row index + 0.5)
+         * @return the ray
+         */
+        Ray ray(Point position, double x, double y) {
+            return new Ray(position, new Vector(
+                    cornerX + x * rightX + y * downX,
+                    cornerY + x * rightY + y * downY,
+                    cornerZ + x * rightZ + y * downZ));
+        }
+    }
+
+    /**
+     * Compute the pixel geometry of a render
+     *
+     * @param nX amount of columns in the View Plane
+     * @param nY amount of rows in the View Plane
+     * @return the pixel geometry
+     */
+    private PixelFrame pixelFrame(int nX, int nY) {
+        double rX = (double) this.width / nX;
+        double rY = (double) this.height / nY;
+        // from the camera to the View Plane center, then half of the View Plane left and up
+        Vector toCenter = this.vTo.scale(this.distance);
+        double halfWidth = this.width / 2d;
+        double halfHeight = this.height / 2d;
+        return new PixelFrame(
+                toCenter.getX() - halfWidth * vRight.getX() + halfHeight * vUp.getX(),
+                toCenter.getY() - halfWidth * vRight.getY() + halfHeight * vUp.getY(),
+                toCenter.getZ() - halfWidth * vRight.getZ() + halfHeight * vUp.getZ(),
+                rX * vRight.getX(), rX * vRight.getY(), rX * vRight.getZ(),
+                -rY * vUp.getX(), -rY * vUp.getY(), -rY * vUp.getZ());
+    }
+
     /**
      * Renders the image
      *
@@ -347,20 +515,158 @@ public class Camera {
         int nx = this.imageWriter.getNx();
         int ny = this.imageWriter.getNy();
 
-        IntStream.range(0, ny).parallel().forEach(i -> {
-            IntStream.range(0, nx).parallel().forEach(j -> {
-                List<Ray> rays = constructRay(nx, ny, j, i);
-                Color color = Color.BLACK;
-                for (Ray ray : rays)
-                    color = color.add(this.rayTracer.traceRay(ray));
+        int cores = threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
+        TileScheduler scheduler = new TileScheduler(nx, ny, tileSize, tileOrder);
+        //if adaptive anti aliasing is used
+        if (this.antiAliasing.isAdaptive()) {
+            // the pixel corners are shared by the neighbour pixels, so each one is traced once
+            BlockBorders borders = new BlockBorders(nx);
+            scheduler.render(cores, (column0, row0, columns, rows) ->
+                    adaptiveBlock(nx, ny, column0, row0, columns, rows, borders), printInterval);
+            return this;
+        }
 
-                this.imageWriter.writePixel(j, i, color.reduce(rays.size()));
-            });
-        });
+        // the samples are streamed from the pattern offsets - no ray lists or intermediate points per pixel
+        PixelFrame frame = pixelFrame(nx, ny);
+        int samples = this.antiAliasing.getSampleCount();
+        ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[2 * samples]);
+        ThreadLocal<Ray[]> rayBuffers = ThreadLocal.withInitial(() -> new Ray[samples]);
+        ThreadLocal<Color[]> colorBuffers = ThreadLocal.withInitial(() -> new Color[samples]);
+        scheduler.render(cores, (j, i) -> {
+            double[] offsets = this.antiAliasing.getOffsets(j, i, buffers.get());
+            Color color = Color.BLACK;
+            if (this.rayPackets) {
+                // the samples of a pixel are traced together, in the packet arrays of the thread
+                Ray[] rays = rayBuffers.get();
+                for (int k = 0; k < offsets.length; k += 2)
+                    rays[k / 2] = frame.ray(this.position, j + 0.5 + offsets[k], i + 0.5 + offsets[k + 1]);
+                Color[] colors = colorBuffers.get();
+                this.rayTracer.traceRays(rays, samples, colors);
+                for (Color sample : colors)
+                    color = color.add(sample);
+            } else
+                for (int k = 0; k < offsets.length; k += 2)
+                    color = color.add(this.rayTracer.traceRay(
+                            frame.ray(this.position, j + 0.5 + offsets[k], i + 0.5 + offsets[k + 1])));
+
+            this.imageWriter.writePixel(j, i, color.reduce(samples));
+        }, printInterval);
 
         return this;
     }
 
+    /**
+     * Samples a block of pixels adaptively and writes their colors - the corners of the block's pixels are
+     * kept in an array of the block, and the ones on its borders are passed to and from the neighbour blocks
+     *
+     * @param nX      amount of columns in the View Plane
+     * @param nY      amount of rows in the View Plane
+     * @param column0 the first column of the block
+     * @param row0    the first row of the block
+     * @param columns amount of columns
+     * @param rows    amount of rows
+     * @param borders the borders left by the neighbour blocks
+     */
+    private void adaptiveBlock(int nX, int nY, int column0, int row0, int columns, int rows, BlockBorders borders) {
+        int columnEnd = column0 + columns;
+        int rowEnd = row0 + rows;
+        Color[] corners = new Color[(columns + 1) * (rows + 1)];
+        // the borders with the other blocks - top, bottom, left and right - taken from them if they are done;
+        // a border starts at a corner of the array and steps along a row or a column of it
+        boolean[] horizontal = {true, true, false, false};
+        int[] xs = {column0, column0, column0, columnEnd};
+        int[] ys = {row0, rowEnd, row0, row0};
+        int[] starts = {0, rows * (columns + 1), 0, columns};
+        boolean[] shared = {row0 > 0, rowEnd < nY, column0 > 0, columnEnd < nX};
+        boolean[] taken = new boolean[4];
+        for (int b = 0; b < 4; ++b) {
+            int length = horizontal[b] ? columns + 1 : rows + 1;
+            int step = horizontal[b] ? 1 : columns + 1;
+            Color[] border = shared[b] ? borders.take(horizontal[b], xs[b], ys[b], length) : null;
+            taken[b] = border != null;
+            for (int k = 0; taken[b] && k < length; ++k)
+                corners[starts[b] + k * step] = border[k];
+        }
+
+        for (int i = row0; i < rowEnd; ++i)
+            for (int j = column0; j < columnEnd; ++j)
+                this.imageWriter.writePixel(j, i, adaptivePixel(nX, nY, j, i, corners, column0, row0, columns));
+
+        for (int b = 0; b < 4; ++b)
+            if (shared[b] && !taken[b]) {
+                Color[] border = new Color[horizontal[b] ? columns + 1 : rows + 1];
+                int step = horizontal[b] ? 1 : columns + 1;
+                for (int k = 0; k < border.length; ++k)
+                    border[k] = corners[starts[b] + k * step];
+                borders.leave(horizontal[b], xs[b], ys[b], border);
+            }
+    }
+
+    /**
+     * Samples a pixel adaptively (see {@link SuperSampling#sampleAdaptive})
+     *
+     * @param nX      amount of columns in the View Plane
+     * @param nY      amount of rows in the View Plane
+     * @param j       pixel column index
+     * @param i       pixel row index
+     * @param corners colors of the corners of the block's pixels traced so far, (columns + 1) per row
+     * @param column0 the first column of the block
+     * @param row0    the first row of the block
+     * @param columns amount of columns of the block
+     * @return the pixel color
+     */
+    private Color adaptivePixel(int nX, int nY, int j, int i, Color[] corners, int column0, int row0, int columns) {
+        double rX = (double) this.width / nX;
+        double rY = (double) this.height / nY;
+        Point center = getViewPlaneCenter();
+        int index = (i - row0) * (columns + 1) + j - column0;
+        Color[] pixelCorners = {
+                corner(nX, nY, j, i, rX, rY, center, corners, index),
+                corner(nX, nY, j + 1, i, rX, rY, center, corners, index + 1),
+                corner(nX, nY, j, i + 1, rX, rY, center, corners, index + columns + 1),
+                corner(nX, nY, j + 1, i + 1, rX, rY, center, corners, index + columns + 2)};
+
+        double xJ = (j - (nX - 1) / 2d) * rX;
+        double yI = -(i - (nY - 1) / 2d) * rY;
+        if (xJ != 0)
+            center = center.add(this.vRight.scale(xJ));
+        if (yI != 0)
+            center = center.add(this.vUp.scale(yI));
+        return this.antiAliasing.sampleAdaptive(center, rX, rY, this.vUp, this.vRight, pixelCorners,
+                point -> this.rayTracer.traceRay(new Ray(this.position, point.subtract(this.position))));
+    }
+
+    /**
+     * Get the color of a pixel corner, tracing it if no neighbour pixel did yet
+     *
+     * @param nX              amount of columns in the View Plane
+     * @param nY              amount of rows in the View Plane
+     * @param x               corner column index (0 to nX)
+     * @param y               corner row index (0 to nY)
+     * @param rX              pixel width
+     * @param rY              pixel height
+     * @param viewPlaneCenter the View Plane center
+     * @param corners         colors of the pixel corners traced so far
+     * @param index           index of the corner in the array
+     * @return the corner color
+     */
+    private Color corner(int nX, int nY, int x, int y, double rX, double rY, Point viewPlaneCenter, Color[] corners,
+                         int index) {
+        Color color = corners[index];
+        if (color == null) {
+            Point point = viewPlaneCenter;
+            double xJ = (x - nX / 2d) * rX;
+            double yI = -(y - nY / 2d) * rY;
+            if (xJ != 0)
+                point = point.add(this.vRight.scale(xJ));
+            if (yI != 0)
+                point = point.add(this.vUp.scale(yI));
+            color = this.rayTracer.traceRay(new Ray(this.position, point.subtract(this.position)));
+            corners[index] = color;
+        }
+        return color;
+    }
+
     /**
      * Draws the grid into the image with the provided color
      *
@@ -395,6 +701,18 @@ public class Camera {
         this.imageWriter.writeToImage();
     }
 
+    /**
+     * Writes the linear, unclamped image to an HDR (PFM) file
+     *
+     * @throws MissingResourceException if the Image Writer field is uninitialized
+     */
+    public void writeToHdr() throws MissingResourceException {
+        if (this.imageWriter == null)
+            throw new MissingResourceException("Missing ImageWriter", "Camera", "");
+
+        this.imageWriter.writeToHdr();
+    }
+
     /**
      * Moves the camera by a Vector
      *
@@ -403,6 +721,7 @@ public class Camera {
      */
     public Camera moveCamera(Vector moveDirection) {
         this.position = this.position.add(moveDirection);
+        this.viewPlaneCenter = null;
         return this;
     }
 
@@ -414,6 +733,7 @@ public class Camera {
      */
     public Camera moveCamera(Point newPosition) {
         this.position = newPosition;
+        this.viewPlaneCenter = null;
         return this;
     }
 
@@ -437,6 +757,7 @@ public class Camera {
      */
     public Camera rotateY(double angle) {
         this.vTo = this.vTo.rotateY(angle);
+        this.viewPlaneCenter = null;
         this.vUp = this.vUp.rotateY(angle);
         return this;
     }
@@ -449,6 +770,7 @@ public class Camera {
      */
     public Camera rotateZ(double angle) {
         this.vTo = this.vTo.rotateZ(angle);
+        this.viewPlaneCenter = null;
         this.vRight = this.vRight.rotateZ(angle);
         return this;
     }
@@ -462,4 +784,52 @@ public class Camera {
         this.threads = threads;
         return this;
     }
+
+    /**
+     * Set the tile size of the render scheduler
+     *
+     * @param tileSize tile width and height in pixels
+     * @return the updated Camera object
+     * @throws IllegalArgumentException if the tile size is not positive
+     */
+    public Camera setTileSize(int tileSize) {
+        if (tileSize < 1)
+            throw new IllegalArgumentException("tile size must be positive");
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * Set the order the tiles are rendered in
+     *
+     * @param tileOrder the tile order
+     * @return the updated Camera object
+     */
+    public Camera setTileOrder(TileScheduler.TileOrder tileOrder) {
+        this.tileOrder = tileOrder;
+        return this;
+    }
+
+    /**
+     * Set the progress print interval
+     *
+     * @param printInterval interval in seconds, 0 if printing is not required
+     * @return the updated Camera object
+     */
+    public Camera setPrintInterval(double printInterval) {
+        this.printInterval = printInterval;
+        return this;
+    }
+
+    /**
+     * Set whether the primary rays of neighbouring pixels (or the samples of a pixel) are traced together
+     * in packets (see {@link RayTracerBase#traceRays(Ray[], int, Color[])}), which is the default
+     *
+     * @param rayPackets true to trace packets, false to trace every ray on its own
+     * @return the updated Camera object
+     */
+    public Camera setRayPackets(boolean rayPackets) {
+        this.rayPackets = rayPackets;
+        return this;
+    }
 }
@@ -0,0 +1,45 @@
+package renderer;
+
+/**
+ * Cranley-Patterson rotation of another pattern: all the samples of a pixel are shifted by the same
+ * random amount, wrapping around the pixel edges
+ * <p>
+ * The shift keeps the spacing of the samples (on the pixel torus) and decorrelates the pixels of
+ * patterns that are the same in every pixel, like {@link HaltonPattern}.
+ */
+public class CranleyPattersonPattern implements SamplePattern {
+    private final SamplePattern pattern;
+    private final long seed;
+
+    /**
+     * Constructs the rotated pattern
+     *
+     * @param pattern the pattern to rotate
+     * @param seed    seed of the shifts
+     */
+    public CranleyPattersonPattern(SamplePattern pattern, long seed) {
+        this.pattern = pattern;
+        this.seed = seed;
+    }
+
+    @Override
+    public void fill(double[] offsets, int column, int row) {
+        pattern.fill(offsets, column, row);
+        double shiftX = SamplePattern.random(seed, column, row, 0);
+        double shiftY = SamplePattern.random(seed, column, row, 1);
+        for (int k = 0; k < offsets.length; k += 2) {
+            offsets[k] = wrap(offsets[k] + shiftX);
+            offsets[k + 1] = wrap(offsets[k + 1] + shiftY);
+        }
+    }
+
+    /**
+     * Wrap an offset back into the pixel
+     *
+     * @param offset offset in the range [-0.5, 1.5)
+     * @return the offset in the range [-0.5, 0.5)
+     */
+    private static double wrap(double offset) {
+        return offset >= 0.5 ? offset - 1 : offset;
+    }
+}
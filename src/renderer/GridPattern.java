@@ -0,0 +1,18 @@
+package renderer;
+
+/**
+ * Regular grid of samples - the centers of the cells of a square grid, row by row from the bottom row up
+ * <p>
+ * The pattern is the same in every pixel, so regular image features may still alias.
+ */
+public class GridPattern implements SamplePattern {
+    @Override
+    public void fill(double[] offsets, int column, int row) {
+        int count = offsets.length / 2;
+        int n = SamplePattern.gridSide(count);
+        for (int k = 0; k < count; ++k) {
+            offsets[2 * k] = (k % n + 0.5) / n - 0.5;
+            offsets[2 * k + 1] = 0.5 - (k / n + 0.5) / n;
+        }
+    }
+}
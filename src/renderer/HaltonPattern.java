@@ -0,0 +1,44 @@
+package renderer;
+
+/**
+ * Low discrepancy samples - the first points of the Halton sequence in bases 2 and 3
+ * <p>
+ * Any prefix of the sequence is well spread, so the amount of samples needn't be a square.
+ * The points are the same in every pixel; wrap the pattern in a {@link CranleyPattersonPattern}
+ * to decorrelate the pixels.
+ */
+public class HaltonPattern implements SamplePattern {
+    // the offsets of the last amount of samples asked for
+    private volatile double[] cache = new double[0];
+
+    @Override
+    public void fill(double[] offsets, int column, int row) {
+        double[] points = cache;
+        if (points.length != offsets.length) {
+            points = new double[offsets.length];
+            for (int k = 0; k < points.length / 2; ++k) {
+                points[2 * k] = radicalInverse(k + 1, 2) - 0.5;
+                points[2 * k + 1] = radicalInverse(k + 1, 3) - 0.5;
+            }
+            cache = points;
+        }
+        System.arraycopy(points, 0, offsets, 0, offsets.length);
+    }
+
+    /**
+     * Mirror the digits of a number around the radix point
+     *
+     * @param index the number
+     * @param base  the digits base
+     * @return the mirrored number, in the range [0, 1)
+     */
+    static double radicalInverse(int index, int base) {
+        double result = 0;
+        double digit = 1d / base;
+        for (int i = index; i > 0; i /= base) {
+            result += i % base * digit;
+            digit /= base;
+        }
+        return result;
+    }
+}
@@ -1,21 +1,35 @@
 package renderer;
 
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.imageio.ImageIO;
-
 import primitives.Color;
+import primitives.Double3;
 
 /** Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible of holding image related parameters of View Plane - pixel matrix
  * size and resolution
+ * <p>
+ * The pixels are accumulated in linear, unclamped RGB floats - a plain array that
+ * render threads write to without locks (every thread writes its own pixels). They
+ * are clamped and converted to 8 bits in one pass over the array when the image is
+ * written.
+ * <p>
+ * For images too big for the memory (gigapixel posters) the pixels may be kept in
+ * a memory-mapped file instead of the array: the operating system writes the
+ * rendered pages out and evicts them, and the image files are written from the
+ * mapped file row by row, so the memory doesn't depend on the image size. Such a
+ * writer is closed when the image is done, to release the file.
  * @author Dan */
-public class ImageWriter {
+public class ImageWriter implements AutoCloseable {
    /** Horizontal resolution of the image - number of pixels in row */
    private int                 nX;
    /** Vertical resolution of the image - number of pixels in column */
@@ -25,8 +39,22 @@ public class ImageWriter {
     * directory */
    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
-   /** Image generation buffer (the matrix of the pixels) */
-   private BufferedImage       image;
+   /** Most bytes of the framebuffer file mapped together (a mapping is limited to
+    * 2GB) */
+   private static final int    BAND_SIZE   = 1 << 30;
+
+   /** Image generation buffer (the matrix of the pixels) - red, green and blue per
+    * pixel, row by row (null when the pixels are in a file) */
+   private final float[]       pixels;
+   /** The framebuffer file mapped in bands of rows (null when the pixels are in
+    * the array, or after {@link #close()}) */
+   private FloatBuffer[]       bands;
+   /** The mappings the bands view, flushed to the file on {@link #close()} */
+   private MappedByteBuffer[]  mappings;
+   /** The framebuffer file (null when the pixels are in the array) */
+   private FileChannel         channel;
+   /** Amount of rows in a band of the framebuffer file */
+   private final int           bandRows;
    /** image file name, not including the file extension '.png' */
    private String              imageName;
    /** logger for reporting I/O failures */
@@ -42,7 +70,45 @@ public class ImageWriter {
       this.nX        = nX;
       this.nY        = nY;
 
-      image          = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+      pixels         = new float[Math.multiplyExact(3 * nX, nY)];
+      bandRows       = 0;
+   }
+
+   /** Image Writer constructor keeping the pixels in a memory-mapped file rather
+    * than in memory, for images that don't fit in the memory. The file holds the
+    * red, green and blue floats of the pixels row by row (in the platform byte
+    * order, without a header) and is left in place when the image is written. An
+    * existing file is emptied, so no pixels of an earlier render are left in it
+    * @param  imageName   the name of png file
+    * @param  nX          amount of pixels by Width
+    * @param  nY          amount of pixels by height
+    * @param  framebuffer the file to keep the pixels in - created if missing
+    * @throws IllegalStateException if the file can't be mapped */
+   public ImageWriter(String imageName, int nX, int nY, Path framebuffer) {
+      this.imageName = imageName;
+      this.nX        = nX;
+      this.nY        = nY;
+
+      pixels         = null;
+      long rowSize = 3L * Float.BYTES * nX;
+      bandRows = (int) Math.max(1, BAND_SIZE / rowSize);
+      bands    = new FloatBuffer[(nY + bandRows - 1) / bandRows];
+      mappings = new MappedByteBuffer[bands.length];
+      try {
+         // the file is emptied, and mapping past the end grows it to the image size
+         // with zeros - the pages are allocated when written
+         channel = FileChannel.open(framebuffer, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+         for (int band = 0; band < bands.length; ++band) {
+            long rows = Math.min(bandRows, nY - (long) band * bandRows);
+            mappings[band] = channel.map(FileChannel.MapMode.READ_WRITE, band * bandRows * rowSize, rows * rowSize);
+            bands[band]    = mappings[band].order(ByteOrder.nativeOrder()).asFloatBuffer();
+         }
+      } catch (IOException e) {
+         release();
+         logger.log(Level.SEVERE, "I/O error", e);
+         throw new IllegalStateException("I/O error - can't map the framebuffer " + framebuffer, e);
+      }
    }
 
    // ***************** Getters/Setters ********************** //
@@ -56,13 +122,30 @@ public class ImageWriter {
 
    // ***************** Operations ******************** //
 
-   /** Function writeToImage produces unoptimized png file of the image according
-    * to
-    * pixel color matrix in the directory of the project */
+   /** Function writeToImage produces a png file of the image according to pixel
+    * color matrix in the directory of the project - strips of the image are
+    * compressed in parallel */
    public void writeToImage() {
+      ThreadLocal<float[]> rows = ThreadLocal.withInitial(() -> new float[3 * nX]);
       try {
-         File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-         ImageIO.write(image, "png", file);
+         PngEncoder.write(Path.of(FOLDER_PATH, imageName + ".png"), nX, nY, (row, rgb, offset) -> {
+            float[] values = rows.get();
+            readRow(row, values);
+            for (int i = 0; i < values.length; ++i)
+               rgb[offset + i] = (byte) channel(values[i]);
+         });
+      } catch (IOException e) {
+         logger.log(Level.SEVERE, "I/O error", e);
+         throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+      }
+   }
+
+   /** Function writeToHdr produces an uncompressed float (PFM) file of the linear,
+    * unclamped pixel colors in the directory of the project - the color 255 is
+    * written as 1 */
+   public void writeToHdr() {
+      try {
+         PfmEncoder.write(Path.of(FOLDER_PATH, imageName + ".pfm"), nX, nY, this::readRow, 1f / 255);
       } catch (IOException e) {
          logger.log(Level.SEVERE, "I/O error", e);
          throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
@@ -75,7 +158,77 @@ public class ImageWriter {
     * @param yIndex Y axis index of the pixel
     * @param color  final color of the pixel */
    public void writePixel(int xIndex, int yIndex, Color color) {
-      image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+      Double3 rgb = color.getRgb();
+      if (pixels != null) {
+         int k         = 3 * (yIndex * nX + xIndex);
+         pixels[k]     = (float) rgb.d1();
+         pixels[k + 1] = (float) rgb.d2();
+         pixels[k + 2] = (float) rgb.d3();
+      } else {
+         // absolute puts don't move the buffer position, so render threads share the band
+         FloatBuffer band = band(yIndex);
+         int         k    = 3 * ((yIndex % bandRows) * nX + xIndex);
+         band.put(k, (float) rgb.d1());
+         band.put(k + 1, (float) rgb.d2());
+         band.put(k + 2, (float) rgb.d3());
+      }
+   }
+
+   /** Read the red, green and blue floats of a row of pixels
+    * @param row the row index
+    * @param rgb the array to fill - 3 floats per pixel */
+   private void readRow(int row, float[] rgb) {
+      if (pixels != null)
+         System.arraycopy(pixels, 3 * row * nX, rgb, 0, 3 * nX);
+      else
+         band(row).get(3 * (row % bandRows) * nX, rgb, 0, 3 * nX);
+   }
+
+   /** Find the band of the framebuffer file that holds a row
+    * @param  row                   the row index
+    * @return                       the band
+    * @throws IllegalStateException if the writer is closed */
+   private FloatBuffer band(int row) {
+      FloatBuffer[] mapped = bands;
+      if (mapped == null)
+         throw new IllegalStateException("The framebuffer is closed");
+      return mapped[row / bandRows];
+   }
+
+   /** Release the framebuffer file - the pixels are flushed to it, the mappings
+    * are dropped (the memory is unmapped once they are collected) and the file is
+    * closed. The pixels can't be written or read afterwards. Nothing happens for
+    * pixels kept in memory, or if the writer is closed already */
+   @Override
+   public void close() {
+      release();
+   }
+
+   /** Release the framebuffer file (see {@link #close()}) - also when the
+    * constructor fails to map it */
+   private void release() {
+      if (mappings != null)
+         for (MappedByteBuffer mapping : mappings)
+            if (mapping != null)
+               mapping.force();
+      bands    = null;
+      mappings = null;
+      if (channel == null)
+         return;
+      try {
+         channel.close();
+      } catch (IOException e) {
+         logger.log(Level.WARNING, "I/O error - can't close the framebuffer", e);
+      } finally {
+         channel = null;
+      }
+   }
+
+   /** Convert a linear color component to 8 bits, as {@link Color#getColor()} does
+    * @param  value the component
+    * @return       the component cut to 0..255 */
+   private static int channel(float value) {
+      return Math.min((int) value, 255);
    }
 
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package renderer;
+
+/**
+ * Stratified (jittered) samples - one sample at a random position inside every cell of a square grid
+ * <p>
+ * The strata keep the samples spread like the grid does, while the jitter turns aliasing into noise.
+ */
+public class JitteredPattern implements SamplePattern {
+    private final long seed;
+
+    /**
+     * Constructs the pattern
+     *
+     * @param seed seed of the random positions
+     */
+    public JitteredPattern(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void fill(double[] offsets, int column, int row) {
+        int count = offsets.length / 2;
+        int n = SamplePattern.gridSide(count);
+        for (int k = 0; k < count; ++k) {
+            offsets[2 * k] = (k % n + SamplePattern.random(seed, column, row, 2 * k)) / n - 0.5;
+            offsets[2 * k + 1] = (k / n + SamplePattern.random(seed, column, row, 2 * k + 1)) / n - 0.5;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Portable float map (PFM) encoder - uncompressed linear RGB floats, for HDR compositing
+ * <p>
+ * The format is a short text header ("PF", the size, and a negative scale for little endian data)
+ * followed by the rows as raw floats, bottom row first.
+ */
+final class PfmEncoder {
+    // rows are copied through a direct buffer of this size (about)
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Source of the image rows
+     */
+    @FunctionalInterface
+    interface RowSource {
+        /**
+         * Fill the red, green and blue floats of a row
+         *
+         * @param row the row, from the top
+         * @param rgb the array to fill
+         */
+        void row(int row, float[] rgb);
+    }
+
+    private PfmEncoder() {
+    }
+
+    /**
+     * Write a linear RGB image
+     *
+     * @param path   the file
+     * @param width  amount of pixels in a row
+     * @param height amount of rows
+     * @param rows   the source of the rows
+     * @param scale  the factor of the values in the file
+     * @throws IOException if the file can't be written
+     */
+    static void write(Path path, int width, int height, RowSource rows, float scale) throws IOException {
+        int rowSize = 3 * width;
+        float[] rgb = new float[rowSize];
+        int rowsPerBuffer = Math.max(1, BUFFER_SIZE / (rowSize * Float.BYTES));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rowsPerBuffer * rowSize * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        FloatBuffer floats = buffer.asFloatBuffer();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, ByteBuffer.wrap(("PF\n" + width + " " + height + "\n-1.0\n")
+                    .getBytes(StandardCharsets.US_ASCII)));
+            for (int row = height - 1; row >= 0; ) {
+                floats.clear();
+                int count = 0;
+                for (; count < rowsPerBuffer && row >= 0; ++count, --row) {
+                    rows.row(row, rgb);
+                    for (float value : rgb)
+                        floats.put(value * scale);
+                }
+                write(channel, buffer.clear().limit(count * rowSize * Float.BYTES));
+            }
+        }
+    }
+
+    /**
+     * Write all the buffer content
+     *
+     * @param channel the file
+     * @param buffer  the buffer
+     * @throws IOException if the file can't be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -0,0 +1,247 @@
+package renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG encoder that filters and compresses strips of rows in parallel
+ * <p>
+ * The image rows are cut into strips, and every strip is filtered and deflated on its own thread.
+ * A strip is primed with the last 32KB before it as the deflate dictionary and ends with a sync
+ * flush, so the compressed strips join into one zlib stream that compresses almost as well as a
+ * single deflate. Every strip is written as its own IDAT chunk.
+ * <p>
+ * The rows are pulled from a {@link RowSource} a batch of strips at a time and the batch is written
+ * before the next one is read, so the memory depends on the image width only.
+ */
+final class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    // the deflate window - the dictionary a strip is primed with
+    private static final int WINDOW = 1 << 15;
+    // raw bytes of a strip (about)
+    private static final int STRIP_SIZE = 1 << 18;
+    // the zlib level ImageIO uses too - a good balance of speed and size
+    private static final int LEVEL = 4;
+
+    /**
+     * Source of the image rows
+     */
+    @FunctionalInterface
+    interface RowSource {
+        /**
+         * Fill the 8 bit red, green and blue bytes of a row - called from several threads together
+         *
+         * @param row    the row, from the top
+         * @param rgb    the array to fill
+         * @param offset where the row starts in the array
+         */
+        void row(int row, byte[] rgb, int offset);
+    }
+
+    private PngEncoder() {
+    }
+
+    /**
+     * Write an 8 bit RGB image
+     *
+     * @param path   the file
+     * @param width  amount of pixels in a row
+     * @param height amount of rows
+     * @param rows   the source of the rows
+     * @throws IOException if the file can't be written
+     */
+    static void write(Path path, int width, int height, RowSource rows) throws IOException {
+        int rowSize = 3 * width;
+        int lineSize = rowSize + 1;
+        int rowsPerStrip = Math.max(1, STRIP_SIZE / lineSize);
+        int batchRows = rowsPerStrip * 2 * Runtime.getRuntime().availableProcessors();
+
+        // the raw rows of a batch after the last row of the batch before (for the up filters),
+        // and the filtered lines of a batch after the window before (for the dictionary)
+        byte[] raw = new byte[Math.multiplyExact(batchRows + 1, rowSize)];
+        byte[] lines = new byte[Math.addExact(WINDOW, Math.multiplyExact(batchRows, lineSize))];
+        int dictionary = 0;
+        Adler32 adler = new Adler32();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, ByteBuffer.wrap(SIGNATURE));
+            ByteBuffer header = ByteBuffer.allocate(13)
+                    .putInt(width).putInt(height)
+                    // 8 bits, RGB, deflate, adaptive filtering, no interlace
+                    .put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0);
+            writeChunk(channel, "IHDR", header.array());
+            // the zlib header: deflate with a 32KB window, no dictionary, default level
+            writeChunk(channel, "IDAT", new byte[]{0x78, (byte) 0x9C});
+
+            for (int first = 0; first < height; first += batchRows) {
+                int start = first;
+                int count = Math.min(batchRows, height - first);
+                IntStream.range(0, count).parallel()
+                        .forEach(i -> rows.row(start + i, raw, (i + 1) * rowSize));
+                int base = dictionary;
+                IntStream.range(0, count).parallel()
+                        .forEach(i -> filter(raw, i + 1, rowSize, start + i > 0, lines, base + i * lineSize));
+
+                int strips = (count + rowsPerStrip - 1) / rowsPerStrip;
+                boolean lastBatch = first + count == height;
+                byte[][] chunks = new byte[strips][];
+                IntStream.range(0, strips).parallel().forEach(strip -> {
+                    int from = base + strip * rowsPerStrip * lineSize;
+                    int to = base + Math.min(count, (strip + 1) * rowsPerStrip) * lineSize;
+                    chunks[strip] = deflate(lines, from, to, from == 0 ? 0 : Math.min(WINDOW, from),
+                            lastBatch && strip == strips - 1);
+                });
+                for (byte[] chunk : chunks)
+                    writeChunk(channel, "IDAT", chunk);
+                int end = base + count * lineSize;
+                adler.update(lines, base, end - base);
+
+                // keep the last row and the last window for the next batch
+                System.arraycopy(raw, count * rowSize, raw, 0, rowSize);
+                dictionary = Math.min(WINDOW, end);
+                System.arraycopy(lines, end - dictionary, lines, 0, dictionary);
+            }
+
+            writeChunk(channel, "IDAT", ByteBuffer.allocate(4).putInt((int) adler.getValue()).array());
+            writeChunk(channel, "IEND", new byte[0]);
+        }
+    }
+
+    /**
+     * Filter a row with the filter that leaves the smallest differences (the usual PNG heuristic)
+     *
+     * @param raw      the raw rows
+     * @param row      the row in the raw rows
+     * @param rowSize  bytes in a row
+     * @param hasAbove false for the first row of the image
+     * @param lines    the filtered lines to fill
+     * @param line     where the filtered line starts
+     */
+    private static void filter(byte[] raw, int row, int rowSize, boolean hasAbove, byte[] lines, int line) {
+        int start = row * rowSize;
+        int above = start - rowSize;
+
+        // one pass prices all the filters: none, sub, up, average and Paeth
+        long[] sums = new long[5];
+        for (int i = 0; i < rowSize; ++i) {
+            int x = raw[start + i] & 0xFF;
+            int a = i >= 3 ? raw[start + i - 3] & 0xFF : 0;
+            int b = hasAbove ? raw[above + i] & 0xFF : 0;
+            int c = hasAbove && i >= 3 ? raw[above + i - 3] & 0xFF : 0;
+            sums[0] += Math.abs((byte) x);
+            sums[1] += Math.abs((byte) (x - a));
+            sums[2] += Math.abs((byte) (x - b));
+            sums[3] += Math.abs((byte) (x - ((a + b) >> 1)));
+            sums[4] += Math.abs((byte) (x - paeth(a, b, c)));
+        }
+        int best = 0;
+        for (int type = 1; type < 5; ++type)
+            if (sums[type] < sums[best])
+                best = type;
+
+        lines[line++] = (byte) best;
+        for (int i = 0; i < rowSize; ++i) {
+            int x = raw[start + i] & 0xFF;
+            int a = i >= 3 ? raw[start + i - 3] & 0xFF : 0;
+            int b = hasAbove ? raw[above + i] & 0xFF : 0;
+            int c = hasAbove && i >= 3 ? raw[above + i - 3] & 0xFF : 0;
+            lines[line + i] = (byte) switch (best) {
+                case 0 -> x;
+                case 1 -> x - a;
+                case 2 -> x - b;
+                case 3 -> x - ((a + b) >> 1);
+                default -> x - paeth(a, b, c);
+            };
+        }
+    }
+
+    /**
+     * The Paeth predictor - the neighbour nearest to the gradient guess {@code a + b - c}
+     *
+     * @param a the byte to the left
+     * @param b the byte above
+     * @param c the byte above to the left
+     * @return the prediction
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /**
+     * Deflate a strip of the lines
+     *
+     * @param lines      the filtered lines
+     * @param start      the strip start
+     * @param end        the strip end (exclusive)
+     * @param dictionary amount of the bytes before the strip to prime the deflater with
+     * @param last       true for the last strip, which ends the stream
+     * @return the raw deflate data of the strip
+     */
+    private static byte[] deflate(byte[] lines, int start, int end, int dictionary, boolean last) {
+        Deflater deflater = new Deflater(LEVEL, true);
+        try {
+            if (dictionary > 0)
+                deflater.setDictionary(lines, start - dictionary, dictionary);
+            deflater.setInput(lines, start, end - start);
+            ByteArrayOutputStream out = new ByteArrayOutputStream((end - start) / 2);
+            byte[] buffer = new byte[1 << 16];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished())
+                    out.write(buffer, 0, deflater.deflate(buffer));
+            } else {
+                // a sync flush ends the strip on a byte boundary, without ending the stream
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Write a chunk - length, type, data and the CRC of the type and data
+     *
+     * @param channel the file
+     * @param type    the chunk type
+     * @param data    the chunk data
+     * @throws IOException if the file can't be written
+     */
+    private static void writeChunk(FileChannel channel, String type, byte[] data) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data);
+        write(channel, ByteBuffer.allocate(8).putInt(data.length).put(name).flip());
+        write(channel, ByteBuffer.wrap(data));
+        write(channel, ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip());
+    }
+
+    /**
+     * Write all the buffer content
+     *
+     * @param channel the file
+     * @param buffer  the buffer
+     * @throws IOException if the file can't be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -27,4 +27,17 @@ public abstract class RayTracerBase {
      * @return
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * trace several rays - neighbouring primary rays, that the tracer may trace together.
+     * By default the rays are traced one by one
+     *
+     * @param rays   the rays
+     * @param count  amount of rays to trace
+     * @param colors gets the color of every ray
+     */
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        for (int i = 0; i < count; ++i)
+            colors[i] = traceRay(rays[i]);
+    }
 }
\ No newline at end of file
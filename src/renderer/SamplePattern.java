@@ -0,0 +1,53 @@
+package renderer;
+
+/**
+ * Positions of the samples inside a pixel
+ * <p>
+ * A pattern fills the offsets of the samples from the pixel center, in pixel units: -0.5 is the left
+ * (top) edge of the pixel and 0.5 is its right (bottom) edge. The pixel coordinates let a pattern vary
+ * from pixel to pixel; patterns must be deterministic and thread safe, so a render looks the same
+ * however its pixels are scheduled.
+ */
+public interface SamplePattern {
+    /**
+     * Fill the sample offsets of a pixel
+     *
+     * @param offsets the offsets rightwards and downwards of each sample, interleaved (right0, down0, right1, ...);
+     *                its length is twice the amount of samples
+     * @param column  pixel column index
+     * @param row     pixel row index
+     */
+    void fill(double[] offsets, int column, int row);
+
+    /**
+     * Pseudo random number that depends only on its arguments
+     *
+     * @param seed   the pattern seed
+     * @param column pixel column index
+     * @param row    pixel row index
+     * @param index  the number index inside the pixel
+     * @return number in the range [0, 1)
+     */
+    static double random(long seed, int column, int row, int index) {
+        long z = seed
+                ^ column * 0x9E3779B97F4A7C15L
+                ^ row * 0xC2B2AE3D27D4EB4FL
+                ^ (index + 1) * 0x165667B19E3779F9L;
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Side of the smallest square grid that holds an amount of samples
+     *
+     * @param count amount of samples
+     * @return the grid side
+     */
+    static int gridSide(int count) {
+        int n = (int) Math.sqrt(count);
+        return n * n < count ? n + 1 : n;
+    }
+}
@@ -3,9 +3,8 @@ package renderer;
 import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
-import geometries.Intersectable.GeoPoint;
-
-import java.util.List;
+import geometries.Intersectable.HitRecord;
+import geometries.RayPacket;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
@@ -14,63 +13,76 @@ public class SimpleRayTrancer extends RayTracerBase {
     private static final int MAX_CALC_COLOR_LEVEL = 10;
     private static final double MIN_CALC_COLOR_K = 0.001;
     private static final Double3 INITIAL_K = Double3.ONE;
+    // the rays traced together - 8 x 8 neighbouring pixels or samples
+    private static final int PACKET_SIZE = 64;
+
+    // the packet of every rendering thread, reused for all its rays
+    private final ThreadLocal<RayPacket> packets = ThreadLocal.withInitial(() -> new RayPacket(PACKET_SIZE));
+    // the hit records of every rendering thread, one per recursion level (a hit is still shaded
+    // while the rays it reflects and refracts are traced), reused for all its rays
+    private final ThreadLocal<HitRecord[]> hits = ThreadLocal.withInitial(() -> {
+        HitRecord[] records = new HitRecord[MAX_CALC_COLOR_LEVEL + 1];
+        for (int level = 0; level < records.length; ++level)
+            records[level] = new HitRecord();
+        return records;
+    });
 
     public SimpleRayTrancer(Scene scene) {
         super(scene);
     }
 
     /**
-     * Finds the color by a given GeoPoint and uses recursion to calculate its global effects
+     * Finds the color by a given hit and uses recursion to calculate its global effects
      *
-     * @param point geo point
+     * @param hit completed hit record
      * @param ray ray
      * @return color
      */
-    private Color calcColor(GeoPoint point, Ray ray, int level, Double3 k) {Color color = calcLocalEffects(point, ray, k);
-        return level == 1 ? color : color.add(calcGlobalEffects(point, ray.getDir(), level, k));
+    private Color calcColor(HitRecord hit, Ray ray, int level, Double3 k) {Color color = calcLocalEffects(hit, ray, k);
+        return level == 1 ? color : color.add(calcGlobalEffects(hit, ray.getDir(), level, k));
     }
 
     /**
-     * Finds the color by a given GeoPoint and uses recursion to calculate its global effects
+     * Finds the color by a given hit and uses recursion to calculate its global effects
      *
-     * @param point geo point
+     * @param hit completed hit record
      * @param ray ray
      * @return color
      */
-    private Color calcColor(GeoPoint point, Ray ray) {
-        return calcColor(point, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K)
+    private Color calcColor(HitRecord hit, Ray ray) {
+        return calcColor(hit, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K)
                 .add(scene.ambientLight.getIntensity());
     }
 
     /**
-     * Calculates the local effect (diffusive and specular) by a given GeoPoint
+     * Calculates the local effect (diffusive and specular) by a given hit
      *
-     * @param point geo point
+     * @param hit completed hit record
      * @param ray ray
      * @return color of the effect
      */
-    private Color calcLocalEffects(GeoPoint point, Ray ray, Double3 k) {
+    private Color calcLocalEffects(HitRecord hit, Ray ray, Double3 k) {
         Vector v = ray.getDir();
-        Vector n = point.geometry.getNormal(point.point);
+        Vector n = hit.normal;
 
         double nv = alignZero(n.dotProduct(v));
         if (isZero(nv))
             return Color.BLACK;
 
-        Material material = point.geometry.getMaterial();
+        Material material = hit.geometry.getMaterial();
         int nShininess = material.nShininess;
         Double3 kd = material.kD;
         Double3 ks = material.kS;
 
-        Color color = point.geometry.getEmission();
+        Color color = hit.geometry.getEmission();
         for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(point.point);
+            Vector l = lightSource.getL(hit.point);
             double nl = alignZero(n.dotProduct(l));
             if (nl * nv > 0) {
-                Double3 ktr = transparency(point, lightSource, l, n);
+                Double3 ktr = transparency(hit.point, lightSource, l, n);
 
                 if (!k.product(ktr).lowerThan(MIN_CALC_COLOR_K)) {
-                    Color lightIntensity = lightSource.getIntensity(point.point).scale(ktr);
+                    Color lightIntensity = lightSource.getIntensity(hit.point).scale(ktr);
                     color = color.add(
                             calcDiffusive(kd, nl, lightIntensity),
                             calcSpecular(ks, nShininess, n, l, nl, v, lightIntensity)
@@ -82,23 +94,23 @@ public class SimpleRayTrancer extends RayTracerBase {
     }
 
     /**
-     * Calculates the additional global effect (reflection and transparency) by a given GeoPoint using recursion
+     * Calculates the additional global effect (reflection and transparency) by a given hit using recursion
      *
-     * @param point geo point
+     * @param hit completed hit record
      * @param dir ray directions
      * @param level level of additional rays
      * @param k initial color
      * @return additional color
      */
-    private Color calcGlobalEffects(GeoPoint point, Vector dir, int level, Double3 k) {
+    private Color calcGlobalEffects(HitRecord hit, Vector dir, int level, Double3 k) {
         Color color = Color.BLACK;
-        Material material = point.geometry.getMaterial();
+        Material material = hit.geometry.getMaterial();
         Double3 ktr = k.product(material.kR);
-        Vector n = point.geometry.getNormal(point.point);
+        Vector n = hit.normal;
 
         if (!ktr.lowerThan(MIN_CALC_COLOR_K))
             color = calcGlobalEffects(
-                    constructReflectedRay(point.point, dir, n),
+                    constructReflectedRay(hit.point, dir, n),
                     level,
                     material.kR,
                     ktr
@@ -107,7 +119,7 @@ public class SimpleRayTrancer extends RayTracerBase {
         Double3 ktt = k.product(material.kT);
         if (!ktt.lowerThan(MIN_CALC_COLOR_K))
             color = color.add(calcGlobalEffects(
-                    new Ray(point.point, dir, n),
+                    new Ray(hit.point, dir, n),
                     level,
                     material.kT,
                     ktt
@@ -127,8 +139,8 @@ public class SimpleRayTrancer extends RayTracerBase {
      * @return additional color
      */
     private Color calcGlobalEffects(Ray ray, int level, Double3 kx, Double3 kxx) {
-        GeoPoint point = findClosestIntersection(ray);
-        return (point != null ? calcColor(point, ray, level - 1, kxx) : scene.background).scale(kx);
+        HitRecord hit = findClosestIntersection(ray, level - 1);
+        return (hit != null ? calcColor(hit, ray, level - 1, kxx) : scene.background).scale(kx);
     }
 
     /**
@@ -157,8 +169,10 @@ public class SimpleRayTrancer extends RayTracerBase {
      */
     private Color calcSpecular(Double3 ks, int nShininess, Vector n, Vector l,
                                double nl, Vector v, Color lightIntensity) {
-        Vector minusR = n.scale(2 * nl).subtract(l);
-        double minusVR = minusR.dotProduct(v);
+        // -r = 2(n*l)n - l, straight from the coordinates
+        double s = 2 * nl;
+        double minusVR = VectorMath.dot(n.getX() * s - l.getX(), n.getY() * s - l.getY(), n.getZ() * s - l.getZ(),
+                v.getX(), v.getY(), v.getZ());
         if (minusVR <= 0)
             return Color.BLACK;
         return lightIntensity.scale(ks.scale(Math.pow(minusVR, nShininess)));
@@ -167,34 +181,21 @@ public class SimpleRayTrancer extends RayTracerBase {
     /**
      * Calculates the transparency of a point
      *
-     * @param point geo point
+     * @param point the lit point
      * @param lightSource light source
      * @param l light direction
      * @param n normal to the geometry
      * @return transparency
      */
-    private Double3 transparency(GeoPoint point, LightSource lightSource, Vector l, Vector n) {
-        Vector lightDirection = l.scale(-1);
-        double lightDistance = lightSource.getDistance(point.point);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(
-                new Ray(point.point, lightDirection, n),
-                lightDistance
+    private Double3 transparency(Point point, LightSource lightSource, Vector l, Vector n) {
+        double lightDistance = lightSource.getDistance(point);
+        // any-hit query - stops at the first occluder that blocks the light
+        return scene.geometries.findTransmittance(
+                new Ray(point, -l.getX(), -l.getY(), -l.getZ(), n.getX(), n.getY(), n.getZ()),
+                lightDistance,
+                Double3.ONE,
+                MIN_CALC_COLOR_K
         );
-
-        if (intersections == null)
-            return Double3.ONE;
-
-        Double3 ktr = Double3.ONE;
-        for (GeoPoint p : intersections) {
-            if (alignZero(p.point.distance(point.point) - lightDistance) <= 0) {
-                ktr = p.geometry.getMaterial().kT.product(ktr);
-
-                if (ktr.lowerThan(MIN_CALC_COLOR_K))
-                    return Double3.ZERO;
-            }
-        }
-
-        return ktr;
     }
 
     /**
@@ -206,24 +207,48 @@ public class SimpleRayTrancer extends RayTracerBase {
      * @return reflected ray
      */
     private Ray constructReflectedRay(Point point, Vector dir, Vector n) {
-        double nv = n.dotProduct(dir);
-        return new Ray(point, dir.subtract(n.scale(2 * nv)), n);
+        // r = v - 2(n*v)n, straight from the coordinates
+        double s = 2 * n.dotProduct(dir);
+        return new Ray(point, dir.getX() - n.getX() * s, dir.getY() - n.getY() * s, dir.getZ() - n.getZ() * s,
+                n.getX(), n.getY(), n.getZ());
     }
 
     /**
-     * Finds the closest geo point of intersection with the ray
+     * Finds the closest intersection with the ray, with its point and normal completed once
      *
-     * @param ray ray
-     * @return geo point
+     * @param ray   ray
+     * @param level the recursion level of the hit - its record is reused, valid until the next query
+     *              of the level on the thread
+     * @return the hit record, or null if the ray hits nothing
      */
-    private GeoPoint findClosestIntersection(Ray ray) {
-        List<GeoPoint> intersections = this.scene.geometries.findGeoIntersections(ray);
-        return intersections != null ? ray.findClosestGeoPoint(intersections) : null;
+    private HitRecord findClosestIntersection(Ray ray, int level) {
+        HitRecord hit = hits.get()[level].reset(Double.POSITIVE_INFINITY);
+        return this.scene.geometries.findClosestHit(ray, hit) ? hit.complete(ray) : null;
     }
 
     @Override
     public Color traceRay(Ray ray) {
-        GeoPoint closest = findClosestIntersection(ray);
+        HitRecord closest = findClosestIntersection(ray, MAX_CALC_COLOR_LEVEL);
         return closest != null ? calcColor(closest, ray) : scene.background;
     }
+
+    /**
+     * Traces the rays in packets: the closest hits of a packet are found in one walk over the
+     * scene's hierarchies, then every hit is shaded on its own (the secondary rays are not coherent)
+     */
+    @Override
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        RayPacket packet = packets.get();
+        for (int start = 0; start < count; start += PACKET_SIZE) {
+            int end = Math.min(start + PACKET_SIZE, count);
+            packet.clear();
+            for (int i = start; i < end; ++i)
+                packet.add(rays[i]);
+            scene.geometries.findClosestHits(packet);
+            for (int i = start; i < end; ++i) {
+                HitRecord hit = packet.getHit(i - start);
+                colors[i] = hit.geometry != null ? calcColor(hit.complete(rays[i]), rays[i]) : scene.background;
+            }
+        }
+    }
 }
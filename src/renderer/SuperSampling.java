@@ -1,20 +1,29 @@
 package renderer;
 
+import primitives.Color;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Function;
 
 import static primitives.Util.alignZero;
 /**
  * This class represents super sampling through a grid
+ * <p>
+ * The grid size sets the amount of samples per pixel (size x size); where they lie inside the pixel
+ * is up to the {@link SamplePattern} (a regular grid by default).
  *
  * @author 
  */
 public class SuperSampling {
     public double size = 1; // width / height ratio
+    // adaptive sampling - the grid is subdivided only where the colors differ
+    private boolean adaptive = false;
+    private double threshold = 4;
+    private SamplePattern pattern = new GridPattern();
 
     /**
      * Set the size of the grid
@@ -27,6 +36,159 @@ public class SuperSampling {
         return this;
     }
 
+    /**
+     * Set the pattern of the samples inside a pixel
+     *
+     * @param pattern the sample pattern
+     * @return the updated SuperSampling object
+     */
+    public SuperSampling setPattern(SamplePattern pattern) {
+        this.pattern = pattern;
+        return this;
+    }
+
+    /**
+     * Get the amount of samples per pixel
+     *
+     * @return size x size (at least 1)
+     */
+    public int getSampleCount() {
+        int n = Math.max(1, (int) Math.ceil(this.size));
+        return n * n;
+    }
+
+    /**
+     * Get the offsets of the samples of a pixel from its center, in pixel units (a pixel spans -0.5 to 0.5)
+     * <p>
+     * Streaming the samples through a reused array allocates nothing per pixel.
+     *
+     * @param column  pixel column index
+     * @param row     pixel row index
+     * @param offsets array to fill, of twice the amount of samples; null to allocate a new one
+     * @return the offsets rightwards and downwards of each sample, interleaved (right0, down0, right1, ...)
+     */
+    public double[] getOffsets(int column, int row, double[] offsets) {
+        if (offsets == null)
+            offsets = new double[2 * getSampleCount()];
+        this.pattern.fill(offsets, column, row);
+        return offsets;
+    }
+
+    /**
+     * Turn the adaptive sampling on or off
+     * <p>
+     * Adaptive sampling starts from the pixel corners and subdivides a square only where its corner
+     * colors differ by more than the threshold, down to about the grid size.
+     *
+     * @param adaptive whether to sample adaptively
+     * @return the updated SuperSampling object
+     */
+    public SuperSampling setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * Set the color difference that makes the adaptive sampling subdivide a square
+     *
+     * @param threshold the largest color component difference of similar samples
+     * @return the updated SuperSampling object
+     * @throws IllegalArgumentException if the threshold is negative
+     */
+    public SuperSampling setThreshold(double threshold) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("threshold can't be negative");
+        this.threshold = threshold;
+        return this;
+    }
+
+    /**
+     * Check whether the sampling is adaptive (and there is more than one sample per pixel)
+     *
+     * @return true if the pixels are sampled adaptively
+     */
+    public boolean isAdaptive() {
+        return adaptive && size > 1;
+    }
+
+    /**
+     * Sample a pixel adaptively
+     *
+     * @param center  the pixel center
+     * @param width   pixel width
+     * @param height  pixel height
+     * @param vUp     up vector
+     * @param vRight  right vector
+     * @param corners colors of the pixel corners: top left, top right, bottom left, bottom right
+     * @param sample  the color seen through a point of the view plane
+     * @return the pixel color
+     */
+    public Color sampleAdaptive(Point center, double width, double height, Vector vUp, Vector vRight,
+                                Color[] corners, Function<Point, Color> sample) {
+        // the deepest squares are about as small as the grid cells
+        int depth = 0;
+        while ((1 << depth) < size)
+            ++depth;
+        return subdivide(center, width / 2, height / 2, vUp, vRight,
+                corners[0], corners[1], corners[2], corners[3], depth, sample);
+    }
+
+    /**
+     * Average the colors of a square, subdividing it into quarters while its corners differ
+     *
+     * @param center      the square center
+     * @param halfWidth   half of the square width
+     * @param halfHeight  half of the square height
+     * @param vUp         up vector
+     * @param vRight      right vector
+     * @param topLeft     top left corner color
+     * @param topRight    top right corner color
+     * @param bottomLeft  bottom left corner color
+     * @param bottomRight bottom right corner color
+     * @param depth       how many more times the square may be subdivided
+     * @param sample      the color seen through a point of the view plane
+     * @return the square color
+     */
+    private Color subdivide(Point center, double halfWidth, double halfHeight, Vector vUp, Vector vRight,
+                            Color topLeft, Color topRight, Color bottomLeft, Color bottomRight,
+                            int depth, Function<Point, Color> sample) {
+        if (depth == 0 ||
+                topLeft.isSimilar(topRight, threshold) &&
+                topLeft.isSimilar(bottomLeft, threshold) &&
+                topLeft.isSimilar(bottomRight, threshold) &&
+                topRight.isSimilar(bottomLeft, threshold) &&
+                topRight.isSimilar(bottomRight, threshold) &&
+                bottomLeft.isSimilar(bottomRight, threshold))
+            return topLeft.add(topRight, bottomLeft, bottomRight).reduce(4);
+
+        // the five new samples are shared by the quarters
+        Vector up = vUp.scale(halfHeight);
+        Vector down = up.scale(-1);
+        Vector right = vRight.scale(halfWidth);
+        Vector left = right.scale(-1);
+        Color middle = sample.apply(center);
+        Color topMiddle = sample.apply(center.add(up));
+        Color bottomMiddle = sample.apply(center.add(down));
+        Color leftMiddle = sample.apply(center.add(left));
+        Color rightMiddle = sample.apply(center.add(right));
+
+        Point upper = center.add(up.scale(0.5));
+        Point lower = center.add(down.scale(0.5));
+        Vector quarterRight = right.scale(0.5);
+        Vector quarterLeft = left.scale(0.5);
+        double quarterWidth = halfWidth / 2;
+        double quarterHeight = halfHeight / 2;
+        return subdivide(upper.add(quarterLeft), quarterWidth, quarterHeight, vUp, vRight,
+                topLeft, topMiddle, leftMiddle, middle, depth - 1, sample)
+                .add(subdivide(upper.add(quarterRight), quarterWidth, quarterHeight, vUp, vRight,
+                                topMiddle, topRight, middle, rightMiddle, depth - 1, sample),
+                        subdivide(lower.add(quarterLeft), quarterWidth, quarterHeight, vUp, vRight,
+                                leftMiddle, middle, bottomLeft, bottomMiddle, depth - 1, sample),
+                        subdivide(lower.add(quarterRight), quarterWidth, quarterHeight, vUp, vRight,
+                                middle, rightMiddle, bottomMiddle, bottomRight, depth - 1, sample))
+                .reduce(4);
+    }
+
     /**
      * Construct the rays through the grid
      *
@@ -46,33 +208,45 @@ public class SuperSampling {
             Vector vUp,
             Vector vRight
     ) {
-        List<Ray> rays = new LinkedList<>();
-
-        double xJ;
-        double yI = height / (2 * this.size) - height / 2;
-        Point dest;
-
-        for (int i = 0; i < this.size; i++) {
-            xJ = width / (2 * this.size) - width / 2;
-
-            for (int j = 0; j < this.size; j++) {
-                dest = gridCenter;
-                if (xJ != 0)
-                    dest = dest.add(vRight.scale(xJ));
-                if (yI != 0)
-                    dest = dest.add(vUp.scale(yI));
-
-                rays.add(new Ray(source, dest.subtract(source)));
-                xJ = alignZero(xJ + width / this.size);
+        return constructRaysThroughGrid(width, height, source, gridCenter, vUp, vRight, 0, 0);
+    }
 
-                if (xJ > width / 2)
-                    xJ = -width / (2 * this.size);
+    /**
+     * Construct the rays through the samples of a pixel
+     *
+     * @param width grid width
+     * @param height grid height
+     * @param source source point
+     * @param gridCenter center of the grid
+     * @param vUp up vector
+     * @param vRight right vector
+     * @param column pixel column index (for patterns that vary between pixels)
+     * @param row pixel row index
+     * @return the rays
+     */
+    public List<Ray> constructRaysThroughGrid(
+            double width,
+            double height,
+            Point source,
+            Point gridCenter,
+            Vector vUp,
+            Vector vRight,
+            int column,
+            int row
+    ) {
+        List<Ray> rays = new LinkedList<>();
+        double[] offsets = getOffsets(column, row, null);
 
-            }
+        for (int k = 0; k < offsets.length; k += 2) {
+            double xJ = alignZero(offsets[k] * width);
+            double yI = alignZero(-offsets[k + 1] * height);
+            Point dest = gridCenter;
+            if (xJ != 0)
+                dest = dest.add(vRight.scale(xJ));
+            if (yI != 0)
+                dest = dest.add(vUp.scale(yI));
 
-            yI = alignZero(yI + height / this.size);
-            if (yI > height / 2)
-                yI = -height / (2 * this.size);
+            rays.add(new Ray(source, dest.subtract(source)));
         }
         return rays;
     }
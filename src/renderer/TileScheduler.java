@@ -0,0 +1,453 @@
+package renderer;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scheduler of a single render: splits the image into square tiles and hands them out to the threads of a
+ * fork-join pool.
+ * <p>
+ * The tiles are listed along a space filling curve, so neighbouring tiles - which usually hit the same
+ * geometries - are rendered close in time. The list is split recursively into halves; every thread works
+ * on its own half and idle threads steal the pending halves of the busy ones, so there is no shared lock
+ * and no shared "next pixel" counter. The progress is counted per band of tile rows in a {@link LongAdder}.
+ * <p>
+ * A scheduler holds the state of one render only, so several renders may run in the same JVM.
+ * <p>
+ * Alternatively the tiles may be rendered asynchronously on virtual threads (see
+ * {@link #renderAsync(Semaphore, PixelRenderer, Duration)}), which suits many small concurrent renders.
+ */
+public class TileScheduler {
+    /**
+     * The order the tiles are listed in
+     */
+    public enum TileOrder {
+        /** row by row */
+        SCANLINE,
+        /** Morton (Z-order) curve */
+        MORTON,
+        /** Hilbert curve - every tile is adjacent to the one before it */
+        HILBERT
+    }
+
+    /**
+     * Renders (and writes) a single pixel
+     */
+    @FunctionalInterface
+    interface PixelRenderer {
+        /**
+         * Render a pixel
+         *
+         * @param column pixel column index
+         * @param row    pixel row index
+         */
+        void render(int column, int row);
+    }
+
+    /**
+     * Renders (and writes) a block of adjacent pixels, so the rays of neighbouring pixels may be traced together
+     */
+    @FunctionalInterface
+    interface BlockRenderer {
+        /**
+         * Render a block of pixels
+         *
+         * @param column  the first pixel column index
+         * @param row     the first pixel row index
+         * @param columns amount of columns
+         * @param rows    amount of rows
+         */
+        void render(int column, int row, int columns, int rows);
+    }
+
+    private static final String PRINT_FORMAT = "%5.1f%%\r";
+    // the rows of a tile are handed out in bands of this height - a block renderer gets square packets
+    private static final int BAND_ROWS = 8;
+
+    private final int nX;
+    private final int nY;
+    private final int tileSize;
+    private final int tilesX;
+    // tile indices (row * tilesX + column) in rendering order
+    private final int[] tiles;
+    private final long totalPixels;
+    private final LongAdder pixelsDone = new LongAdder();
+
+    /**
+     * Constructs the scheduler of a render
+     *
+     * @param nX       amount of pixel columns
+     * @param nY       amount of pixel rows
+     * @param tileSize tile width and height in pixels
+     * @param order    the tile order
+     * @throws IllegalArgumentException if the tile size is not positive
+     */
+    public TileScheduler(int nX, int nY, int tileSize, TileOrder order) {
+        if (tileSize < 1)
+            throw new IllegalArgumentException("tile size must be positive");
+        this.nX = nX;
+        this.nY = nY;
+        this.tileSize = tileSize;
+        this.tilesX = (nX + tileSize - 1) / tileSize;
+        this.tiles = orderTiles(tilesX, (nY + tileSize - 1) / tileSize, order);
+        this.totalPixels = (long) nX * nY;
+    }
+
+    /**
+     * Get the amount of tiles
+     *
+     * @return amount of tiles
+     */
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Get the amount of pixels rendered so far
+     *
+     * @return amount of rendered pixels
+     */
+    public long getPixelsDone() {
+        return pixelsDone.sum();
+    }
+
+    /**
+     * Render all the tiles
+     *
+     * @param threads       amount of threads, if smaller than 1 the tiles are rendered by the calling thread
+     * @param pixel         renders a single pixel
+     * @param printInterval the progress print interval in seconds, 0 if printing is not required
+     */
+    void render(int threads, PixelRenderer pixel, double printInterval) {
+        render(threads, blocks(pixel), printInterval);
+    }
+
+    /**
+     * Render all the tiles, block by block
+     *
+     * @param threads       amount of threads, if smaller than 1 the tiles are rendered by the calling thread
+     * @param block         renders a block of pixels
+     * @param printInterval the progress print interval in seconds, 0 if printing is not required
+     */
+    void render(int threads, BlockRenderer block, double printInterval) {
+        long interval = (long) (printInterval * 1000);
+        if (threads < 1) {
+            for (int i = 0; i < tiles.length; ++i) {
+                renderTile(tiles[i], block);
+                if (interval > 0)
+                    print();
+            }
+            if (interval > 0)
+                System.out.println("100.0%");
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            ForkJoinTask<Void> job = pool.submit(new TileRange(0, tiles.length, block));
+            if (interval > 0) {
+                while (!await(job, interval))
+                    print();
+                System.out.println("100.0%");
+            }
+            job.join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Render all the tiles asynchronously, one virtual thread per tile
+     * <p>
+     * A virtual thread costs almost nothing while it waits, so the actual parallelism is set by the
+     * permits: a tile is rendered only while its thread holds one. Sharing the semaphore between renders
+     * caps the platform threads they use together.
+     * <p>
+     * Cancelling the returned future, or missing the deadline, stops the render: the tiles that haven't
+     * started are skipped and the running ones stop at their next band of rows.
+     *
+     * @param permits bounds the amount of tiles rendered at the same time
+     * @param pixel   renders a single pixel
+     * @param timeout the render deadline, null if there is none
+     * @return future completed when all the tiles are rendered, or exceptionally with a
+     * {@link TimeoutException} when the deadline passes first
+     */
+    CompletableFuture<Void> renderAsync(Semaphore permits, PixelRenderer pixel, Duration timeout) {
+        return renderAsync(permits, blocks(pixel), timeout);
+    }
+
+    /**
+     * Render all the tiles asynchronously, block by block (see {@link #renderAsync(Semaphore, PixelRenderer, Duration)})
+     *
+     * @param permits bounds the amount of tiles rendered at the same time
+     * @param block   renders a block of pixels
+     * @param timeout the render deadline, null if there is none
+     * @return future completed when all the tiles are rendered, or exceptionally with a
+     * {@link TimeoutException} when the deadline passes first
+     */
+    CompletableFuture<Void> renderAsync(Semaphore permits, BlockRenderer block, Duration timeout) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (timeout != null)
+            result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        if (tiles.length == 0) {
+            result.complete(null);
+            return result;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(tiles.length);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        // once the render is over (or cancelled) wake up the tiles still waiting for a permit
+        result.whenComplete((ignore, e) -> executor.shutdownNow());
+        for (int tile : tiles) {
+            try {
+                executor.execute(() -> renderAsyncTile(tile, block, permits, remaining, result));
+            } catch (RejectedExecutionException e) {
+                // the render is over (cancelled) before all the tiles were submitted
+                break;
+            }
+        }
+        executor.shutdown();
+        return result;
+    }
+
+    /**
+     * Render a tile of an asynchronous render once a permit is available
+     *
+     * @param tile      tile index
+     * @param block     renders a block of pixels
+     * @param permits   bounds the amount of tiles rendered at the same time
+     * @param remaining amount of tiles not done yet
+     * @param result    the render future
+     */
+    private void renderAsyncTile(int tile, BlockRenderer block, Semaphore permits,
+                                 AtomicInteger remaining, CompletableFuture<Void> result) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            return;
+        }
+        try {
+            if (!result.isDone())
+                renderTile(tile, block, result);
+        } catch (Throwable e) {
+            // errors too fail the render, or the future would never complete
+            result.completeExceptionally(e);
+        } finally {
+            permits.release();
+            if (remaining.decrementAndGet() == 0)
+                result.complete(null);
+        }
+    }
+
+    /**
+     * Wait for a job for a while
+     *
+     * @param job      the job
+     * @param interval how long to wait in milliseconds
+     * @return true if the job is over (finished, failed or cancelled)
+     */
+    private static boolean await(ForkJoinTask<Void> job, long interval) {
+        try {
+            job.get(interval, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // join rethrows the failure
+        } catch (InterruptedException e) {
+            job.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * Prints the progress percentage
+     */
+    private void print() {
+        System.out.printf(PRINT_FORMAT, 100d * pixelsDone.sum() / totalPixels);
+    }
+
+    /**
+     * Adapt a pixel renderer to render blocks pixel by pixel
+     *
+     * @param pixel renders a single pixel
+     * @return the block renderer
+     */
+    private static BlockRenderer blocks(PixelRenderer pixel) {
+        return (column0, row0, columns, rows) -> {
+            for (int row = row0; row < row0 + rows; ++row)
+                for (int column = column0; column < column0 + columns; ++column)
+                    pixel.render(column, row);
+        };
+    }
+
+    /**
+     * Render the pixels of a tile
+     *
+     * @param tile  tile index
+     * @param block renders a block of pixels
+     */
+    private void renderTile(int tile, BlockRenderer block) {
+        renderTile(tile, block, null);
+    }
+
+    /**
+     * Render the pixels of a tile band by band, unless the render is over
+     *
+     * @param tile   tile index
+     * @param block  renders a block of pixels
+     * @param render the future of an asynchronous render (checked before every band), null if there is none
+     */
+    private void renderTile(int tile, BlockRenderer block, CompletableFuture<Void> render) {
+        int column0 = tile % tilesX * tileSize;
+        int row0 = tile / tilesX * tileSize;
+        int columnEnd = Math.min(column0 + tileSize, nX);
+        int rowEnd = Math.min(row0 + tileSize, nY);
+        for (int row = row0; row < rowEnd; row += BAND_ROWS) {
+            if (render != null && render.isDone())
+                return;
+            int rows = Math.min(BAND_ROWS, rowEnd - row);
+            block.render(column0, row, columnEnd - column0, rows);
+            pixelsDone.add((long) (columnEnd - column0) * rows);
+        }
+    }
+
+    /**
+     * A range of the tile list, split in halves until a single tile is left
+     */
+    private class TileRange extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private final transient BlockRenderer block;
+
+        /**
+         * Constructs the range [start, end) of the tile list
+         *
+         * @param start first position
+         * @param end   end position (exclusive)
+         * @param block renders a block of pixels
+         */
+        TileRange(int start, int end, BlockRenderer block) {
+            this.start = start;
+            this.end = end;
+            this.block = block;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                renderTile(tiles[start], block);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            // the second half waits in this thread's queue, where other threads may steal it
+            TileRange second = new TileRange(middle, end, block);
+            second.fork();
+            new TileRange(start, middle, block).compute();
+            second.join();
+        }
+    }
+
+    /**
+     * List the tiles in the requested order
+     *
+     * @param tilesX amount of tile columns
+     * @param tilesY amount of tile rows
+     * @param order  the order
+     * @return the tile indices (row * tilesX + column) in order
+     */
+    static int[] orderTiles(int tilesX, int tilesY, TileOrder order) {
+        int count = tilesX * tilesY;
+        int[] tiles = new int[count];
+        if (order == TileOrder.SCANLINE) {
+            for (int i = 0; i < count; ++i)
+                tiles[i] = i;
+            return tiles;
+        }
+
+        // sort by the curve position kept in the high half of a long, the tile index in the low half
+        int side = Integer.highestOneBit(Math.max(1, Math.max(tilesX, tilesY) - 1)) << 1;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; ++i) {
+            int x = i % tilesX;
+            int y = i / tilesX;
+            long code = order == TileOrder.MORTON ? morton(x, y) : hilbert(side, x, y);
+            keys[i] = code << 32 | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count; ++i)
+            tiles[i] = (int) keys[i];
+        return tiles;
+    }
+
+    /**
+     * Position on the Morton curve - the bits of the coordinates interleaved
+     *
+     * @param x column
+     * @param y row
+     * @return the curve position
+     */
+    static long morton(int x, int y) {
+        return spread(x) | spread(y) << 1;
+    }
+
+    /**
+     * Spread the 16 low bits of a value to the even bits
+     *
+     * @param value the value
+     * @return the spread bits
+     */
+    private static long spread(int value) {
+        long v = value & 0xFFFF;
+        v = (v | v << 8) & 0x00FF00FFL;
+        v = (v | v << 4) & 0x0F0F0F0FL;
+        v = (v | v << 2) & 0x33333333L;
+        v = (v | v << 1) & 0x55555555L;
+        return v;
+    }
+
+    /**
+     * Position on the Hilbert curve that fills a square
+     *
+     * @param side the square side (a power of 2)
+     * @param x    column
+     * @param y    row
+     * @return the curve position
+     */
+    static long hilbert(int side, int x, int y) {
+        long d = 0;
+        for (int s = side >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return d;
+    }
+}
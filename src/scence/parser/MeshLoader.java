@@ -0,0 +1,701 @@
+package scence.parser;
+
+import geometries.MeshCache;
+import geometries.TriangleMesh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Loads triangle meshes from Wavefront OBJ and binary PLY files
+ * <p>
+ * The files are memory mapped and parsed straight from the mapped bytes - no lines, strings or boxed
+ * numbers are made, so the heap holds little more than the mesh arrays themselves.
+ * An OBJ file is cut into chunks at line ends and parsed in two parallel passes: the first counts the
+ * vertices and triangles of every chunk, the second fills the arrays at the offsets the counts give.
+ * Polygon faces are split into triangle fans.
+ *
+ * @author Shirel Cohen & Neomi Golkin
+ */
+public class MeshLoader {
+    // chunks of an OBJ file parsed in parallel - no smaller than this (unless the file is)
+    private static final long MIN_CHUNK = 1 << 20;
+    // and no larger than this (a mapped buffer is limited to 2GB)
+    private static final long MAX_CHUNK = 1 << 30;
+
+    private MeshLoader() {
+    }
+
+    /**
+     * Load a mesh, choosing the format by the file extension (.obj or .ply)
+     *
+     * @param path the file
+     * @return the mesh
+     * @throws IOException if the file can't be read, has another extension or is malformed
+     */
+    public static TriangleMesh load(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".obj"))
+            return loadObj(path);
+        if (name.endsWith(".ply"))
+            return loadPly(path);
+        throw new IOException("unknown mesh format: " + path);
+    }
+
+    /**
+     * Load a mesh through a binary cache (see {@link MeshCache})
+     * <p>
+     * A cache newer than the mesh file is opened instead of it; otherwise the mesh is loaded and the
+     * cache is written for the next run (with the default material - a cache written later by
+     * {@link MeshCache#write} keeps the mesh material).
+     *
+     * @param path  the mesh file
+     * @param cache the cache file
+     * @return the mesh
+     * @throws IOException if the files can't be read or written, or the mesh file is malformed
+     */
+    public static TriangleMesh load(Path path, Path cache) throws IOException {
+        if (Files.exists(cache)
+                && Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(path)) >= 0)
+            return MeshCache.read(cache);
+        TriangleMesh mesh = load(path);
+        MeshCache.write(mesh, cache);
+        return mesh;
+    }
+
+    // ***************** OBJ ********************** //
+
+    /**
+     * The vertex and triangle counts of an OBJ chunk
+     *
+     * @param vertices  amount of vertex lines
+     * @param triangles amount of triangles of the face lines
+     */
+    private record ObjCount(int vertices, int triangles) {
+    }
+
+    /**
+     * Load a Wavefront OBJ mesh (the "v" and "f" lines; the rest is ignored)
+     *
+     * @param path the file
+     * @return the mesh
+     * @throws IOException if the file can't be read or is malformed
+     */
+    public static TriangleMesh loadObj(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            int chunks = bounds.length - 1;
+            MappedByteBuffer[] buffers = new MappedByteBuffer[chunks];
+            for (int c = 0; c < chunks; ++c)
+                buffers[c] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[c], bounds[c + 1] - bounds[c]);
+
+            ObjCount[] counts = new ObjCount[chunks];
+            parallel(chunks, c -> counts[c] = countObj(buffers[c].duplicate(), bounds[c]));
+
+            // prefix sums - where every chunk writes its vertices and faces
+            int[] vertexOffsets = new int[chunks + 1];
+            int[] faceOffsets = new int[chunks + 1];
+            for (int c = 0; c < chunks; ++c) {
+                vertexOffsets[c + 1] = Math.addExact(vertexOffsets[c], counts[c].vertices);
+                faceOffsets[c + 1] = Math.addExact(faceOffsets[c], counts[c].triangles);
+            }
+            double[] vertices = new double[Math.multiplyExact(vertexOffsets[chunks], 3)];
+            int[] indices = new int[Math.multiplyExact(faceOffsets[chunks], 3)];
+            parallel(chunks, c -> fillObj(buffers[c].duplicate(), bounds[c],
+                    vertices, 3 * vertexOffsets[c], vertexOffsets[c], indices, 3 * faceOffsets[c]));
+
+            try {
+                return new TriangleMesh(vertices, indices);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Cut a file into chunks that end at line ends
+     *
+     * @param channel the file
+     * @return the chunk bounds: chunk c is [bounds[c], bounds[c + 1])
+     * @throws IOException if the file can't be read
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunks = Math.max((size + MAX_CHUNK - 1) / MAX_CHUNK,
+                Math.min(4L * Runtime.getRuntime().availableProcessors(), size / MIN_CHUNK));
+        chunks = Math.max(1, chunks);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        for (long c = 1; c < chunks; ++c) {
+            // move the nominal bound forward to the next line start
+            long position = Math.max(size * c / chunks, bounds.getLast());
+            boolean found = false;
+            while (!found && position < size) {
+                window.clear();
+                int read = channel.read(window, position);
+                if (read <= 0)
+                    break;
+                for (int i = 0; i < read && !found; ++i, ++position)
+                    found = window.get(i) == '\n';
+            }
+            if (position - bounds.getLast() > Integer.MAX_VALUE)
+                throw new IOException("line too long");
+            if (position < size && position > bounds.getLast())
+                bounds.add(position);
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = bounds.get(i);
+        return result;
+    }
+
+    /**
+     * First pass over an OBJ chunk - count its vertices and triangles
+     *
+     * @param buffer the chunk
+     * @param start  the chunk position in the file (for the error messages)
+     * @return the counts
+     */
+    private static ObjCount countObj(ByteBuffer buffer, long start) {
+        int vertices = 0;
+        long triangles = 0;
+        int limit = buffer.limit();
+        int i = 0;
+        while (i < limit) {
+            i = skipBlanks(buffer, i, limit);
+            if (i + 1 < limit && isBlank(buffer.get(i + 1))) {
+                byte kind = buffer.get(i);
+                if (kind == 'v')
+                    ++vertices;
+                else if (kind == 'f') {
+                    int corners = 0;
+                    int j = skipBlanks(buffer, i + 1, limit);
+                    // the corners end where the fill pass stops parsing them - at the line end or a comment
+                    while (j < limit && !isLineEnd(buffer.get(j))) {
+                        ++corners;
+                        j = skipBlanks(buffer, skipToken(buffer, j, limit), limit);
+                    }
+                    if (corners < 3)
+                        throw new UncheckedIOException(new IOException(
+                                "face with less than 3 vertices at byte " + (start + i)));
+                    triangles += corners - 2;
+                }
+            }
+            i = nextLine(buffer, i, limit);
+        }
+        return new ObjCount(vertices, Math.toIntExact(triangles));
+    }
+
+    /**
+     * Second pass over an OBJ chunk - parse its vertices and faces into the arrays
+     *
+     * @param buffer       the chunk
+     * @param start        the chunk position in the file (for the error messages)
+     * @param vertices     the vertex coordinates of the mesh
+     * @param vertex       where the chunk's first coordinate goes
+     * @param vertexCount  amount of vertices in the file before the chunk (for relative indices)
+     * @param indices      the face indices of the mesh
+     * @param index        where the chunk's first face index goes
+     */
+    private static void fillObj(ByteBuffer buffer, long start, double[] vertices, int vertex, int vertexCount,
+                                int[] indices, int index) {
+        int limit = buffer.limit();
+        long[] cursor = new long[1];
+        int i = 0;
+        while (i < limit) {
+            i = skipBlanks(buffer, i, limit);
+            if (i + 1 < limit && isBlank(buffer.get(i + 1))) {
+                byte kind = buffer.get(i);
+                if (kind == 'v') {
+                    cursor[0] = i + 1;
+                    for (int k = 0; k < 3; ++k)
+                        vertices[vertex++] = parseDouble(buffer, cursor, limit, start);
+                    ++vertexCount;
+                } else if (kind == 'f') {
+                    int j = skipBlanks(buffer, i + 1, limit);
+                    int first = 0, previous = 0, corners = 0;
+                    while (j < limit && !isLineEnd(buffer.get(j))) {
+                        cursor[0] = j;
+                        int corner = (int) parseLong(buffer, cursor, limit, start);
+                        // OBJ indices start at 1, negative ones count back from the last vertex
+                        corner = corner > 0 ? corner - 1 : vertexCount + corner;
+                        if (corners == 0)
+                            first = corner;
+                        else if (corners >= 2) {
+                            indices[index++] = first;
+                            indices[index++] = previous;
+                            indices[index++] = corner;
+                        }
+                        previous = corner;
+                        ++corners;
+                        // skip the texture and normal indices
+                        j = skipBlanks(buffer, skipToken(buffer, j, limit), limit);
+                    }
+                }
+            }
+            i = nextLine(buffer, i, limit);
+        }
+    }
+
+    /**
+     * Run a task for every chunk in parallel, rethrowing the I/O failures
+     *
+     * @param chunks amount of chunks
+     * @param task   the task of a chunk
+     * @throws IOException if a task failed to parse its chunk
+     */
+    private static void parallel(int chunks, IntConsumer task) throws IOException {
+        try {
+            IntStream.range(0, chunks).parallel().forEach(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // ***************** PLY ********************** //
+
+    /**
+     * A property of a PLY element
+     *
+     * @param name      the property name
+     * @param type      the value type (the item type of a list)
+     * @param countType the list length type, null if the property is not a list
+     */
+    private record PlyProperty(String name, String type, String countType) {
+    }
+
+    /**
+     * An element of a PLY file
+     *
+     * @param name       the element name
+     * @param count      amount of the element items
+     * @param properties the properties of every item
+     */
+    private record PlyElement(String name, int count, List<PlyProperty> properties) {
+        /**
+         * @return the item size in bytes, or -1 if an item has a list
+         */
+        int stride() {
+            int stride = 0;
+            for (PlyProperty property : properties) {
+                if (property.countType != null)
+                    return -1;
+                stride += size(property.type);
+            }
+            return stride;
+        }
+    }
+
+    /**
+     * Load a binary (little or big endian) PLY mesh: the x, y, z properties of the "vertex" element and
+     * the "vertex_indices" (or "vertex_index") list of the "face" element; other elements are skipped
+     *
+     * @param path the file
+     * @return the mesh
+     * @throws IOException if the file can't be read, is ASCII PLY or is malformed
+     */
+    public static TriangleMesh loadPly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("PLY files of more than 2GB are not supported: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            // the header is short ASCII text
+            int headerEnd = find(buffer, "end_header");
+            if (find(buffer, "ply") != 0 || headerEnd < 0)
+                throw new IOException("not a PLY file: " + path);
+            int dataStart = nextLine(buffer, headerEnd, buffer.limit());
+            byte[] header = new byte[headerEnd];
+            buffer.get(0, header);
+
+            List<PlyElement> elements = new ArrayList<>();
+            for (String line : new String(header, StandardCharsets.US_ASCII).split("\\R")) {
+                String[] words = line.trim().split("\\s+");
+                switch (words[0]) {
+                    case "format" -> {
+                        if (words[1].equals("binary_little_endian"))
+                            buffer.order(ByteOrder.LITTLE_ENDIAN);
+                        else if (words[1].equals("binary_big_endian"))
+                            buffer.order(ByteOrder.BIG_ENDIAN);
+                        else
+                            throw new IOException("only binary PLY is supported: " + path);
+                    }
+                    case "element" -> elements.add(new PlyElement(words[1], Integer.parseInt(words[2]),
+                            new ArrayList<>()));
+                    case "property" -> {
+                        if (elements.isEmpty())
+                            throw new IOException("property outside an element: " + path);
+                        elements.getLast().properties.add(words[1].equals("list")
+                                ? new PlyProperty(words[4], words[3], words[2])
+                                : new PlyProperty(words[2], words[1], null));
+                    }
+                    default -> {
+                    }
+                }
+            }
+
+            double[] vertices = null;
+            int[] indices = null;
+            int position = dataStart;
+            for (PlyElement element : elements) {
+                if (element.name.equals("vertex")) {
+                    vertices = readPlyVertices(buffer, position, element);
+                } else if (element.name.equals("face")) {
+                    indices = readPlyFaces(buffer, position, element);
+                }
+                position = skipPly(buffer, position, element);
+            }
+            if (vertices == null || indices == null)
+                throw new IOException("PLY file without vertices or faces: " + path);
+
+            try {
+                return new TriangleMesh(vertices, indices);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("truncated PLY file: " + path, e);
+        }
+    }
+
+    /**
+     * Read the vertex positions - the items have a fixed size, so they are read in parallel
+     *
+     * @param buffer   the file
+     * @param position the element start
+     * @param element  the vertex element
+     * @return the vertex coordinates
+     * @throws IOException if the vertices have lists or no x, y, z
+     */
+    private static double[] readPlyVertices(ByteBuffer buffer, int position, PlyElement element) throws IOException {
+        int stride = element.stride();
+        if (stride < 0)
+            throw new IOException("PLY vertex with a list property");
+        int[] offsets = {-1, -1, -1};
+        String[] types = new String[3];
+        int offset = 0;
+        for (PlyProperty property : element.properties) {
+            int axis = switch (property.name) {
+                case "x" -> 0;
+                case "y" -> 1;
+                case "z" -> 2;
+                default -> -1;
+            };
+            if (axis >= 0) {
+                offsets[axis] = offset;
+                types[axis] = property.type;
+            }
+            offset += size(property.type);
+        }
+        if (offsets[0] < 0 || offsets[1] < 0 || offsets[2] < 0)
+            throw new IOException("PLY vertex without x, y, z");
+
+        double[] vertices = new double[Math.multiplyExact(element.count, 3)];
+        IntStream.range(0, element.count).parallel().forEach(v -> {
+            int item = position + v * stride;
+            for (int axis = 0; axis < 3; ++axis)
+                vertices[3 * v + axis] = read(buffer, item + offsets[axis], types[axis]);
+        });
+        return vertices;
+    }
+
+    /**
+     * Read the faces, split into triangle fans
+     *
+     * @param buffer   the file
+     * @param position the element start
+     * @param element  the face element
+     * @return the triangle indices
+     * @throws IOException if the faces have no vertex list
+     */
+    private static int[] readPlyFaces(ByteBuffer buffer, int position, PlyElement element) throws IOException {
+        PlyProperty list = null;
+        for (PlyProperty property : element.properties)
+            if (property.countType != null
+                    && (property.name.equals("vertex_indices") || property.name.equals("vertex_index")))
+                list = property;
+        if (list == null)
+            throw new IOException("PLY face without vertex indices");
+
+        // the faces vary in size - count the triangles first, then fill them
+        long triangles = 0;
+        int item = position;
+        for (int f = 0; f < element.count; ++f)
+            for (PlyProperty property : element.properties) {
+                if (property.countType == null) {
+                    item += size(property.type);
+                    continue;
+                }
+                int corners = (int) read(buffer, item, property.countType);
+                if (property == list) {
+                    if (corners < 3)
+                        throw new IOException("face with less than 3 vertices");
+                    triangles += corners - 2;
+                }
+                item += size(property.countType) + corners * size(property.type);
+            }
+
+        int[] indices = new int[Math.multiplyExact(Math.toIntExact(triangles), 3)];
+        int index = 0;
+        item = position;
+        for (int f = 0; f < element.count; ++f)
+            for (PlyProperty property : element.properties) {
+                if (property.countType == null) {
+                    item += size(property.type);
+                    continue;
+                }
+                int corners = (int) read(buffer, item, property.countType);
+                item += size(property.countType);
+                int itemSize = size(property.type);
+                if (property == list) {
+                    int first = (int) read(buffer, item, property.type);
+                    int previous = (int) read(buffer, item + itemSize, property.type);
+                    for (int k = 2; k < corners; ++k) {
+                        int corner = (int) read(buffer, item + k * itemSize, property.type);
+                        indices[index++] = first;
+                        indices[index++] = previous;
+                        indices[index++] = corner;
+                        previous = corner;
+                    }
+                }
+                item += corners * itemSize;
+            }
+        return indices;
+    }
+
+    /**
+     * Skip the items of an element
+     *
+     * @param buffer   the file
+     * @param position the element start
+     * @param element  the element
+     * @return the position after the element
+     */
+    private static int skipPly(ByteBuffer buffer, int position, PlyElement element) {
+        int stride = element.stride();
+        if (stride >= 0)
+            return Math.addExact(position, Math.multiplyExact(stride, element.count));
+        for (int i = 0; i < element.count; ++i)
+            for (PlyProperty property : element.properties)
+                position += property.countType == null
+                        ? size(property.type)
+                        : size(property.countType)
+                        + (int) read(buffer, position, property.countType) * size(property.type);
+        return position;
+    }
+
+    /**
+     * Size of a PLY type in bytes
+     *
+     * @param type the type name
+     * @return the size
+     */
+    private static int size(String type) {
+        return switch (type) {
+            case "char", "uchar", "int8", "uint8" -> 1;
+            case "short", "ushort", "int16", "uint16" -> 2;
+            case "int", "uint", "int32", "uint32", "float", "float32" -> 4;
+            case "double", "float64" -> 8;
+            default -> throw new UncheckedIOException(new IOException("unknown PLY type " + type));
+        };
+    }
+
+    /**
+     * Read a PLY value
+     *
+     * @param buffer   the file
+     * @param position the value position
+     * @param type     the type name
+     * @return the value
+     */
+    private static double read(ByteBuffer buffer, int position, String type) {
+        return switch (type) {
+            case "char", "int8" -> buffer.get(position);
+            case "uchar", "uint8" -> buffer.get(position) & 0xFF;
+            case "short", "int16" -> buffer.getShort(position);
+            case "ushort", "uint16" -> buffer.getShort(position) & 0xFFFF;
+            case "int", "int32" -> buffer.getInt(position);
+            case "uint", "uint32" -> buffer.getInt(position) & 0xFFFFFFFFL;
+            case "float", "float32" -> buffer.getFloat(position);
+            case "double", "float64" -> buffer.getDouble(position);
+            default -> throw new UncheckedIOException(new IOException("unknown PLY type " + type));
+        };
+    }
+
+    // ***************** Bytes ********************** //
+
+    /**
+     * Find the first appearance of a word at a line start
+     *
+     * @param buffer the file
+     * @param word   the word
+     * @return the word position, or -1 if it is not found
+     */
+    private static int find(ByteBuffer buffer, String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.US_ASCII);
+        int limit = buffer.limit() - bytes.length;
+        for (int i = 0; i <= limit; i = nextLine(buffer, i, buffer.limit())) {
+            int k = 0;
+            while (k < bytes.length && buffer.get(i + k) == bytes[k])
+                ++k;
+            if (k == bytes.length)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a decimal number (with an optional fraction and exponent) straight from the bytes
+     *
+     * @param buffer the text
+     * @param cursor the position to start from (blanks are skipped); moved past the number
+     * @param limit  the text end
+     * @param start  the text position in the file (for the error messages)
+     * @return the number
+     */
+    static double parseDouble(ByteBuffer buffer, long[] cursor, int limit, long start) {
+        int i = skipBlanks(buffer, (int) cursor[0], limit);
+        boolean negative = i < limit && buffer.get(i) == '-';
+        if (i < limit && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            ++i;
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean any = false;
+        byte b;
+        for (; i < limit && (b = buffer.get(i)) >= '0' && b <= '9'; ++i, any = true)
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0)
+                    ++digits;
+            } else
+                ++exponent;
+        if (i < limit && buffer.get(i) == '.')
+            for (++i; i < limit && (b = buffer.get(i)) >= '0' && b <= '9'; ++i, any = true)
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    --exponent;
+                    if (mantissa != 0)
+                        ++digits;
+                }
+        if (!any)
+            throw new UncheckedIOException(new IOException("number expected at byte " + (start + i)));
+        if (i < limit && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            cursor[0] = i + 1;
+            exponent += (int) parseLong(buffer, cursor, limit, start);
+            i = (int) cursor[0];
+        }
+        cursor[0] = i;
+
+        double value = mantissa;
+        // powers up to 22 are exact in doubles, so one multiplication or division rounds once
+        if (exponent < 0)
+            value = exponent >= -22 ? value / POWERS[-exponent] : value * Math.pow(10, exponent);
+        else if (exponent > 0)
+            value = exponent <= 22 ? value * POWERS[exponent] : value * Math.pow(10, exponent);
+        return negative ? -value : value;
+    }
+
+    // the exact powers of 10
+    private static final double[] POWERS = new double[23];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; ++i)
+            POWERS[i] = POWERS[i - 1] * 10;
+    }
+
+    /**
+     * Parse a decimal integer straight from the bytes
+     *
+     * @param buffer the text
+     * @param cursor the position to start from (blanks are skipped); moved past the number
+     * @param limit  the text end
+     * @param start  the text position in the file (for the error messages)
+     * @return the number
+     */
+    static long parseLong(ByteBuffer buffer, long[] cursor, int limit, long start) {
+        int i = skipBlanks(buffer, (int) cursor[0], limit);
+        boolean negative = i < limit && buffer.get(i) == '-';
+        if (i < limit && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            ++i;
+        int first = i;
+        long value = 0;
+        byte b;
+        for (; i < limit && (b = buffer.get(i)) >= '0' && b <= '9'; ++i)
+            value = value * 10 + (b - '0');
+        if (i == first)
+            throw new UncheckedIOException(new IOException("integer expected at byte " + (start + i)));
+        cursor[0] = i;
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param b a byte
+     * @return true if the byte is a space or a tab
+     */
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /**
+     * @param b a byte
+     * @return true if the byte ends a line (a comment ends the line content too)
+     */
+    private static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r' || b == '#';
+    }
+
+    /**
+     * @param buffer the text
+     * @param i      a position
+     * @param limit  the text end
+     * @return the first position from i that is not a space or a tab
+     */
+    private static int skipBlanks(ByteBuffer buffer, int i, int limit) {
+        while (i < limit && isBlank(buffer.get(i)))
+            ++i;
+        return i;
+    }
+
+    /**
+     * @param buffer the text
+     * @param i      a position inside a token
+     * @param limit  the text end
+     * @return the position after the token
+     */
+    private static int skipToken(ByteBuffer buffer, int i, int limit) {
+        byte b;
+        while (i < limit && !isBlank(b = buffer.get(i)) && !isLineEnd(b))
+            ++i;
+        return i;
+    }
+
+    /**
+     * @param buffer the text
+     * @param i      a position
+     * @param limit  the text end
+     * @return the start of the next line
+     */
+    private static int nextLine(ByteBuffer buffer, int i, int limit) {
+        while (i < limit && buffer.get(i) != '\n')
+            ++i;
+        return i + 1;
+    }
+}
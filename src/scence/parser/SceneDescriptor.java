@@ -1,162 +1,297 @@
 package scence.parser;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.ParserConfigurationException;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Vector;
 
-import org.w3c.dom.*;
-import org.xml.sax.SAXException;
-
-import java.io.File;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
-import java.util.*;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
- * This class parses XML data to data structures relevant to a Scene object
+ * Streaming reader of XML scene files
+ * <p>
+ * The descriptor walks the document one element at a time with a StAX reader and gives access to
+ * the attributes of the current element only, so nothing of the document is kept - the caller builds
+ * its objects as the elements go by (see {@link scene.SceneBuilder}).
+ * Numeric attributes are written as space separated numbers ({@code center="0 0 -100"}), lists of
+ * points separate the points by commas ({@code vertices="0 0 0, 1 0 0, 0 1 0"}).
  *
- * @author Shirel Cohen& Neomi Golkin
+ * @author Shirel Cohen & Neomi Golkin
  */
-public class SceneDescriptor {
-	/*
-	 * private final Map<String, String> sceneAttributes; private final Map<String,
-	 * String> ambientLightAttributes; private List<Map<String, String>> planes;
-	 * private List<Map<String, String>> spheres; private List<Map<String, String>>
-	 * triangles; private final Element root; private Element geometries;
-	 * 
-	 *//**
-		 * Constructor to initialize this class and start parsing the XML file
-		 *
-		 * @param filePath XML file path
-		 * @throws ParserConfigurationException .
-		 * @throws IOException                  .
-		 * @throws SAXException                 .
-		 */
-	/*
-	 * public SceneDescriptor(String filePath) throws ParserConfigurationException,
-	 * IOException, SAXException { this.sceneAttributes = new HashMap<>();
-	 * this.ambientLightAttributes = new HashMap<>();
-	 * 
-	 * File file = new File(filePath); DocumentBuilderFactory dbf =
-	 * DocumentBuilderFactory.newInstance(); DocumentBuilder db =
-	 * dbf.newDocumentBuilder(); Document doc = db.parse(file); this.root =
-	 * doc.getDocumentElement(); this.planes = null; this.spheres = null;
-	 * this.triangles = null; this.geometries = null;
-	 * 
-	 * this.parseSceneAttributes(); this.parseAmbientLightAttributes();
-	 * 
-	 * if (hasChild(this.root, "geometries")) { this.geometries = (Element)
-	 * this.root.getElementsByTagName("geometries").item(0); this.planes =
-	 * this.parseGeometry("plane"); this.spheres = this.parseGeometry("sphere");
-	 * this.triangles = this.parseGeometry("triangle"); } }
-	 * 
-	 *//**
-		 * Checks if an element has a child with the provided name
-		 *
-		 * @param parent   parent element
-		 * @param nodeName child expected name
-		 * @return true if child is present
-		 */
-	/*
-	 * private static boolean hasChild(Element parent, String nodeName) { NodeList
-	 * childNodes = parent.getChildNodes(); int length = childNodes.getLength(); for
-	 * (int i = 0; i < length; i++) if
-	 * (childNodes.item(i).getNodeName().equals(nodeName)) return true; return
-	 * false; }
-	 * 
-	 *//**
-		 * Parses the Scene attributes
-		 */
-	/*
-	 * private void parseSceneAttributes() { NamedNodeMap attributes =
-	 * this.root.getAttributes(); int length = attributes.getLength();
-	 * 
-	 * Node attribute; for (int i = 0; i < length; i++) { attribute =
-	 * attributes.item(i); this.sceneAttributes.put(attribute.getNodeName(),
-	 * attribute.getNodeValue()); }
-	 * 
-	 * this.sceneAttributes.putIfAbsent("background-color", "0 0 0"); }
-	 * 
-	 *//**
-		 * Parses the Ambient Light attributes
-		 */
-	/*
-	 * private void parseAmbientLightAttributes() { if (hasChild(this.root,
-	 * "ambient-light")) { NamedNodeMap attributes =
-	 * this.root.getElementsByTagName("ambient-light").item(0).getAttributes(); int
-	 * length = attributes.getLength();
-	 * 
-	 * Node attribute; for (int i = 0; i < length; i++) { attribute =
-	 * attributes.item(i); this.ambientLightAttributes.put(attribute.getNodeName(),
-	 * attribute.getNodeValue()); } }
-	 * 
-	 * this.ambientLightAttributes.putIfAbsent("color", "0 0 0");
-	 * this.ambientLightAttributes.putIfAbsent("k", "0"); }
-	 * 
-	 *//**
-		 * Parses a specified geometry
-		 *
-		 * @param geometryName specified geometry name
-		 * @return parsed data structure
-		 */
-	/*
-	 * private List<Map<String, String>> parseGeometry(String geometryName) { if
-	 * (!hasChild(this.geometries, geometryName)) return null;
-	 * 
-	 * List<Map<String, String>> result = new ArrayList<>(); NodeList requestedGeos
-	 * = this.geometries.getElementsByTagName(geometryName); int length =
-	 * requestedGeos.getLength();
-	 * 
-	 * NamedNodeMap attributes; for (int i = 0; i < length; i++) { attributes =
-	 * requestedGeos.item(i).getAttributes(); int attrLength =
-	 * attributes.getLength();
-	 * 
-	 * result.add(new HashMap<>());
-	 * 
-	 * Node attribute; for (int j = 0; j < attrLength; j++) { attribute =
-	 * attributes.item(j); result.get(i).put(attribute.getNodeName(),
-	 * attribute.getNodeValue()); } }
-	 * 
-	 * return result; }
-	 * 
-	 *//**
-		 * Gets the Scene attributes data structure
-		 *
-		 * @return Scene attributes data structure
-		 */
-	/*
-	 * public Map<String, String> getSceneAttributes() { return
-	 * this.sceneAttributes; }
-	 * 
-	 *//**
-		 * Gets the Ambient Light data structure
-		 *
-		 * @return Ambient Light data structure
-		 */
-	/*
-	 * public Map<String, String> getAmbientLightAttributes() { return
-	 * this.ambientLightAttributes; }
-	 * 
-	 *//**
-		 * Gets the Planes data structure
-		 *
-		 * @return Planes data structure
-		 */
-	/*
-	 * public List<Map<String, String>> getPlanes() { return this.planes; }
-	 * 
-	 *//**
-		 * Gets the Spheres data structure
-		 *
-		 * @return Spheres data structure
-		 */
-	/*
-	 * public List<Map<String, String>> getSpheres() { return this.spheres; }
-	 * 
-	 *//**
-		 * Gets the Triangles data structure
-		 *
-		 * @return Triangles data structure
-		 *//*
-			 * public List<Map<String, String>> getTriangles() { return this.triangles; }
-			 */
+public class SceneDescriptor implements AutoCloseable {
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        // scene files have no use for DTDs, and must not reach for external entities
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final InputStream input;
+    private final XMLStreamReader reader;
+    private final Path directory;
+    // depth of the current element, the root is 1
+    private int depth = 0;
+
+    /**
+     * Constructor to open an XML file for streaming
+     *
+     * @param filePath XML file path
+     * @throws IOException        if the file can't be opened
+     * @throws XMLStreamException if the file is not XML
+     */
+    public SceneDescriptor(Path filePath) throws IOException, XMLStreamException {
+        directory = filePath.toAbsolutePath().getParent();
+        input = Files.newInputStream(filePath);
+        try {
+            reader = FACTORY.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Move to the next element start
+     *
+     * @return false at the end of the document
+     * @throws XMLStreamException if the document is malformed
+     */
+    public boolean nextElement() throws XMLStreamException {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    ++depth;
+                    return true;
+                }
+                case XMLStreamConstants.END_ELEMENT -> --depth;
+                default -> {
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the name of the current element
+     *
+     * @return the element name
+     */
+    public String getName() {
+        return reader.getLocalName();
+    }
+
+    /**
+     * Get the depth of the current element - the root depth is 1, its children 2 and so on
+     *
+     * @return the element depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Checks whether the current element has an attribute
+     *
+     * @param name attribute name
+     * @return true if the attribute is present
+     */
+    public boolean has(String name) {
+        return reader.getAttributeValue(null, name) != null;
+    }
+
+    /**
+     * Get a required attribute of the current element
+     *
+     * @param name attribute name
+     * @return attribute value
+     * @throws XMLStreamException if the attribute is missing
+     */
+    public String getAttribute(String name) throws XMLStreamException {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null)
+            throw error("missing attribute " + name);
+        return value;
+    }
+
+    /**
+     * Get a file attribute of the current element, relative to the XML file directory
+     *
+     * @param name attribute name
+     * @return the file path
+     * @throws XMLStreamException if the attribute is missing
+     */
+    public Path getPath(String name) throws XMLStreamException {
+        return directory.resolve(getAttribute(name));
+    }
+
+    /**
+     * Get a number attribute of the current element
+     *
+     * @param name attribute name
+     * @return the number
+     * @throws XMLStreamException if the attribute is missing or is not a single number
+     */
+    public double getDouble(String name) throws XMLStreamException {
+        return numbers(name, getAttribute(name), 1)[0];
+    }
+
+    /**
+     * Get an optional number attribute of the current element
+     *
+     * @param name         attribute name
+     * @param defaultValue the value of a missing attribute
+     * @return the number
+     * @throws XMLStreamException if the attribute is not a single number
+     */
+    public double getDouble(String name, double defaultValue) throws XMLStreamException {
+        return has(name) ? getDouble(name) : defaultValue;
+    }
+
+    /**
+     * Get an optional triad attribute of the current element - three numbers, or one number for all three
+     *
+     * @param name         attribute name
+     * @param defaultValue the value of a missing attribute
+     * @return the triad
+     * @throws XMLStreamException if the attribute is neither one nor three numbers
+     */
+    public Double3 getDouble3(String name, Double3 defaultValue) throws XMLStreamException {
+        if (!has(name))
+            return defaultValue;
+        String value = getAttribute(name);
+        double[] numbers = count(value) == 1 ? numbers(name, value, 1) : numbers(name, value, 3);
+        return numbers.length == 1 ? new Double3(numbers[0]) : new Double3(numbers[0], numbers[1], numbers[2]);
+    }
+
+    /**
+     * Get a point attribute of the current element
+     *
+     * @param name attribute name
+     * @return the point
+     * @throws XMLStreamException if the attribute is missing or is not three numbers
+     */
+    public Point getPoint(String name) throws XMLStreamException {
+        double[] xyz = numbers(name, getAttribute(name), 3);
+        return new Point(xyz[0], xyz[1], xyz[2]);
+    }
+
+    /**
+     * Get a list of points attribute of the current element
+     *
+     * @param name attribute name
+     * @return the points
+     * @throws XMLStreamException if the attribute is missing or a point is not three numbers
+     */
+    public Point[] getPoints(String name) throws XMLStreamException {
+        String[] values = getAttribute(name).split(",");
+        Point[] points = new Point[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            double[] xyz = numbers(name, values[i], 3);
+            points[i] = new Point(xyz[0], xyz[1], xyz[2]);
+        }
+        return points;
+    }
+
+    /**
+     * Get a vector attribute of the current element
+     *
+     * @param name attribute name
+     * @return the vector
+     * @throws XMLStreamException if the attribute is missing, is not three numbers or is the zero vector
+     */
+    public Vector getVector(String name) throws XMLStreamException {
+        double[] xyz = numbers(name, getAttribute(name), 3);
+        try {
+            return new Vector(xyz[0], xyz[1], xyz[2]);
+        } catch (IllegalArgumentException e) {
+            throw error(name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get an optional color attribute of the current element
+     *
+     * @param name         attribute name
+     * @param defaultValue the value of a missing attribute
+     * @return the color
+     * @throws XMLStreamException if the attribute is not three non-negative numbers
+     */
+    public Color getColor(String name, Color defaultValue) throws XMLStreamException {
+        if (!has(name))
+            return defaultValue;
+        double[] rgb = numbers(name, getAttribute(name), 3);
+        try {
+            return new Color(rgb[0], rgb[1], rgb[2]);
+        } catch (IllegalArgumentException e) {
+            throw error(name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make an error pointing at the current element
+     *
+     * @param message the error description
+     * @return the error, with the line and column of the element
+     */
+    public XMLStreamException error(String message) {
+        return new XMLStreamException("<" + getName() + ">: " + message, reader.getLocation());
+    }
+
+    @Override
+    public void close() throws XMLStreamException, IOException {
+        try {
+            reader.close();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Count the space separated numbers of a value
+     *
+     * @param value the attribute value
+     * @return amount of numbers
+     */
+    private static int count(String value) {
+        int count = 0;
+        boolean inside = false;
+        for (int i = 0; i < value.length(); ++i) {
+            boolean blank = Character.isWhitespace(value.charAt(i));
+            if (!blank && !inside)
+                ++count;
+            inside = !blank;
+        }
+        return count;
+    }
+
+    /**
+     * Parse the space separated numbers of a value
+     *
+     * @param name     attribute name (for the error message)
+     * @param value    the attribute value
+     * @param expected the amount of numbers the value must have
+     * @return the numbers
+     * @throws XMLStreamException if the value is not the expected amount of numbers
+     */
+    private double[] numbers(String name, String value, int expected) throws XMLStreamException {
+        String[] words = value.trim().split("\\s+");
+        if (words.length != expected)
+            throw error(name + " must have " + expected + (expected == 1 ? " number" : " numbers"));
+        double[] numbers = new double[expected];
+        try {
+            for (int i = 0; i < expected; ++i)
+                numbers[i] = Double.parseDouble(words[i]);
+        } catch (NumberFormatException e) {
+            throw error(name + ": bad number " + e.getMessage());
+        }
+        return numbers;
+    }
 }
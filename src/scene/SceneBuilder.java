@@ -1,173 +1,202 @@
 package scene;
 
-import geometries.Geometries;
-import geometries.Plane;
-import geometries.Sphere;
-import geometries.Triangle;
+import geometries.*;
 import lighting.AmbientLight;
-import scence.parser.SceneDescriptor;
-
-import org.xml.sax.SAXException;
-
+import lighting.DirectionalLight;
+import lighting.PointLight;
+import lighting.SpotLight;
 import primitives.*;
+import scence.parser.MeshLoader;
+import scence.parser.SceneDescriptor;
 
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
- * This class builds a Scene object based on parsed XML data structures
+ * This class builds a Scene object from an XML file
+ * <p>
+ * The file is streamed (see {@link SceneDescriptor}) and every geometry and light is made as soon as
+ * its element is read, so the memory follows the scene and not the document. The elements:
+ * <ul>
+ * <li>{@code scene} (the root) - {@code background-color}</li>
+ * <li>{@code ambient-light} - {@code color}, {@code k}</li>
+ * <li>{@code geometries} - a group of geometries; groups may be nested</li>
+ * <li>{@code sphere} ({@code center}, {@code radius}), {@code plane} ({@code q0} and {@code normal},
+ * or {@code p1}, {@code p2}, {@code p3}), {@code triangle} ({@code p1}, {@code p2}, {@code p3}),
+ * {@code polygon} ({@code vertices}), {@code tube} ({@code origin}, {@code direction}, {@code radius}),
+ * {@code cylinder} (a tube with {@code height}) and {@code mesh} ({@code file} - OBJ or binary PLY,
+ * and an optional {@code cache}); every geometry may have an {@code emission} color and a
+ * {@code material} child element ({@code kd}, {@code ks}, {@code kr}, {@code kt}, {@code shininess})</li>
+ * <li>{@code lights} - a group of lights: {@code point-light} ({@code color}, {@code position},
+ * {@code kc}, {@code kl}, {@code kq}), {@code spot-light} (a point light with {@code direction} and
+ * {@code narrow-beam}) and {@code directional-light} ({@code color}, {@code direction})</li>
+ * </ul>
+ * Paths of mesh files are relative to the XML file.
  *
  * @author Shirel Cohen & Neomi Golkin
  */
 public class SceneBuilder {
-	/*
-	 * private final SceneDescriptor sceneDesc; private final Scene scene;
-	 * 
-	 *//**
-		 * Constructor to initialize this class and to start building the scene based on
-		 * the parsed XML data
-		 *
-		 * @param filePath XML file path
-		 * @param scene    scene object (can be null)
-		 * @throws ParserConfigurationException .
-		 * @throws IOException                  .
-		 * @throws SAXException                 .
-		 */
-	/*
-	 * public SceneBuilder(String filePath, Scene scene) throws
-	 * ParserConfigurationException, IOException, SAXException { this.scene = scene
-	 * != null ? scene : new Scene("XML Scene"); this.sceneDesc = new
-	 * SceneDescriptor(filePath);
-	 * 
-	 * this.buildScene(); this.buildAmbientLight();
-	 * 
-	 * this.scene.setGeometries(new Geometries()); if (this.sceneDesc.getPlanes() !=
-	 * null) this.buildPlanes(); if (this.sceneDesc.getSpheres() != null)
-	 * this.buildSpheres(); if (this.sceneDesc.getTriangles() != null)
-	 * this.buildTriangles(); }
-	 * 
-	 *//**
-		 * Util method that converts a string of 3 doubles to Point. DRY (Do not Repeat
-		 * Yourself)
-		 *
-		 * @param value provided string
-		 * @return Point object
-		 */
-	/*
-	 * private Point getPointFromValue(String value) { String[] point =
-	 * value.split(" ");
-	 * 
-	 * if (point.length != 3) return null;
-	 * 
-	 * return new Point( Double.parseDouble(point[0]), Double.parseDouble(point[1]),
-	 * Double.parseDouble(point[2]) ); }
-	 * 
-	 *//**
-		 * Sets the Scene attributes
-		 */
-	/*
-	 * private void buildScene() { Map<String, String> sceneAttributes =
-	 * this.sceneDesc.getSceneAttributes();
-	 * 
-	 * for (String key : sceneAttributes.keySet()) { switch (key) { case
-	 * "background-color": String[] rgb = sceneAttributes.get(key).split(" "); if
-	 * (rgb.length == 3) try { this.scene.setBackground( new Color(
-	 * Integer.parseInt(rgb[0]), Integer.parseInt(rgb[1]), Integer.parseInt(rgb[2])
-	 * ) ); } catch (NumberFormatException e) {
-	 * this.scene.setBackground(Color.BLACK); } else
-	 * this.scene.setBackground(Color.BLACK); break; default: break; } } }
-	 * 
-	 *//**
-		 * Sets the Ambient Light attributes
-		 */
-	/*
-	 * private void buildAmbientLight() { Map<String, String> ambientLightAttributes
-	 * = this.sceneDesc.getAmbientLightAttributes();
-	 * 
-	 * Color color = Color.BLACK; double k = 0;
-	 * 
-	 * for (String key : ambientLightAttributes.keySet()) { switch (key) { case
-	 * "color": String[] rgb = ambientLightAttributes.get(key).split(" ");
-	 * 
-	 * if (rgb.length != 3) break;
-	 * 
-	 * try { color = new Color( Integer.parseInt(rgb[0]), Integer.parseInt(rgb[1]),
-	 * Integer.parseInt(rgb[2])); } catch (NumberFormatException e) {} break; case
-	 * "k": if (ambientLightAttributes.get(key).contains(" ")) break;
-	 * 
-	 * try { k = Double.parseDouble(ambientLightAttributes.get(key)); } catch
-	 * (NumberFormatException e) {} break; default: break; } }
-	 * 
-	 * this.scene.setAmbientLight(new AmbientLight(color, k)); }
-	 * 
-	 *//**
-		 * Adds the Planes as Geometries
-		 */
-	/*
-	 * private void buildPlanes() { List<Map<String, String>> planes =
-	 * this.sceneDesc.getPlanes();
-	 * 
-	 * for (Map<String, String> plane : planes) { if (Set.of("p1", "p2",
-	 * "p3").equals(plane.keySet())) { Point p1, p2, p3;
-	 * 
-	 * try { p1 = getPointFromValue(plane.get("p1")); p2 =
-	 * getPointFromValue(plane.get("p2")); p3 = getPointFromValue(plane.get("p3"));
-	 * } catch (NumberFormatException e) { continue; }
-	 * 
-	 * if (p1 != null && p2 != null && p3 != null) this.scene.geometries.add(new
-	 * Plane(p1, p2, p3)); } else if (Set.of("q0", "normal").equals(plane.keySet()))
-	 * { Point q0; Vector normal;
-	 * 
-	 * try { q0 = getPointFromValue(plane.get("q0")); normal = (Vector)
-	 * getPointFromValue(plane.get("normal")); } catch (NumberFormatException e) {
-	 * continue; }
-	 * 
-	 * if (q0 != null && normal != null) this.scene.geometries.add(new Plane(q0,
-	 * normal)); } } }
-	 * 
-	 *//**
-		 * Adds the Spheres as Geometries
-		 */
-	/*
-	 * private void buildSpheres() { List<Map<String, String>> spheres =
-	 * this.sceneDesc.getSpheres();
-	 * 
-	 * for (Map<String, String> sphere : spheres) { if (Set.of("center",
-	 * "radius").equals(sphere.keySet())) { Point center; double radius;
-	 * 
-	 * try { center = getPointFromValue(sphere.get("center")); radius =
-	 * Double.parseDouble(sphere.get("radius")); } catch (NumberFormatException e) {
-	 * continue; }
-	 * 
-	 * if (center != null) this.scene.geometries.add(new Sphere(center, radius)); }
-	 * } }
-	 * 
-	 *//**
-		 * Adds the Triangles as Geometries
-		 */
-	/*
-	 * private void buildTriangles() { List<Map<String, String>> triangles =
-	 * this.sceneDesc.getTriangles();
-	 * 
-	 * for (Map<String, String> triangle : triangles) { if (Set.of("p1", "p2",
-	 * "p3").equals(triangle.keySet())) { Point p1, p2, p3;
-	 * 
-	 * try { p1 = getPointFromValue(triangle.get("p1")); p2 =
-	 * getPointFromValue(triangle.get("p2")); p3 =
-	 * getPointFromValue(triangle.get("p3")); } catch (NumberFormatException e) {
-	 * continue; }
-	 * 
-	 * if (p1 != null && p2 != null && p3 != null) this.scene.geometries.add(new
-	 * Triangle(p1, p2, p3)); } } }
-	 * 
-	 *//**
-		 * Gets the Scene object
-		 *
-		 * @return the Scene object
-		 *//*
-			 * public Scene getScene() { return this.scene; }
-			 */
+    private final Scene scene;
+
+    /**
+     * Constructor to build the scene from an XML file
+     *
+     * @param filePath XML file path
+     * @param scene    scene object to fill (can be null)
+     * @throws IOException        if the file (or a mesh file) can't be read
+     * @throws XMLStreamException if the file is malformed or describes an invalid scene
+     */
+    public SceneBuilder(String filePath, Scene scene) throws IOException, XMLStreamException {
+        this.scene = scene != null ? scene : new Scene("XML Scene");
+        try (SceneDescriptor descriptor = new SceneDescriptor(Path.of(filePath))) {
+            build(descriptor);
+        }
+    }
+
+    /**
+     * Gets the Scene object
+     *
+     * @return the Scene object
+     */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Build the scene as the elements stream by
+     *
+     * @param descriptor the XML stream
+     * @throws IOException        if a mesh file can't be read
+     * @throws XMLStreamException if the file is malformed or describes an invalid scene
+     */
+    private void build(SceneDescriptor descriptor) throws IOException, XMLStreamException {
+        // the open geometry groups and their depths
+        Deque<Geometries> groups = new ArrayDeque<>();
+        Deque<Integer> groupDepths = new ArrayDeque<>();
+        // the last geometry, for its material
+        Geometry geometry = null;
+        int geometryDepth = 0;
+
+        while (descriptor.nextElement()) {
+            int depth = descriptor.getDepth();
+            while (!groupDepths.isEmpty() && depth <= groupDepths.peek())
+                closeGroup(groups, groupDepths);
+            Geometries group = groups.isEmpty() ? scene.geometries : groups.peek();
+            if (depth <= geometryDepth)
+                geometry = null;
+
+            String name = descriptor.getName();
+            if (depth == 1) {
+                if (!name.equals("scene"))
+                    throw descriptor.error("the root element must be scene");
+                scene.setBackground(descriptor.getColor("background-color", Color.BLACK));
+                continue;
+            }
+            switch (name) {
+                case "ambient-light" -> scene.setAmbientLight(new AmbientLight(
+                        descriptor.getColor("color", Color.BLACK), descriptor.getDouble3("k", Double3.ZERO)));
+                case "geometries" -> {
+                    // the top group is the scene geometries, inner groups join their parent when complete
+                    groups.push(depth == 2 ? scene.geometries : new Geometries());
+                    groupDepths.push(depth);
+                }
+                case "material" -> {
+                    if (geometry == null || depth != geometryDepth + 1)
+                        throw descriptor.error("material outside a geometry");
+                    geometry.setMaterial(buildMaterial(descriptor));
+                }
+                case "lights" -> {
+                }
+                case "point-light" -> scene.lights.add(new PointLight(
+                        descriptor.getColor("color", Color.BLACK), descriptor.getPoint("position"))
+                        .setKc(descriptor.getDouble("kc", 1))
+                        .setKl(descriptor.getDouble("kl", 0))
+                        .setKq(descriptor.getDouble("kq", 0)));
+                case "spot-light" -> scene.lights.add(new SpotLight(
+                        descriptor.getColor("color", Color.BLACK), descriptor.getPoint("position"),
+                        descriptor.getVector("direction"))
+                        .setKc(descriptor.getDouble("kc", 1))
+                        .setKl(descriptor.getDouble("kl", 0))
+                        .setKq(descriptor.getDouble("kq", 0))
+                        .setNarrowBeam(descriptor.getDouble("narrow-beam", 1)));
+                case "directional-light" -> scene.lights.add(new DirectionalLight(
+                        descriptor.getColor("color", Color.BLACK), descriptor.getVector("direction")));
+                default -> {
+                    geometry = buildGeometry(descriptor);
+                    geometryDepth = depth;
+                    if (descriptor.has("emission"))
+                        geometry.setEmission(descriptor.getColor("emission", Color.BLACK));
+                    group.add(geometry);
+                }
+            }
+        }
+        while (!groups.isEmpty())
+            closeGroup(groups, groupDepths);
+    }
+
+    /**
+     * Close the innermost geometry group - add it to its parent, now that its bounds are known
+     *
+     * @param groups      the open groups
+     * @param groupDepths the depths of the open groups
+     */
+    private void closeGroup(Deque<Geometries> groups, Deque<Integer> groupDepths) {
+        Geometries group = groups.pop();
+        groupDepths.pop();
+        if (group != scene.geometries)
+            (groups.isEmpty() ? scene.geometries : groups.peek()).add(group);
+    }
+
+    /**
+     * Make the geometry of the current element
+     *
+     * @param descriptor the XML stream
+     * @return the geometry
+     * @throws IOException        if a mesh file can't be read
+     * @throws XMLStreamException if the element is not a valid geometry
+     */
+    private static Geometry buildGeometry(SceneDescriptor descriptor) throws IOException, XMLStreamException {
+        try {
+            return switch (descriptor.getName()) {
+                case "sphere" -> new Sphere(descriptor.getPoint("center"), descriptor.getDouble("radius"));
+                case "plane" -> descriptor.has("q0")
+                        ? new Plane(descriptor.getPoint("q0"), descriptor.getVector("normal"))
+                        : new Plane(descriptor.getPoint("p1"), descriptor.getPoint("p2"), descriptor.getPoint("p3"));
+                case "triangle" -> new Triangle(
+                        descriptor.getPoint("p1"), descriptor.getPoint("p2"), descriptor.getPoint("p3"));
+                case "polygon" -> new Polygon(descriptor.getPoints("vertices"));
+                case "tube" -> new Tube(
+                        new Ray(descriptor.getPoint("origin"), descriptor.getVector("direction")),
+                        descriptor.getDouble("radius"));
+                case "cylinder" -> new Cylinder(
+                        new Ray(descriptor.getPoint("origin"), descriptor.getVector("direction")),
+                        descriptor.getDouble("radius"), descriptor.getDouble("height"));
+                case "mesh" -> descriptor.has("cache")
+                        ? MeshLoader.load(descriptor.getPath("file"), descriptor.getPath("cache"))
+                        : MeshLoader.load(descriptor.getPath("file"));
+                default -> throw descriptor.error("unknown element");
+            };
+        } catch (IllegalArgumentException e) {
+            throw descriptor.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Make the material of the current element
+     *
+     * @param descriptor the XML stream
+     * @return the material
+     * @throws XMLStreamException if an attribute is malformed
+     */
+    private static Material buildMaterial(SceneDescriptor descriptor) throws XMLStreamException {
+        return new Material()
+                .setkD(descriptor.getDouble3("kd", Double3.ZERO))
+                .setkS(descriptor.getDouble3("ks", Double3.ZERO))
+                .setKr(descriptor.getDouble3("kr", Double3.ZERO))
+                .setKt(descriptor.getDouble3("kt", Double3.ZERO))
+                .setShininess((int) descriptor.getDouble("shininess", 0));
+    }
 }
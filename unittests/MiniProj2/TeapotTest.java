@@ -1566,6 +1566,7 @@ public class TeapotTest {
 				new Triangle(pnts[529], pnts[530], pnts[470]).setEmission(color).setMaterial(mat) //
 		);
 		scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(100, 0, -100)).setKq(0.000001));
+		scene.geometries.buildBVH(); // arrange the triangles in a bounding volume hierarchy
 
 		//camera.setRayTracer(new SimpleRayTrancer(scene)).renderImage().printGrid(50, new Color(YELLOW)).writeToImage();
 		camera.setRayTracer(new SimpleRayTrancer(scene)); // הגדרת ה-RayTracer
@@ -0,0 +1,179 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing BVHBuilder
+ */
+class BVHBuilderTest {
+    /**
+     * Build the same scene twice - once flat and once as a hierarchy
+     *
+     * @param bvh whether to build the hierarchy
+     * @return the scene geometries
+     */
+    private Geometries scene(boolean bvh) {
+        Geometries geometries = new Geometries(
+                new Plane(new Point(0, 0, -10), new Vector(0, 0, 1)),
+                new Geometries(
+                        new Sphere(new Point(0, 0, 0), 1),
+                        new Sphere(new Point(5, 0, 0), 1)),
+                new Sphere(new Point(10, 0, 0), 1),
+                new Triangle(new Point(-5, -1, -1), new Point(-5, 1, -1), new Point(-5, 0, 1)),
+                new Triangle(new Point(15, -1, -1), new Point(15, 1, -1), new Point(15, 0, 1))
+        );
+        return bvh ? geometries.buildBVH(new BVHBuilder().setLeafSize(1)) : geometries;
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#buildBVH(BVHBuilder)}
+     */
+    @Test
+    void testBuildBVH() {
+        Geometries flat = scene(false);
+        Geometries bvh = scene(true);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: ray along the row of geometries crosses all of them
+        Ray ray = new Ray(new Point(-10, 0, 0), new Vector(1, 0, 0));
+        assertEquals(new HashSet<>(flat.findIntersections(ray)), new HashSet<>(bvh.findIntersections(ray)),
+                "EP01: Wrong intersections");
+        assertEquals(8, bvh.findIntersections(ray).size(), "EP01: Wrong number of intersections");
+
+        // EP02: Morton code splits find the same intersections
+        Geometries morton = scene(false).buildBVH(new BVHBuilder().setLeafSize(1)
+                .setConstruction(BVHBuilder.Construction.MORTON));
+        assertEquals(new HashSet<>(flat.findIntersections(ray)), new HashSet<>(morton.findIntersections(ray)),
+                "EP02: Wrong intersections");
+
+        // EP03: ray towards the plane only
+        ray = new Ray(new Point(0, 5, 0), new Vector(0, 0, -1));
+        assertEquals(List.of(new Point(0, 5, -10)), bvh.findIntersections(ray), "EP03: Wrong intersections");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: ray misses every box
+        ray = new Ray(new Point(0, 5, 0), new Vector(0, 0, 1));
+        assertNull(bvh.findIntersections(ray), "BV01: Wrong intersections");
+
+        // BV02: empty geometries
+        assertNull(new Geometries().buildBVH().findIntersections(ray), "BV02: Empty geometries");
+    }
+
+    /**
+     * Test method for {@link geometries.BVHBuilder#layout(double[])}
+     */
+    @Test
+    void testLayout() {
+        // boxes enough for binned splits over parallel chunks
+        Random random = new Random(7);
+        double[] bounds = new double[70000 * BVHLayout.BOX_SIZE];
+        for (int i = 0; i < bounds.length; i += BVHLayout.BOX_SIZE)
+            for (int axis = 0; axis < 3; ++axis) {
+                bounds[i + axis] = random.nextDouble() * 100;
+                bounds[i + 3 + axis] = bounds[i + axis] + random.nextDouble();
+            }
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: SAH splits - every primitive is in one leaf, and every box holds its subtree
+        checkLayout(new BVHBuilder().layout(bounds), bounds, "EP01");
+        // EP02: Morton code splits
+        checkLayout(new BVHBuilder().setConstruction(BVHBuilder.Construction.MORTON).layout(bounds), bounds, "EP02");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: all the centroids coincide - a single leaf
+        double[] same = new double[3000 * BVHLayout.BOX_SIZE];
+        for (int i = 0; i < same.length; i += BVHLayout.BOX_SIZE)
+            same[i + 3] = same[i + 4] = same[i + 5] = 1;
+        BVHLayout layout = new BVHBuilder().layout(same);
+        assertEquals(1, layout.nodeCount, "BV01: Wrong amount of nodes");
+        // BV02: ... but Morton code splits keep to the leaf size
+        layout = new BVHBuilder().setConstruction(BVHBuilder.Construction.MORTON).layout(same);
+        checkLayout(layout, same, "BV02");
+        for (int node = 0; node < layout.nodeCount; ++node)
+            assertTrue(layout.nodes[node * BVHLayout.NODE_SIZE + 1] <= 4, "BV02: Leaf too large");
+    }
+
+    /**
+     * Check that every primitive is in exactly one leaf, and that the box of every node holds its subtree
+     *
+     * @param layout the layout
+     * @param bounds the primitive boxes
+     * @param test   the test name for the messages
+     */
+    private static void checkLayout(BVHLayout layout, double[] bounds, String test) {
+        int[] seen = new int[bounds.length / BVHLayout.BOX_SIZE];
+        for (int node = 0; node < layout.nodeCount; ++node) {
+            int base = node * BVHLayout.NODE_SIZE;
+            if (layout.nodes[base + 1] > 0) {
+                for (int i = layout.nodes[base]; i < layout.nodes[base] + layout.nodes[base + 1]; ++i) {
+                    ++seen[layout.order[i]];
+                    assertContains(layout.bounds, node, bounds, layout.order[i], test + ": Primitive out of its leaf");
+                }
+            } else {
+                // the left child follows its parent
+                assertContains(layout.bounds, node, layout.bounds, node + 1, test + ": Child out of its node");
+                assertContains(layout.bounds, node, layout.bounds, layout.nodes[base], test + ": Child out of its node");
+            }
+        }
+        for (int count : seen)
+            assertEquals(1, count, test + ": Primitive not in exactly one leaf");
+    }
+
+    /**
+     * Check that a box holds another
+     *
+     * @param outer   the array of the holding box
+     * @param o       index of the holding box
+     * @param inner   the array of the held box
+     * @param i       index of the held box
+     * @param message the failure message
+     */
+    private static void assertContains(double[] outer, int o, double[] inner, int i, String message) {
+        for (int axis = 0; axis < 3; ++axis) {
+            assertTrue(outer[o * 6 + axis] <= inner[i * 6 + axis], message);
+            assertTrue(outer[o * 6 + 3 + axis] >= inner[i * 6 + 3 + axis], message);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.BVHBuilder#setLeafSize(int)}
+     */
+    @Test
+    void testSetLeafSize() {
+        // BV01: leaf must hold at least one primitive
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setLeafSize(0),
+                "BV01: Zero leaf size");
+    }
+
+    /**
+     * Test method for {@link geometries.BVHBuilder#setWidth(int)}
+     */
+    @Test
+    void testSetWidth() {
+        // BV01: a node has at least two children
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setWidth(1), "BV01: Width 1");
+        // BV02: a node has at most eight children
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setWidth(9), "BV02: Width 9");
+        // BV03: the widest node
+        assertEquals(8, new BVHBuilder().setWidth(8).getWidth(), "BV03: Wrong width");
+    }
+
+    /**
+     * Test method for {@link geometries.BVHBuilder#setRefitLimit(double)}
+     */
+    @Test
+    void testSetRefitLimit() {
+        // BV01: refits can't be allowed to make the hierarchy faster than its build
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder().setRefitLimit(0.99),
+                "BV01: Limit below 1");
+        // BV02: rebuild on any degradation
+        assertEquals(1, new BVHBuilder().setRefitLimit(1).getRefitLimit(), "BV02: Wrong limit");
+    }
+}
@@ -0,0 +1,135 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Testing BoxKernel
+ */
+class BoxKernelTest {
+    /**
+     * Random primitive boxes, some of them flat
+     *
+     * @param count amount of boxes
+     * @return the boxes, six values per box (min x,y,z then max x,y,z)
+     */
+    private static double[] boxes(int count) {
+        Random random = new Random(31);
+        double[] bounds = new double[count * BVHLayout.BOX_SIZE];
+        for (int i = 0; i < count; ++i)
+            for (int axis = 0; axis < 3; ++axis) {
+                double min = random.nextDouble() * 100 - 50;
+                bounds[i * BVHLayout.BOX_SIZE + axis] = min;
+                bounds[i * BVHLayout.BOX_SIZE + 3 + axis] = i % 5 == axis ? min : min + random.nextDouble() * 4;
+            }
+        return bounds;
+    }
+
+    /**
+     * Test method for {@link geometries.BoxKernel#enter(double[], byte[], int, int, int, int, double, double, double, double, double, double, double, double[])}
+     */
+    @Test
+    void testEnter() {
+        // the kernel needs the vector module - without it the hierarchies test the children one by one
+        assumeTrue(BoxKernel.SIMD != null, "the SIMD kernel isn't compiled, or the vector module is missing");
+        BoxKernel kernel = BoxKernel.SIMD;
+        int width = kernel.lanes();
+        assumeTrue(width >= 2 && width <= 8, "no hierarchy node is as wide as the vector");
+
+        BVHLayout layout = new BVHBuilder().setLeafSize(2).layout(boxes(600));
+        WideBVH bvh = new WideBVH(layout, width);
+        Random random = new Random(13);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: random rays - the same children entered at the same distances as the scalar test
+        for (int r = 0; r < 300; ++r)
+            check(kernel, bvh, random.nextGaussian() * 40, random.nextGaussian() * 40, random.nextGaussian() * 40,
+                    1 / random.nextGaussian(), 1 / random.nextGaussian(), 1 / random.nextGaussian(),
+                    r % 2 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 60, "EP01");
+
+        // EP02: rays almost parallel to the axes - huge, but finite, inverses
+        for (int r = 0; r < 300; ++r) {
+            double[] inverses = {1 / random.nextGaussian(), 1 / random.nextGaussian(), 1 / random.nextGaussian()};
+            inverses[r % 3] = r % 2 == 0 ? 1e200 : -1e200;
+            if (r % 4 == 0)
+                inverses[(r + 1) % 3] = 1e150;
+            check(kernel, bvh, random.nextGaussian() * 40, random.nextGaussian() * 40, random.nextGaussian() * 40,
+                    inverses[0], inverses[1], inverses[2], Double.POSITIVE_INFINITY, "EP02");
+        }
+
+        // ============= Boundary Values Tests =================
+        // BVA01: rays from the planes of the node frames
+        for (int node = 0; node < bvh.getNodeCount(); ++node) {
+            int frame = node * WideBVH.FRAME_SIZE;
+            check(kernel, bvh, bvh.frames[frame], bvh.frames[frame + 1], bvh.frames[frame + 2],
+                    1 / random.nextGaussian(), 1 / random.nextGaussian(), 1 / random.nextGaussian(),
+                    Double.POSITIVE_INFINITY, "BVA01");
+        }
+
+        // BVA02: rays parallel to the axes (the kernel is skipped) - every box the ray passes through is visited
+        boolean[] visited = new boolean[600];
+        double[] bounds = boxes(600);
+        for (int r = 0; r < 100; ++r) {
+            double ox = random.nextGaussian() * 30, oy = random.nextGaussian() * 30, oz = random.nextGaussian() * 30;
+            double invX = r % 3 == 0 ? Double.POSITIVE_INFINITY : 1 / random.nextGaussian();
+            double invY = r % 3 == 1 ? Double.NEGATIVE_INFINITY : 1 / random.nextGaussian();
+            double invZ = r % 3 == 2 || r % 5 == 0 ? Double.POSITIVE_INFINITY : 1 / random.nextGaussian();
+            Arrays.fill(visited, false);
+            WideBVH.Stack stack = bvh.start();
+            for (int leaf = bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY); leaf >= 0;
+                 leaf = bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY))
+                for (int i = bvh.first(leaf); i < bvh.first(leaf) + bvh.count(leaf); ++i)
+                    visited[layout.order[i]] = true;
+            for (int i = 0; i < 600; ++i)
+                if (WideBVH.hitsBox(bounds, i, ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY))
+                    assertTrue(visited[i], "BVA02: Primitive " + i + " missed");
+        }
+    }
+
+    /**
+     * Compare the kernel with the scalar test of the quantized child boxes, on every node
+     *
+     * @param kernel      the kernel
+     * @param bvh         the hierarchy, as wide as the kernel
+     * @param ox          ray head x
+     * @param oy          ray head y
+     * @param oz          ray head z
+     * @param invX        inverse of the ray direction x (finite)
+     * @param invY        inverse of the ray direction y (finite)
+     * @param invZ        inverse of the ray direction z (finite)
+     * @param maxDistance the farthest distance of interest
+     * @param test        the test name for the messages
+     */
+    private static void check(BoxKernel kernel, WideBVH bvh, double ox, double oy, double oz,
+                              double invX, double invY, double invZ, double maxDistance, String test) {
+        int width = bvh.width;
+        int nearX = invX >= 0 ? 0 : 3 * width;
+        int nearY = (invY >= 0 ? 1 : 4) * width;
+        int nearZ = (invZ >= 0 ? 2 : 5) * width;
+        double[] distances = new double[width];
+        double[] box = new double[BVHLayout.BOX_SIZE];
+        for (int node = 0; node < bvh.getNodeCount(); ++node) {
+            int entered = kernel.enter(bvh.frames, bvh.boxes, node, nearX, nearY, nearZ,
+                    ox, oy, oz, invX, invY, invZ, maxDistance, distances);
+            for (int c = 0; c < width && bvh.count(node * width + c) >= 0; ++c) {
+                bvh.childBox(node * width + c, box);
+                // the scalar test of WideBVH: near planes narrow the entry, far planes the exit
+                double tMin = Math.max(0, (box[invX >= 0 ? 0 : 3] - ox) * invX);
+                tMin = Math.max(tMin, (box[invY >= 0 ? 1 : 4] - oy) * invY);
+                tMin = Math.max(tMin, (box[invZ >= 0 ? 2 : 5] - oz) * invZ);
+                double tMax = Math.min(maxDistance, (box[invX >= 0 ? 3 : 0] - ox) * invX);
+                tMax = Math.min(tMax, (box[invY >= 0 ? 4 : 1] - oy) * invY);
+                tMax = Math.min(tMax, (box[invZ >= 0 ? 5 : 2] - oz) * invZ);
+                boolean expected = tMin <= tMax * WideBVH.ROUNDING;
+                assertEquals(expected, (entered & 1 << c) != 0, test + ": Wrong child entered");
+                if (expected)
+                    assertEquals(tMin, distances[c], test + ": Wrong entry distance");
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Testing FaceKernel
+ */
+class FaceKernelTest {
+    /**
+     * Test method for {@link geometries.FaceKernel#layout(double[], int[])}
+     */
+    @Test
+    void testLayout() {
+        double[] vertices = {1, 2, 3, 4, 6, 8, 0, 0, 1, 5, 5, 5};
+        int[] indices = {0, 1, 2, 3, 2, 0};
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the first vertex and the edges, component by component
+        double[] faces = FaceKernel.layout(vertices, indices);
+        assertArrayEquals(new double[]{
+                1, 5, 2, 5, 3, 5,
+                3, -5, 4, -5, 5, -4,
+                -1, -4, -2, -3, -2, -2
+        }, faces, "EP01: Wrong layout");
+    }
+
+    /**
+     * Test method for {@link geometries.FaceKernel#findDistances(double[], int, int, int, double, double, double, double, double, double, double[])}
+     */
+    @Test
+    void testFindDistances() {
+        // the kernel needs the vector module - without it the meshes keep to the scalar test
+        assumeTrue(FaceKernel.SIMD != null, "the SIMD kernel isn't compiled, or the vector module is missing");
+
+        Random random = new Random(3);
+        int faceCount = 37;
+        double[] vertices = new double[9 * faceCount];
+        int[] indices = new int[3 * faceCount];
+        for (int i = 0; i < vertices.length; ++i)
+            vertices[i] = random.nextDouble() * 2 - 1;
+        for (int i = 0; i < indices.length; ++i)
+            indices[i] = i;
+        double[] faces = FaceKernel.layout(vertices, indices);
+        double[] t = new double[faceCount];
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the same distances as the scalar triangle test, for full and partial registers
+        for (int r = 0; r < 200; ++r) {
+            Ray ray = new Ray(new Point(random.nextDouble() - 0.5, random.nextDouble() - 0.5, 3),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+            int first = random.nextInt(faceCount);
+            int count = 1 + random.nextInt(faceCount - first);
+            FaceKernel.SIMD.findDistances(faces, faceCount, first, count,
+                    ray.getP0().getX(), ray.getP0().getY(), ray.getP0().getZ(),
+                    ray.getDir().getX(), ray.getDir().getY(), ray.getDir().getZ(), t);
+            for (int i = 0; i < count; ++i) {
+                int f = first + i;
+                Triangle triangle = new Triangle(
+                        new Point(vertices[9 * f], vertices[9 * f + 1], vertices[9 * f + 2]),
+                        new Point(vertices[9 * f + 3], vertices[9 * f + 4], vertices[9 * f + 5]),
+                        new Point(vertices[9 * f + 6], vertices[9 * f + 7], vertices[9 * f + 8]));
+                Intersectable.HitRecord hit = new Intersectable.HitRecord();
+                double expected = triangle.findClosestHitHelper(ray, hit) ? hit.t : Double.NaN;
+                assertEquals(expected, t[i], 0, "EP01: Wrong distance of face " + f);
+            }
+        }
+    }
+}
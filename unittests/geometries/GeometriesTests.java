@@ -1,5 +1,7 @@
 package geometries;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import primitives.*;
 
@@ -12,6 +14,26 @@ import static org.junit.jupiter.api.Assertions.*;
  * @author 
  */
 class GeometriesTest {
+    // the global bounding box switch, which other tests may have turned off
+    private boolean _bvh;
+
+    /**
+     * Turn the bounding boxes on, as the tests expect
+     */
+    @BeforeEach
+    void setUp() {
+        _bvh = Intersectable.BVH;
+        Intersectable.BVH = true;
+    }
+
+    /**
+     * Restore the bounding box switch
+     */
+    @AfterEach
+    void tearDown() {
+        Intersectable.BVH = _bvh;
+    }
+
     /**
      * Test method for {@link geometries.Geometries#findIntersections(primitives.Ray)}
      */
@@ -64,4 +86,159 @@ class GeometriesTest {
                 "BVA04: Wrong intersections"
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestHit(primitives.Ray, geometries.Intersectable.HitRecord)}
+     */
+    @Test
+    void testFindClosestHit() {
+        Sphere near = new Sphere(new Point(0, 0, -5), 1);
+        Geometries geometries = new Geometries(
+                new Sphere(new Point(0, 0, -10), 1),
+                near,
+                new Plane(new Point(0, 0, -20), new Vector(0, 0, 1))
+        );
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the nearest of several hits is recorded with its distance
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+        assertTrue(geometries.findClosestHit(ray, hit), "EP01: No hit found");
+        assertSame(near, hit.geometry, "EP01: Wrong geometry");
+        assertEquals(4, hit.t, 1e-10, "EP01: Wrong distance");
+        hit.complete(ray);
+        assertEquals(new Point(0, 0, -4), hit.point, "EP01: Wrong point");
+        assertEquals(new Vector(0, 0, 1), hit.normal, "EP01: Wrong normal");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: nothing closer than the record's distance
+        assertFalse(geometries.findClosestHit(ray, new Intersectable.HitRecord().reset(3)),
+                "BVA01: Hit beyond the distance");
+
+        // BVA02: ray misses everything
+        assertFalse(geometries.findClosestHit(new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)),
+                new Intersectable.HitRecord()), "BVA02: Wrong hit");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findTransmittance(primitives.Ray, double, primitives.Double3, double)}
+     */
+    @Test
+    void testFindTransmittance() {
+        Ray ray = new Ray(new Point(0.1, 0.2, 0), new Vector(0, 0, -1));
+        Double3 ktr = new Double3(0.5);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: opaque geometries block the light before it
+        Intersectable[] occluders = {
+                new Sphere(new Point(0, 0, -5), 1),
+                new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)),
+                new Polygon(new Point(-1, -1, -5), new Point(1, -1, -5), new Point(1, 1, -5), new Point(-1, 1, -5)),
+                new Triangle(new Point(-1, -1, -5), new Point(1, -1, -5), new Point(0, 1, -5))
+        };
+        for (Intersectable occluder : occluders) {
+            assertEquals(Double3.ZERO, occluder.findTransmittance(ray, 10, ktr, 0.001),
+                    "EP01: Light not blocked by " + occluder.getClass().getSimpleName());
+            // EP02: the light is before the geometry
+            assertEquals(ktr, occluder.findTransmittance(ray, 3, ktr, 0.001),
+                    "EP02: Light blocked by " + occluder.getClass().getSimpleName());
+        }
+
+        // ============= Boundary Values Tests =================
+        // BVA01: ray from the sphere center, and from the plane, don't throw
+        assertEquals(Double3.ZERO, occluders[0].findTransmittance(
+                new Ray(new Point(0, 0, -5), new Vector(0, 0, -1)), 10, ktr, 0.001), "BVA01: Wrong center ray");
+        assertEquals(ktr, occluders[1].findTransmittance(
+                new Ray(new Point(0, 0, -5), new Vector(0, 1, -1)), 10, ktr, 0.001), "BVA01: Wrong plane ray");
+
+        // BVA02: the any-hit test agrees with the intersection list for random rays
+        java.util.Random random = new java.util.Random(7);
+        for (int i = 0; i < 1000; ++i) {
+            Ray r = new Ray(new Point(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 7),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            double distance = random.nextDouble() * 4;
+            for (Intersectable occluder : occluders)
+                assertEquals(((Geometry) occluder).findGeoIntersectionsHelper(r, distance) != null,
+                        ((Geometry) occluder).hasHit(r, distance),
+                        "BVA02: Wrong any-hit for " + occluder.getClass().getSimpleName());
+        }
+
+        // BVA03: a bounding box beyond the light isn't searched
+        boolean[] searched = {false};
+        Intersectable far = new Intersectable() {
+            @Override
+            public void createBoundingBox() {
+                box = new BoundingBox(new Point(-1, -1, -8), new Point(1, 1, -6));
+            }
+
+            @Override
+            protected List<GeoPoint> findGeoIntersectionsHelper(Ray r) {
+                searched[0] = true;
+                return null;
+            }
+
+            @Override
+            protected List<GeoPoint> findGeoIntersectionsHelper(Ray r, double maxDistance) {
+                searched[0] = true;
+                return null;
+            }
+        };
+        far.createBoundingBox();
+        assertEquals(ktr, far.findTransmittance(ray, 5, ktr, 0.001), "BVA03: Light blocked");
+        assertFalse(searched[0], "BVA03: Box beyond the light searched");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#replace(Intersectable, Intersectable)}
+     */
+    @Test
+    void testReplace() {
+        java.util.Random random = new java.util.Random(3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: moved spheres in a hierarchy - refitted, and rebuilt at once with the lowest limit - are found
+        // like in a flat list
+        for (double limit : new double[]{1.5, 1}) {
+            Sphere[] spheres = new Sphere[200];
+            for (int i = 0; i < spheres.length; ++i)
+                spheres[i] = new Sphere(new Point(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10,
+                        random.nextDouble() * 20 - 30), 0.5);
+            Geometries bvh = new Geometries(spheres).buildBVH(new BVHBuilder().setRefitLimit(limit));
+            for (int i = 0; i < 50; ++i) {
+                int k = random.nextInt(spheres.length);
+                Sphere moved = new Sphere(spheres[k].getCenter().add(new Vector(random.nextDouble() * 10 - 5,
+                        random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5)), 0.5);
+                assertTrue(bvh.replace(spheres[k], moved), "EP01: Sphere not found");
+                spheres[k] = moved;
+            }
+            Geometries flat = new Geometries(spheres);
+            for (int i = 0; i < 500; ++i) {
+                Ray ray = new Ray(new Point(0, 0, 5), new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+                Intersectable.HitRecord expected = new Intersectable.HitRecord();
+                Intersectable.HitRecord actual = new Intersectable.HitRecord();
+                assertEquals(flat.findClosestHit(ray, expected), bvh.findClosestHit(ray, actual), "EP01: Wrong hit");
+                assertSame(expected.geometry, actual.geometry, "EP01: Wrong geometry");
+            }
+        }
+
+        // EP02: a geometry moved out of the box of its nested composite is still found
+        Sphere sphere = new Sphere(new Point(0, 0, -5), 1);
+        Geometries geometries = new Geometries(new Geometries(sphere, new Sphere(new Point(3, 0, -5), 1)));
+        Sphere moved = new Sphere(new Point(0, 10, -5), 1);
+        assertTrue(geometries.replace(sphere, moved), "EP02: Sphere not found");
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+        assertTrue(geometries.findClosestHit(new Ray(new Point(0, 10, 0), new Vector(0, 0, -1)), hit),
+                "EP02: Moved sphere missed");
+        assertSame(moved, hit.geometry, "EP02: Wrong geometry");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a geometry that isn't there
+        assertFalse(geometries.replace(sphere, moved), "BVA01: Missing geometry replaced");
+
+        // BVA02: an unbounded geometry can't join a hierarchy
+        Geometries bvh = new Geometries(sphere, new Sphere(new Point(3, 0, -5), 1)).buildBVH();
+        assertThrows(IllegalArgumentException.class,
+                () -> bvh.replace(sphere, new Plane(new Point(0, 0, -5), new Vector(0, 0, 1))),
+                "BVA02: Plane moved into a hierarchy");
+    }
+}
@@ -0,0 +1,87 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing MeshCache
+ */
+class MeshCacheTest {
+    /**
+     * Test method for {@link geometries.MeshCache#read(Path)}
+     */
+    @Test
+    void testRead() throws IOException {
+        // a bumpy grid of 20x20 quads
+        int side = 21;
+        double[] vertices = new double[3 * side * side];
+        for (int i = 0, k = 0; i < side; ++i)
+            for (int j = 0; j < side; ++j) {
+                vertices[k++] = i;
+                vertices[k++] = j;
+                vertices[k++] = Math.sin(i) * Math.cos(j);
+            }
+        int[] indices = new int[6 * (side - 1) * (side - 1)];
+        for (int i = 0, k = 0; i < side - 1; ++i)
+            for (int j = 0; j < side - 1; ++j) {
+                int v = i * side + j;
+                indices[k++] = v;
+                indices[k++] = v + side;
+                indices[k++] = v + 1;
+                indices[k++] = v + 1;
+                indices[k++] = v + side;
+                indices[k++] = v + side + 1;
+            }
+        TriangleMesh mesh = new TriangleMesh(vertices, indices);
+        mesh.setEmission(new Color(10, 20, 30))
+                .setMaterial(new Material().setkD(0.5).setkS(new Double3(0.1, 0.2, 0.3)).setKt(0.25)
+                        .setShininess(40));
+        Path path = Files.createTempFile("mesh", ".cache");
+        path.toFile().deleteOnExit();
+        MeshCache.write(mesh, path);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the cached mesh finds the same hits
+        TriangleMesh cached = MeshCache.read(path);
+        assertEquals(mesh.getFaceCount(), cached.getFaceCount(), "EP01: Wrong amount of faces");
+        Random random = new Random(7);
+        for (int i = 0; i < 300; ++i) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 24 - 2, random.nextDouble() * 24 - 2, 5),
+                    new Vector(random.nextGaussian(), random.nextGaussian(), -2 - random.nextDouble()));
+            Intersectable.HitRecord expected = new Intersectable.HitRecord();
+            Intersectable.HitRecord actual = new Intersectable.HitRecord();
+            boolean found = mesh.findClosestHit(ray, expected);
+            assertEquals(found, cached.findClosestHit(ray, actual), "EP01: Wrong hit");
+            if (found) {
+                assertEquals(expected.t, actual.t, 0, "EP01: Wrong distance");
+                assertEquals(expected.complete(ray).normal, actual.complete(ray).normal, "EP01: Wrong normal");
+            }
+        }
+
+        // EP02: the material and the emission are kept
+        Material material = cached.getMaterial();
+        assertEquals(new Double3(0.5), material.kD, "EP02: Wrong kD");
+        assertEquals(new Double3(0.1, 0.2, 0.3), material.kS, "EP02: Wrong kS");
+        assertEquals(new Double3(0.25), material.kT, "EP02: Wrong kT");
+        assertEquals(Double3.ZERO, material.kR, "EP02: Wrong kR");
+        assertEquals(40, material.nShininess, "EP02: Wrong shininess");
+        assertEquals(new Double3(10, 20, 30), cached.getEmission().getRgb(), "EP02: Wrong emission");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a truncated cache
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> MeshCache.read(path), "BVA01: Truncated cache accepted");
+        // BVA02: not a cache
+        Files.write(path, new byte[200]);
+        assertThrows(IOException.class, () -> MeshCache.read(path), "BVA02: Bad file accepted");
+    }
+}
@@ -0,0 +1,151 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing RayPacket
+ */
+class RayPacketTest {
+    /**
+     * Test method for {@link geometries.RayPacket#add(primitives.Ray)}
+     */
+    @Test
+    void testAdd() {
+        Point head = new Point(1, 2, 3);
+        RayPacket packet = new RayPacket(4);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the same head, directions in one octant
+        packet.add(new Ray(head, new Vector(1, 2, -3)));
+        packet.add(new Ray(head, new Vector(2, 1, -1)));
+        assertTrue(packet.isCoherent(), "EP01: Packet not coherent");
+        assertEquals(2, packet.size(), "EP01: Wrong size");
+        assertEquals(Double.POSITIVE_INFINITY, packet.getHit(1).t, "EP01: Hit record not reset");
+
+        // EP02: directions in different octants
+        packet.add(new Ray(head, new Vector(-1, 2, -3)));
+        assertFalse(packet.isCoherent(), "EP02: Packet coherent");
+
+        // EP03: different heads
+        packet.clear().add(new Ray(head, new Vector(1, 2, -3)));
+        packet.add(new Ray(new Point(1, 2, 4), new Vector(1, 2, -3)));
+        assertFalse(packet.isCoherent(), "EP03: Packet coherent");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a direction parallel to an axis plane
+        packet.clear().add(new Ray(head, new Vector(1, 0, -3)));
+        assertFalse(packet.isCoherent(), "BVA01: Packet coherent");
+
+        // BVA02: a single ray
+        packet.clear().add(new Ray(head, new Vector(1, 2, -3)));
+        assertTrue(packet.isCoherent(), "BVA02: Packet not coherent");
+
+        // BVA03: a full packet
+        packet.add(new Ray(head, new Vector(1, 2, -3)));
+        packet.add(new Ray(head, new Vector(1, 2, -3)));
+        packet.add(new Ray(head, new Vector(1, 2, -3)));
+        assertThrows(IllegalStateException.class, () -> packet.add(new Ray(head, new Vector(1, 2, -3))),
+                "BVA03: Ray added to a full packet");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestHits(RayPacket)}
+     */
+    @Test
+    void testFindClosestHits() {
+        Random random = new Random(11);
+        Geometries geometries = new Geometries(new Plane(new Point(0, 0, -4), new Vector(0, 0, 1)));
+        for (int i = 0; i < 60; ++i) {
+            Point center = new Point(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10,
+                    random.nextDouble() * 4 - 2);
+            geometries.add(random.nextBoolean()
+                    ? new Sphere(center, 0.3 + random.nextDouble())
+                    : new Triangle(center, center.add(new Vector(1.5, 0.2, 0.3)), center.add(new Vector(0.1, 1.4, -0.2))));
+        }
+        // a bumpy grid mesh, with its own hierarchy
+        int side = 12;
+        Point[] vertices = new Point[side * side];
+        for (int i = 0; i < side; ++i)
+            for (int j = 0; j < side; ++j)
+                vertices[i * side + j] = new Point(i - 6, j - 6, Math.sin(i) * Math.cos(j) - 3);
+        int[] indices = new int[(side - 1) * (side - 1) * 6];
+        int k = 0;
+        for (int i = 0; i < side - 1; ++i)
+            for (int j = 0; j < side - 1; ++j) {
+                int v = i * side + j;
+                indices[k++] = v;
+                indices[k++] = v + side;
+                indices[k++] = v + 1;
+                indices[k++] = v + 1;
+                indices[k++] = v + side;
+                indices[k++] = v + side + 1;
+            }
+        geometries.add(new TriangleMesh(vertices, indices));
+        geometries.buildBVH(new BVHBuilder().setLeafSize(2));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a coherent packet - neighbouring pixels of a camera
+        RayPacket packet = new RayPacket(64);
+        Point eye = new Point(0.5, -0.3, 12);
+        for (int y = 0; y < 8; ++y)
+            for (int x = 0; x < 8; ++x)
+                packet.add(new Ray(eye, new Vector(-0.5 + 0.06 * x, -0.4 + 0.05 * y, -1)));
+        assertTrue(packet.isCoherent(), "EP01: Packet not coherent");
+        assertSameHits(geometries, packet, "EP01");
+
+        // EP02: an incoherent packet - traced ray by ray
+        packet.clear();
+        for (int i = 0; i < 64; ++i)
+            packet.add(new Ray(new Point(random.nextGaussian(), random.nextGaussian(), 12),
+                    new Vector(random.nextGaussian() * 0.5, random.nextGaussian() * 0.5, -1)));
+        assertFalse(packet.isCoherent(), "EP02: Packet coherent");
+        assertSameHits(geometries, packet, "EP02");
+
+        // EP03: random coherent packets, wide and narrow
+        for (int p = 0; p < 30; ++p) {
+            packet.clear();
+            Point head = new Point(random.nextDouble() * 10 - 5, random.nextDouble() * 10 - 5, 12);
+            double spread = random.nextDouble();
+            for (int i = 0; i < 64; ++i)
+                packet.add(new Ray(head, new Vector(0.01 + random.nextDouble() * spread,
+                        -0.01 - random.nextDouble() * spread, -1)));
+            assertSameHits(geometries, packet, "EP03");
+        }
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a packet that misses everything but the plane
+        packet.clear();
+        for (int i = 0; i < 64; ++i)
+            packet.add(new Ray(new Point(100, 100, 12), new Vector(1 + i, 1, -1)));
+        assertSameHits(geometries, packet, "BVA01");
+    }
+
+    /**
+     * Check that the packet query finds the same hits as the query of every ray on its own
+     *
+     * @param geometries the scene
+     * @param packet     the packet
+     * @param test       the test name for the messages
+     */
+    private static void assertSameHits(Geometries geometries, RayPacket packet, String test) {
+        geometries.findClosestHits(packet);
+        for (int i = 0; i < packet.size(); ++i) {
+            Ray ray = packet.getRay(i);
+            Intersectable.HitRecord expected = new Intersectable.HitRecord();
+            Intersectable.HitRecord actual = packet.getHit(i);
+            boolean found = geometries.findClosestHit(ray, expected);
+            assertEquals(found, actual.geometry != null, test + ": Wrong hit of ray " + i);
+            if (found) {
+                assertEquals(expected.t, actual.t, 0, test + ": Wrong distance of ray " + i);
+                assertSame(expected.geometry, actual.geometry, test + ": Wrong geometry of ray " + i);
+                assertEquals(expected.complete(ray).normal, actual.complete(ray).normal,
+                        test + ": Wrong normal of ray " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing TriangleMesh
+ */
+class TriangleMeshTest {
+    // a grid of 10x10 quads on a bumpy surface, two faces per quad
+    private static final int SIDE = 11;
+
+    /**
+     * @return the grid vertices
+     */
+    private static Point[] vertices() {
+        Point[] vertices = new Point[SIDE * SIDE];
+        for (int i = 0; i < SIDE; ++i)
+            for (int j = 0; j < SIDE; ++j)
+                vertices[i * SIDE + j] = new Point(i, j, Math.sin(i) * Math.cos(j));
+        return vertices;
+    }
+
+    /**
+     * @return the grid faces
+     */
+    private static int[] indices() {
+        int[] indices = new int[(SIDE - 1) * (SIDE - 1) * 6];
+        int k = 0;
+        for (int i = 0; i < SIDE - 1; ++i)
+            for (int j = 0; j < SIDE - 1; ++j) {
+                int v = i * SIDE + j;
+                indices[k++] = v;
+                indices[k++] = v + SIDE;
+                indices[k++] = v + 1;
+                indices[k++] = v + 1;
+                indices[k++] = v + SIDE;
+                indices[k++] = v + SIDE + 1;
+            }
+        return indices;
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findClosestHit(primitives.Ray, Intersectable.HitRecord)}
+     */
+    @Test
+    void testFindClosestHit() {
+        Point[] points = vertices();
+        int[] indices = indices();
+        TriangleMesh mesh = new TriangleMesh(points, indices);
+        Geometries triangles = new Geometries();
+        for (int k = 0; k < indices.length; k += 3)
+            triangles.add(new Triangle(points[indices[k]], points[indices[k + 1]], points[indices[k + 2]]));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the mesh finds the same hits as the separate triangles
+        Random random = new Random(5);
+        for (int i = 0; i < 500; ++i) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 14 - 2, random.nextDouble() * 14 - 2, 5),
+                    new Vector(random.nextGaussian(), random.nextGaussian(), -2 - random.nextDouble()));
+            Intersectable.HitRecord expected = new Intersectable.HitRecord();
+            Intersectable.HitRecord actual = new Intersectable.HitRecord();
+            boolean found = triangles.findClosestHit(ray, expected);
+            assertEquals(found, mesh.findClosestHit(ray, actual), "EP01: Wrong hit");
+            if (found) {
+                assertEquals(expected.t, actual.t, 1e-9, "EP01: Wrong distance");
+                assertSame(mesh, actual.geometry, "EP01: Wrong geometry");
+                assertEquals(expected.complete(ray).normal, actual.complete(ray).normal, "EP01: Wrong normal");
+            }
+            List<Intersectable.GeoPoint> all = triangles.findGeoIntersections(ray);
+            List<Intersectable.GeoPoint> meshAll = mesh.findGeoIntersections(ray);
+            assertEquals(all == null ? 0 : all.size(), meshAll == null ? 0 : meshAll.size(),
+                    "EP01: Wrong amount of intersections");
+        }
+
+        // EP02: an opaque mesh blocks the light
+        Ray down = new Ray(new Point(3.3, 4.6, 5), new Vector(0, 0, -1));
+        assertEquals(Double3.ZERO, mesh.findTransmittance(down, 10, Double3.ONE, 0.001), "EP02: Light not blocked");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: the light is before the mesh
+        assertEquals(Double3.ONE, mesh.findTransmittance(down, 2, Double3.ONE, 0.001), "BVA01: Light blocked");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(double[], int[])}
+     */
+    @Test
+    void testConstructor() {
+        double[] triangle = {0, 0, 0, 1, 0, 0, 0, 1, 0};
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a single face
+        assertEquals(1, new TriangleMesh(triangle, new int[]{0, 1, 2}).getFaceCount(), "EP01: Wrong amount of faces");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: index out of range
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(triangle, new int[]{0, 1, 3}),
+                "BVA01: Bad index accepted");
+        // BVA02: incomplete face
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(triangle, new int[]{0, 1}),
+                "BVA02: Incomplete face accepted");
+        // BVA03: no faces
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(triangle, new int[0]),
+                "BVA03: Empty mesh accepted");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getNormal(primitives.Point)}
+     */
+    @Test
+    void testGetNormal() {
+        // a face of zero area first, then faces on the planes z=0 and y=0
+        TriangleMesh mesh = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1},
+                new int[]{0, 2, 2, 0, 1, 2, 0, 3, 1});
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a point on a face
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0.2, 0.3, 0)), "EP01: Wrong normal");
+        // EP02: a point on another face
+        assertEquals(new Vector(0, 1, 0), mesh.getNormal(new Point(0.2, 0, 0.3)), "EP02: Wrong normal");
+        // EP03: a point off the mesh
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(5, 5, 5)),
+                "EP03: Normal of a point off the mesh");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a point on the zero area face, which is an edge of the face on z=0
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0, 0.5, 0)), "BVA01: Wrong normal");
+    }
+}
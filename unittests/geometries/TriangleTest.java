@@ -70,4 +70,26 @@ class TriangleTest {
         //TC21: Test none of the geometries are intersecting because of the max distance
         assertNull(result04,"ERROR: the geometries aren't intersecting because of the max distance");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindClosestHit() {
+        Triangle triangle = new Triangle(new Point(0, 0, 0), new Point(4, 0, 0), new Point(0, 4, 0));
+        Ray ray = new Ray(new Point(1, 2, 5), new Vector(0, 0, -1));
+        // =============== Equivalence Partitions Tests ==============
+        //TC01: the hit records the distance, the normal and the barycentric coordinates
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+        assertTrue(triangle.findClosestHit(ray, hit), "ERROR: ray does not hit the triangle");
+        assertEquals(5, hit.t, DELTA, "ERROR: wrong distance");
+        assertEquals(0.25, hit.u, DELTA, "ERROR: wrong first barycentric coordinate");
+        assertEquals(0.5, hit.v, DELTA, "ERROR: wrong second barycentric coordinate");
+        assertEquals(new Point(1, 2, 0), hit.complete(ray).point, "ERROR: wrong point");
+
+        //TC02: a closer hit is already recorded
+        assertFalse(triangle.findClosestHit(ray, new Intersectable.HitRecord().reset(4)), "ERROR: farther hit recorded");
+
+        // =============== Boundary Values Tests ==============
+        //TC11: the ray starts on the triangle
+        assertFalse(triangle.findClosestHit(new Ray(new Point(1, 2, 0), new Vector(0, 0, -1)),
+                new Intersectable.HitRecord()), "ERROR: ray starting on the triangle hits it");
+    }
+}
@@ -0,0 +1,184 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing WideBVH
+ */
+class WideBVHTest {
+    /**
+     * Random primitive boxes, some of them flat
+     *
+     * @param count amount of boxes
+     * @return the boxes, six values per box (min x,y,z then max x,y,z)
+     */
+    private static double[] boxes(int count) {
+        Random random = new Random(23);
+        double[] bounds = new double[count * BVHLayout.BOX_SIZE];
+        for (int i = 0; i < count; ++i)
+            for (int axis = 0; axis < 3; ++axis) {
+                double min = random.nextDouble() * 100 - 50;
+                bounds[i * BVHLayout.BOX_SIZE + axis] = min;
+                bounds[i * BVHLayout.BOX_SIZE + 3 + axis] = i % 7 == axis ? min : min + random.nextDouble() * 3;
+            }
+        return bounds;
+    }
+
+    /**
+     * Test method for {@link geometries.WideBVH#WideBVH(BVHLayout, int)}
+     */
+    @Test
+    void testConstructor() {
+        double[] bounds = boxes(500);
+        BVHLayout layout = new BVHBuilder().setLeafSize(2).layout(bounds);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every width - the quantized child boxes hold all the primitives below them,
+        // and every primitive is in exactly one leaf
+        for (int width = 2; width <= 8; ++width) {
+            WideBVH bvh = new WideBVH(layout, width);
+            int[] seen = new int[500];
+            check(bvh, layout, bounds, 0, seen);
+            for (int i = 0; i < seen.length; ++i)
+                assertEquals(1, seen[i], "EP01: Primitive " + i + " not in exactly one leaf, width " + width);
+            // a wide node takes the place of at least one binary inner node
+            assertTrue(bvh.getNodeCount() <= layout.nodeCount / 2, "EP01: Too many nodes, width " + width);
+        }
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a single primitive - the root holds one leaf
+        double[] box = boxes(1);
+        WideBVH single = new WideBVH(new BVHBuilder().layout(box), 4);
+        int leaf = single.nextLeaf(single.start(), (box[0] + box[3]) / 2, (box[1] + box[4]) / 2, -100,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 1, Double.POSITIVE_INFINITY);
+        assertEquals(0, single.first(leaf), "BVA01: Wrong first primitive");
+        assertEquals(1, single.count(leaf), "BVA01: Wrong leaf size");
+
+        // BVA02: width out of range
+        assertThrows(IllegalArgumentException.class, () -> new WideBVH(layout, 1), "BVA02: Width 1 accepted");
+        assertThrows(IllegalArgumentException.class, () -> new WideBVH(layout, 9), "BVA02: Width 9 accepted");
+    }
+
+    /**
+     * Check the children of a node - their boxes hold their primitives, and the empty slots are last
+     *
+     * @param bvh    the hierarchy
+     * @param layout the binary hierarchy it was collapsed from
+     * @param bounds the primitive boxes
+     * @param node   the node index
+     * @param seen   counts of the leaves of every primitive
+     */
+    private static void check(WideBVH bvh, BVHLayout layout, double[] bounds, int node, int[] seen) {
+        boolean empty = false;
+        for (int c = 0; c < bvh.width; ++c) {
+            int slot = node * bvh.width + c;
+            if (bvh.count(slot) < 0) {
+                empty = true;
+                continue;
+            }
+            assertFalse(empty, "Used slot after an empty one");
+            double[] box = new double[BVHLayout.BOX_SIZE];
+            bvh.childBox(slot, box);
+            if (bvh.count(slot) == 0) {
+                check(bvh, layout, bounds, bvh.first(slot), seen);
+                continue;
+            }
+            for (int i = bvh.first(slot); i < bvh.first(slot) + bvh.count(slot); ++i) {
+                int primitive = layout.order[i];
+                ++seen[primitive];
+                for (int axis = 0; axis < 3; ++axis) {
+                    assertTrue(box[axis] <= bounds[primitive * BVHLayout.BOX_SIZE + axis], "Primitive out of its leaf");
+                    assertTrue(box[3 + axis] >= bounds[primitive * BVHLayout.BOX_SIZE + 3 + axis],
+                            "Primitive out of its leaf");
+                }
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.WideBVH#nextLeaf(WideBVH.Stack, double, double, double, double, double, double, double)}
+     */
+    @Test
+    void testNextLeaf() {
+        double[] bounds = boxes(500);
+        BVHLayout layout = new BVHBuilder().setLeafSize(2).layout(bounds);
+        Random random = new Random(5);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every primitive whose exact box the ray passes through is in a visited leaf
+        for (int width : new int[]{2, 4, 8}) {
+            WideBVH bvh = new WideBVH(layout, width);
+            for (int r = 0; r < 200; ++r) {
+                double ox = random.nextGaussian() * 30, oy = random.nextGaussian() * 30, oz = random.nextGaussian() * 30;
+                double invX = 1 / random.nextGaussian(), invY = 1 / random.nextGaussian();
+                // every fourth ray is parallel to the z = const planes
+                double invZ = r % 4 == 0 ? Double.POSITIVE_INFINITY : 1 / random.nextGaussian();
+                double maxDistance = r % 2 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 50;
+                boolean[] visited = new boolean[500];
+                WideBVH.Stack stack = bvh.start();
+                for (int leaf = bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, maxDistance); leaf >= 0;
+                     leaf = bvh.nextLeaf(stack, ox, oy, oz, invX, invY, invZ, maxDistance))
+                    for (int i = bvh.first(leaf); i < bvh.first(leaf) + bvh.count(leaf); ++i)
+                        visited[layout.order[i]] = true;
+                for (int i = 0; i < 500; ++i)
+                    if (WideBVH.hitsBox(bounds, i, ox, oy, oz, invX, invY, invZ, maxDistance))
+                        assertTrue(visited[i], "EP01: Primitive " + i + " missed, width " + width);
+            }
+        }
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a ray that misses the root box visits no leaf
+        WideBVH bvh = new WideBVH(layout, 4);
+        assertEquals(-1, bvh.nextLeaf(bvh.start(), 0, 0, 1000, 1e300, 1e300, 1, Double.POSITIVE_INFINITY),
+                "BVA01: Leaf visited");
+    }
+
+    /**
+     * Test method for {@link geometries.WideBVH#refit(double[], int)}
+     */
+    @Test
+    void testRefit() {
+        double[] bounds = boxes(500);
+        BVHLayout layout = new BVHBuilder().setLeafSize(2).layout(bounds);
+        WideBVH bvh = new WideBVH(layout, 4);
+        // the boxes in leaf order
+        double[] leafBounds = new double[bounds.length];
+        for (int i = 0; i < 500; ++i)
+            System.arraycopy(bounds, layout.order[i] * BVHLayout.BOX_SIZE, leafBounds, i * BVHLayout.BOX_SIZE,
+                    BVHLayout.BOX_SIZE);
+
+        bvh.startRefits(leafBounds, 0.125);
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a box that didn't change keeps the cost
+        bvh.refit(leafBounds, 0);
+        assertEquals(1, bvh.getDegradation(), 1e-12, "BVA01: Cost changed");
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: moved boxes - the quantized boxes hold the moved primitives, and the hierarchy got worse
+        Random random = new Random(9);
+        for (int k = 0; k < 100; ++k) {
+            int i = random.nextInt(500);
+            double shift = random.nextDouble() * 200 - 100;
+            for (int axis = 0; axis < 3; ++axis) {
+                leafBounds[i * BVHLayout.BOX_SIZE + axis] += shift;
+                leafBounds[i * BVHLayout.BOX_SIZE + 3 + axis] += shift;
+            }
+            System.arraycopy(leafBounds, i * BVHLayout.BOX_SIZE, bounds, layout.order[i] * BVHLayout.BOX_SIZE,
+                    BVHLayout.BOX_SIZE);
+            bvh.refit(leafBounds, i);
+        }
+        check(bvh, layout, bounds, 0, new int[500]);
+        assertTrue(bvh.getDegradation() > 1, "EP01: Cost not raised");
+        for (int axis = 0; axis < 3; ++axis) {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < 500; ++i)
+                min = Math.min(min, bounds[i * BVHLayout.BOX_SIZE + axis]);
+            assertEquals(min, bvh.bounds[axis], "EP01: Wrong root box");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package parser;
+
+import geometries.Intersectable;
+import geometries.TriangleMesh;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scence.parser.MeshLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing MeshLoader
+ */
+class MeshLoaderTest {
+    /**
+     * Write a temporary file
+     *
+     * @param suffix  the file extension
+     * @param content the file content
+     * @return the file
+     */
+    private static Path write(String suffix, byte[] content) throws IOException {
+        Path path = Files.createTempFile("mesh", suffix);
+        path.toFile().deleteOnExit();
+        return Files.write(path, content);
+    }
+
+    /**
+     * Check that a unit square at z = 0 (split into triangles) is hit, away from the edges of its faces
+     *
+     * @param mesh    the mesh
+     * @param message the message prefix
+     */
+    private static void assertSquare(TriangleMesh mesh, String message) {
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+        assertTrue(mesh.findClosestHit(new Ray(new Point(0.7123, 0.3317, 1), new Vector(0, 0, -1)), hit),
+                message + ": Square not hit");
+        assertEquals(1, hit.t, 1e-12, message + ": Wrong distance");
+        assertFalse(mesh.findClosestHit(new Ray(new Point(1.2, 0.3, 1), new Vector(0, 0, -1)),
+                new Intersectable.HitRecord()),
+                message + ": Hit outside the square");
+    }
+
+    /**
+     * Test method for {@link scence.parser.MeshLoader#loadObj(Path)}
+     */
+    @Test
+    void testLoadObj() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a quad face with texture and normal indices, comments, and other lines
+        String obj = """
+                # a square
+                o square
+                v 0 0 0
+                v 1.0 0 0
+                v 1 1e0 0
+                vt 0 0
+                vn 0 0 1
+                v 0 1 -0.0
+                f 1/1/1 2/1/1 3//1 4 # the face
+                """;
+        TriangleMesh mesh = MeshLoader.loadObj(write(".obj", obj.getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(2, mesh.getFaceCount(), "EP01: Wrong amount of faces");
+        assertSquare(mesh, "EP01");
+
+        // EP02: relative indices and Windows line ends
+        String relative = "v 0 0 0\r\nv 1 0 0\r\nv 1 1 0\r\nf -3 -2 -1\r\nv 0 1 0\r\nf -4 -2 -1\r\n";
+        mesh = MeshLoader.loadObj(write(".obj", relative.getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(2, mesh.getFaceCount(), "EP02: Wrong amount of faces");
+        assertSquare(mesh, "EP02");
+
+        // EP03: a large file parsed in several chunks
+        StringBuilder grid = new StringBuilder();
+        int side = 300;
+        for (int i = 0; i <= side; ++i)
+            for (int j = 0; j <= side; ++j)
+                grid.append("v ").append((double) i / side).append(' ').append((double) j / side).append(" 0.0\n");
+        for (int i = 0; i < side; ++i)
+            for (int j = 0; j < side; ++j) {
+                int v = i * (side + 1) + j + 1;
+                grid.append("f ").append(v).append(' ').append(v + side + 1).append(' ')
+                        .append(v + side + 2).append(' ').append(v + 1).append('\n');
+            }
+        mesh = MeshLoader.load(write(".obj", grid.toString().getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(2 * side * side, mesh.getFaceCount(), "EP03: Wrong amount of faces");
+        assertSquare(mesh, "EP03");
+
+        // EP04: comments after the corners - with numbers in them, and right after a corner
+        String commented = """
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0 # 4 5 6
+                v 0 1 0
+                f 1 2 3 # 4 5
+                f 1 3 4#2 3
+                """;
+        mesh = MeshLoader.loadObj(write(".obj", commented.getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(2, mesh.getFaceCount(), "EP04: Wrong amount of faces");
+        assertSquare(mesh, "EP04");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a face with two vertices
+        Path bad = write(".obj", "v 0 0 0\nv 1 0 0\nf 1 2\n".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> MeshLoader.loadObj(bad), "BVA01: Bad face accepted");
+        // BVA02: an index out of range
+        Path missing = write(".obj", "v 0 0 0\nv 1 0 0\nf 1 2 3\n".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> MeshLoader.loadObj(missing), "BVA02: Bad index accepted");
+    }
+
+    /**
+     * Test method for {@link scence.parser.MeshLoader#loadPly(Path)}
+     */
+    @Test
+    void testLoadPly() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: little endian float vertices with an extra property, a quad face and another element
+        String header = """
+                ply
+                format binary_little_endian 1.0
+                comment a square
+                element vertex 4
+                property float x
+                property float y
+                property float z
+                property uchar red
+                element face 1
+                property list uchar int vertex_indices
+                element edge 1
+                property int vertex1
+                property int vertex2
+                end_header
+                """;
+        byte[] text = header.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer data = ByteBuffer.allocate(text.length + 4 * 13 + 17 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        data.put(text);
+        float[][] vertices = {{0, 0, 0}, {1, 0, 0}, {1, 1, 0}, {0, 1, 0}};
+        for (float[] vertex : vertices)
+            data.putFloat(vertex[0]).putFloat(vertex[1]).putFloat(vertex[2]).put((byte) 255);
+        data.put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3);
+        data.putInt(0).putInt(1);
+        TriangleMesh mesh = MeshLoader.load(write(".ply", data.array()));
+        assertEquals(2, mesh.getFaceCount(), "EP01: Wrong amount of faces");
+        assertSquare(mesh, "EP01");
+
+        // EP02: big endian double vertices
+        header = """
+                ply
+                format binary_big_endian 1.0
+                element vertex 3
+                property double x
+                property double y
+                property double z
+                element face 1
+                property list uchar uint vertex_index
+                end_header
+                """;
+        text = header.getBytes(StandardCharsets.US_ASCII);
+        data = ByteBuffer.allocate(text.length + 3 * 24 + 13);
+        data.put(text);
+        data.putDouble(0).putDouble(0).putDouble(0).putDouble(1).putDouble(0).putDouble(0);
+        data.putDouble(1).putDouble(1).putDouble(0);
+        data.put((byte) 3).putInt(0).putInt(1).putInt(2);
+        mesh = MeshLoader.loadPly(write(".ply", data.array()));
+        assertEquals(1, mesh.getFaceCount(), "EP02: Wrong amount of faces");
+        assertSquare(mesh, "EP02");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: ASCII PLY is not supported
+        Path ascii = write(".ply", "ply\nformat ascii 1.0\nelement vertex 0\nend_header\n"
+                .getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> MeshLoader.loadPly(ascii), "BVA01: ASCII PLY accepted");
+        // BVA02: a truncated file
+        Path truncated = write(".ply", Arrays.copyOf(data.array(), data.capacity() - 5));
+        assertThrows(IOException.class, () -> MeshLoader.loadPly(truncated), "BVA02: Truncated file accepted");
+    }
+}
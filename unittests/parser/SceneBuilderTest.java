@@ -0,0 +1,94 @@
+package parser;
+
+import geometries.Intersectable;
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scene.Scene;
+import scene.SceneBuilder;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing SceneBuilder
+ */
+class SceneBuilderTest {
+    /**
+     * Build a scene from XML text
+     *
+     * @param xml the scene file content
+     * @return the scene
+     */
+    private static Scene build(String xml) throws IOException, XMLStreamException {
+        Path path = Files.createTempFile("scene", ".xml");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, xml);
+        return new SceneBuilder(path.toString(), null).getScene();
+    }
+
+    /**
+     * Test method for {@link scene.SceneBuilder#SceneBuilder(String, Scene)}
+     */
+    @Test
+    void testSceneBuilder() throws IOException, XMLStreamException {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: geometries in nested groups, materials, and lights
+        Scene scene = build("""
+                <scene background-color="1 2 3">
+                    <geometries>
+                        <sphere center="0 0 -100" radius="10" emission="10 20 30">
+                            <material kd="0.5" ks="0.1 0.2 0.3" shininess="30"/>
+                        </sphere>
+                        <geometries>
+                            <polygon vertices="-1 -1 -50, 1 -1 -50, 1 1 -50, -1 1 -50"/>
+                            <plane q0="0 0 -200" normal="0 0 1"/>
+                        </geometries>
+                        <triangle p1="50 0 -100" p2="60 0 -100" p3="50 10 -100"/>
+                    </geometries>
+                    <lights>
+                        <point-light color="100 100 100" position="0 0 0" kl="0.1"/>
+                        <spot-light color="100 100 100" position="0 0 0" direction="0 0 -1" narrow-beam="5"/>
+                        <directional-light color="100 100 100" direction="0 0 -1"/>
+                    </lights>
+                </scene>
+                """);
+        assertEquals(new Double3(1, 2, 3), scene.background.getRgb(), "EP01: Wrong background");
+        assertEquals(3, scene.lights.size(), "EP01: Wrong amount of lights");
+
+        // the polygon of the inner group is in front of the sphere
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+        assertTrue(scene.geometries.findClosestHit(new Ray(Point.ZERO, new Vector(0, 0, -1)), hit),
+                "EP01: Nothing hit");
+        assertEquals(50, hit.t, 1e-10, "EP01: Inner group not hit first");
+        // the sphere with its material
+        hit = new Intersectable.HitRecord();
+        assertTrue(scene.geometries.findClosestHit(new Ray(new Point(5, 5, 0), new Vector(0, 0, -1)), hit),
+                "EP01: Sphere not hit");
+        assertEquals(new Double3(0.5), hit.geometry.getMaterial().kD, "EP01: Wrong kD");
+        assertEquals(30, hit.geometry.getMaterial().nShininess, "EP01: Wrong shininess");
+        assertEquals(new Double3(10, 20, 30), hit.geometry.getEmission().getRgb(), "EP01: Wrong emission");
+        // the triangle after the inner group
+        assertNotNull(scene.geometries.findGeoIntersections(
+                new Ray(new Point(52, 2, 0), new Vector(0, 0, -1))), "EP01: Triangle not hit");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: an unknown element
+        assertThrows(XMLStreamException.class, () -> build("<scene><box/></scene>"),
+                "BVA01: Unknown element accepted");
+        // BVA02: a material outside a geometry
+        assertThrows(XMLStreamException.class,
+                () -> build("<scene><geometries><material kd=\"1\"/></geometries></scene>"),
+                "BVA02: Material outside a geometry accepted");
+        // BVA03: an invalid geometry
+        assertThrows(XMLStreamException.class,
+                () -> build("<scene><triangle p1=\"0 0 0\" p2=\"1 1 1\" p3=\"2 2 2\"/></scene>"),
+                "BVA03: Invalid geometry accepted");
+    }
+}
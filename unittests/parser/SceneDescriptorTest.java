@@ -1,119 +1,69 @@
 package parser;
 
 import org.junit.jupiter.api.Test;
-import org.xml.sax.SAXException;
-
+import primitives.Color;
+import primitives.Double3;
+import primitives.Point;
 import scence.parser.SceneDescriptor;
 
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Testing SceneDescriptor
  *
- * @author 
+ * @author Shirel Cohen & Neomi Golkin
  */
 class SceneDescriptorTest {
-  /*  private final static String FILEPATH = "xml/basicRenderTestTwoColors2.xml";
-    private SceneDescriptor sceneDescriptor;
-
-   // @BeforeEach
-    void setUp() throws ParserConfigurationException, IOException, SAXException {
-        sceneDescriptor = new SceneDescriptor(FILEPATH);
-    }
-
-    *
-     * Test method for {@link SceneDescriptor#getSceneAttributes()}
-     
-    @Test
-    void testGetSceneAttributes() {
-        // TC01: xml/basicRenderTestTwoColors2.xml
-        Map<String, String> expected = new HashMap<>() {
-            {
-                put("background-color", "75 127 190");
-            }
-        };
-
-        assertEquals(expected, sceneDescriptor.getSceneAttributes());
-    }
+    private final static Path FILEPATH = Path.of("xml/basicRenderTestTwoColors2.xml");
 
-    *
-     * Test method for {@link SceneDescriptor#getAmbientLightAttributes()}
-     
+    /**
+     * Test method for {@link SceneDescriptor#nextElement()}
+     */
     @Test
-    void testGetAmbientLightAttributes() {
-        // TC01: xml/basicRenderTestTwoColors2.xml
-        Map<String, String> expected = new HashMap<>() {
-            {
-                put("color", "255 191 191");
-                put("k", "1.0");
-            }
-        };
+    void testNextElement() throws IOException, XMLStreamException {
+        try (SceneDescriptor descriptor = new SceneDescriptor(FILEPATH)) {
+            // ============ Equivalence Partitions Tests ==============
+            // EP01: the root and its attributes
+            assertTrue(descriptor.nextElement(), "EP01: Root not found");
+            assertEquals("scene", descriptor.getName(), "EP01: Wrong root");
+            assertEquals(1, descriptor.getDepth(), "EP01: Wrong root depth");
+            assertEquals(new Double3(75, 127, 190), descriptor.getColor("background-color", Color.BLACK).getRgb(),
+                    "EP01: Wrong background");
 
-        assertEquals(expected, sceneDescriptor.getAmbientLightAttributes());
-    }
+            // EP02: a child element with a single number for a triad
+            assertTrue(descriptor.nextElement(), "EP02: Ambient light not found");
+            assertEquals("ambient-light", descriptor.getName(), "EP02: Wrong element");
+            assertEquals(2, descriptor.getDepth(), "EP02: Wrong depth");
+            assertEquals(new Double3(1), descriptor.getDouble3("k", Double3.ZERO), "EP02: Wrong k");
 
-    *
-     * Test method for {@link SceneDescriptor#getPlanes()}
-     
-    @Test
-    void testGetPlanes() {
-        // TC01: xml/basicRenderTestTwoColors2.xml
-        assertNull(sceneDescriptor.getPlanes());
-    }
+            // EP03: a nested element
+            assertTrue(descriptor.nextElement(), "EP03: Geometries not found");
+            assertTrue(descriptor.nextElement(), "EP03: Sphere not found");
+            assertEquals("sphere", descriptor.getName(), "EP03: Wrong element");
+            assertEquals(3, descriptor.getDepth(), "EP03: Wrong depth");
+            assertEquals(new Point(0, 0, -100), descriptor.getPoint("center"), "EP03: Wrong center");
+            assertEquals(50, descriptor.getDouble("radius"), 0, "EP03: Wrong radius");
 
-    *
-     * Test method for {@link SceneDescriptor#getSpheres()}
-     
-    @Test
-    void testGetSpheres() {
-        // TC01: xml/basicRenderTestTwoColors2.xml
-        List<Map<String, String>> expected = new ArrayList<>();
-        expected.add(new HashMap<>() {
-            {
-                put("center", "0 0 -100");
-                put("radius", "50");
-            }
-        });
+            // ============= Boundary Values Tests =================
+            // BVA01: a missing attribute
+            assertFalse(descriptor.has("color"), "BVA01: Missing attribute found");
+            assertEquals(7, descriptor.getDouble("height", 7), 0, "BVA01: Wrong default");
+            assertThrows(XMLStreamException.class, () -> descriptor.getPoint("color"),
+                    "BVA01: Missing attribute accepted");
+            // BVA02: an attribute of a wrong size
+            assertThrows(XMLStreamException.class, () -> descriptor.getPoint("radius"),
+                    "BVA02: Wrong size accepted");
 
-        assertEquals(expected, sceneDescriptor.getSpheres());
+            // BVA03: the end of the document
+            int count = 0;
+            while (descriptor.nextElement())
+                ++count;
+            assertEquals(3, count, "BVA03: Wrong amount of elements");
+            assertFalse(descriptor.nextElement(), "BVA03: Element after the end");
+        }
     }
-
-    *
-     * Test method for {@link SceneDescriptor#getTriangles()}
-     
-    @Test
-    void testGetTriangles() {
-        // TC01: xml/basicRenderTestTwoColors2.xml
-        List<Map<String, String>> expected = new ArrayList<>();
-        expected.add(new HashMap<>() {
-            {
-                put("p1", "-100 0 -100");
-                put("p2", "0 100 -100");
-                put("p3", "-100 100 -100");
-            }
-        });
-        expected.add(new HashMap<>() {
-            {
-                put("p1", "-100 0 -100");
-                put("p2", "0 -100 -100");
-                put("p3", "-100 -100 -100");
-            }
-        });
-        expected.add(new HashMap<>() {
-            {
-                put("p1", "100 0 -100");
-                put("p2", "0 -100 -100");
-                put("p3", "100 -100 -100");
-            }
-        });
-
-        assertEquals(expected, sceneDescriptor.getTriangles());
-    }*/
 }
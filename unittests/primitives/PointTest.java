@@ -24,6 +24,16 @@ class PointTest {
                 "ERROR: (point - itself) throws wrong exception");
     }
 
+    @Test
+    void subtractOrNull() {
+        // =============== Equivalence Partitions Tests ==============
+        //TC01: test that two point are subtracted
+        assertEquals(v1, p2.subtractOrNull(p1), "ERROR: (point2 - point1) does not work correctly");
+        // ================ Boundary Values Tests ==================
+        //TC11: test that point subtracted from itself gives no vector
+        assertNull(p1.subtractOrNull(p1), "ERROR: (point - itself) is not null");
+    }
+
     @Test
     void add() {
         //============== Equivalence Partitions Tests ==============
@@ -42,4 +42,17 @@ class RayTests {
         assertEquals(new Point(1,1,1), ray.findClosestPoint(list));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void testPointAt() {
+        Ray ray = new Ray(new Point(1, 2, 3), new Vector(0, 0, 2));
+        // ================== Equivalence Partitions Tests =======
+        // TC01: a point in front of the head
+        assertEquals(new Point(1, 2, 5), ray.pointAt(2), "pointAt() wrong point");
+        assertEquals(ray.getPoint(2), ray.pointAt(2), "pointAt() differs from getPoint()");
+
+        // ====================== Boundary Values =====================
+        // TC11: the head itself
+        assertEquals(ray.getP0(), ray.pointAt(0), "pointAt() wrong head");
+    }
+}
@@ -0,0 +1,86 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing VectorMath
+ */
+class VectorMathTest {
+    Vector v1 = new Vector(1, 2, 3);
+    Vector v2 = new Vector(0, 3, -2);
+    Vector v3 = new Vector(-4, 1, 5);
+
+    /**
+     * Test method for {@link primitives.VectorMath#dot(double, double, double, double, double, double)}
+     */
+    @Test
+    void testDot() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same as the vector dot product
+        assertEquals(v1.dotProduct(v3), VectorMath.dot(1, 2, 3, -4, 1, 5), "dot() wrong result");
+        // =============== Boundary Values Tests ==================
+        // TC11: orthogonal vectors
+        assertEquals(0, VectorMath.dot(1, 2, 3, 0, 3, -2), "dot() for orthogonal vectors is not zero");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#length(double, double, double)}
+     */
+    @Test
+    void testLength() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same as the vector length
+        assertEquals(v1.length(), VectorMath.length(1, 2, 3), "length() wrong result");
+        // =============== Boundary Values Tests ==================
+        // TC11: the zero vector
+        assertEquals(0, VectorMath.length(0, 0, 0), "length() of zero is not zero");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#tripleProduct(double, double, double, double, double, double, double, double, double)}
+     */
+    @Test
+    void testTripleProduct() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same as the dot product with the cross product
+        assertEquals(v3.dotProduct(v1.crossProduct(v2)), VectorMath.tripleProduct(-4, 1, 5, 1, 2, 3, 0, 3, -2),
+                "tripleProduct() wrong result");
+        // =============== Boundary Values Tests ==================
+        // TC11: parallel vectors span no volume
+        assertEquals(0, VectorMath.tripleProduct(-4, 1, 5, 1, 2, 3, 2, 4, 6), "tripleProduct() of parallel vectors");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#cross(double, double, double, double, double, double, double[])}
+     */
+    @Test
+    void testCross() {
+        double[] result = new double[3];
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same as the vector cross product
+        VectorMath.cross(1, 2, 3, 0, 3, -2, result);
+        assertEquals(v1.crossProduct(v2), new Vector(result[0], result[1], result[2]), "cross() wrong result");
+        // =============== Boundary Values Tests ==================
+        // TC11: parallel vectors give zeros
+        VectorMath.cross(1, 2, 3, 2, 4, 6, result);
+        assertEquals(0, VectorMath.length(result[0], result[1], result[2]), "cross() of parallel vectors is not zero");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#normalize(double, double, double, double[])}
+     */
+    @Test
+    void testNormalize() {
+        double[] result = new double[3];
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same as the vector normalization, and the length
+        assertEquals(v1.length(), VectorMath.normalize(1, 2, 3, result), "normalize() wrong length");
+        assertEquals(v1.normalize(), new Vector(result[0], result[1], result[2]), "normalize() wrong result");
+        // =============== Boundary Values Tests ==================
+        // TC11: the zero vector has no direction
+        assertEquals(0, VectorMath.normalize(0, 0, 0, result), "normalize() of zero has a length");
+        assertTrue(Double.isNaN(result[0]), "normalize() of zero has a direction");
+    }
+}
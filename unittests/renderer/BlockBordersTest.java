@@ -0,0 +1,40 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing BlockBorders
+ */
+class BlockBordersTest {
+    /**
+     * Test method for {@link renderer.BlockBorders#take(boolean, int, int, int)}
+     */
+    @Test
+    void testTake() {
+        BlockBorders borders = new BlockBorders(10);
+        Color[] row = {Color.BLACK, new Color(1, 2, 3), Color.BLACK};
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a border left by one block is taken by the other, once
+        borders.leave(true, 4, 8, row);
+        assertNull(borders.take(false, 4, 8, 3), "EP01: Column taken for a row");
+        assertSame(row, borders.take(true, 4, 8, 3), "EP01: Border not taken");
+        assertNull(borders.take(true, 4, 8, 3), "EP01: Border taken twice");
+
+        // EP02: both blocks leave the border (rendered at the same time) - nothing is kept
+        borders.leave(false, 2, 0, row);
+        borders.leave(false, 2, 0, row);
+        assertEquals(0, borders.size(), "EP02: Border kept");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a border of another length isn't the block's
+        borders.leave(true, 0, 1, row);
+        assertNull(borders.take(true, 0, 1, 4), "BVA01: Wrong border taken");
+        // BVA02: the last corner of a row and the first corner of the next one are different borders
+        borders.leave(true, 10, 0, row);
+        assertNull(borders.take(true, 0, 1, 3), "BVA02: Wrong border taken");
+    }
+}
@@ -3,6 +3,8 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.*;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 import renderer.Camera;
@@ -88,4 +90,35 @@ class CameraTest {
                         .constructRay(4, 4, 1, 0), badRay);
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Camera#renderImage2()} with adaptive anti aliasing
+     */
+    @Test
+    void testRenderAdaptive() {
+        // a flat image - the pixels are not subdivided, only their corners are traced
+        Color color = new Color(10, 20, 30);
+        AtomicInteger traced = new AtomicInteger();
+        RayTracerBase tracer = new RayTracerBase(null) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return color;
+            }
+        };
+        // partial tiles, and tiles of several bands
+        Camera camera = new Camera(ZERO_POINT, new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVPSize(10, 10).setVPDistance(10).setRayTracer(tracer)
+                .setAntiAliasing(4).setAdaptiveAntiAliasing(4).setTileSize(12).setPrintInterval(0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: one thread - every corner is traced once
+        camera.setImageWriter(new ImageWriter("adaptive", 37, 21)).setThreads(1).renderImage2();
+        assertEquals(38 * 22, traced.get(), "EP01: Corners traced again");
+
+        // EP02: several threads - neighbour blocks may trace their common corners both, but not much more
+        traced.set(0);
+        camera.setImageWriter(new ImageWriter("adaptive", 37, 21)).setThreads(3).renderImage2();
+        assertTrue(traced.get() >= 38 * 22 && traced.get() < 2 * 38 * 22, "EP02: Wrong amount of traced corners");
+    }
+}
@@ -0,0 +1,89 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the ImageWriter with its pixels in a memory-mapped file
+ */
+class FramebufferTest {
+    private static final int NX = 123;
+    private static final int NY = 45;
+
+    /**
+     * Paint the same gradient in both writers
+     *
+     * @param writers the image writers
+     */
+    private static void paint(ImageWriter... writers) {
+        for (int y = 0; y < NY; ++y)
+            for (int x = 0; x < NX; ++x)
+                for (ImageWriter writer : writers)
+                    writer.writePixel(x, y, new Color(2 * x, 5 * y, 300));
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#ImageWriter(String, int, int, Path)}
+     */
+    @Test
+    void testFramebuffer() throws IOException {
+        Path framebuffer = Files.createTempFile("framebuffer", ".raw");
+        framebuffer.toFile().deleteOnExit();
+        try (ImageWriter mapped = new ImageWriter("framebuffer test mapped", NX, NY, framebuffer)) {
+            ImageWriter memory = new ImageWriter("framebuffer test memory", NX, NY);
+            paint(mapped, memory);
+
+            // ============ Equivalence Partitions Tests ==============
+            // EP01: the file holds the unclamped pixels row by row
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(framebuffer)).order(ByteOrder.nativeOrder());
+            assertEquals(3L * Float.BYTES * NX * NY, data.capacity(), "EP01: Wrong file size");
+            int k = 3 * (7 * NX + 11);
+            assertEquals(22, data.getFloat(Float.BYTES * k), "EP01: Wrong red");
+            assertEquals(35, data.getFloat(Float.BYTES * (k + 1)), "EP01: Wrong green");
+            assertEquals(300, data.getFloat(Float.BYTES * (k + 2)), "EP01: Wrong blue");
+
+            // EP02: the same image files as from the memory
+            Path folder = Path.of(System.getProperty("user.dir"), "images");
+            try {
+                mapped.writeToImage();
+                memory.writeToImage();
+                assertArrayEquals(Files.readAllBytes(folder.resolve("framebuffer test memory.png")),
+                        Files.readAllBytes(folder.resolve("framebuffer test mapped.png")), "EP02: Wrong png");
+                mapped.writeToHdr();
+                memory.writeToHdr();
+                assertArrayEquals(Files.readAllBytes(folder.resolve("framebuffer test memory.pfm")),
+                        Files.readAllBytes(folder.resolve("framebuffer test mapped.pfm")), "EP02: Wrong pfm");
+            } finally {
+                for (String name : new String[]{"mapped.png", "memory.png", "mapped.pfm", "memory.pfm"})
+                    Files.deleteIfExists(folder.resolve("framebuffer test " + name));
+            }
+        }
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a file left by a larger render is emptied - no stale pixels, and the image size
+        try (ImageWriter small = new ImageWriter("framebuffer test small", NX / 2, NY / 2, framebuffer)) {
+            small.writePixel(1, 1, new Color(1, 2, 3));
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(framebuffer)).order(ByteOrder.nativeOrder());
+            assertEquals(3L * Float.BYTES * (NX / 2) * (NY / 2), data.capacity(), "BVA01: Wrong file size");
+            for (int i = 0; i < data.capacity(); i += Float.BYTES)
+                if (i < 3 * Float.BYTES * (NX / 2 + 1) || i >= 3 * Float.BYTES * (NX / 2 + 2))
+                    assertEquals(0, data.getFloat(i), "BVA01: Stale pixel");
+        }
+
+        // BVA02: a closed writer has no pixels
+        ImageWriter closed = new ImageWriter("framebuffer test closed", NX, NY, framebuffer);
+        closed.close();
+        assertThrows(IllegalStateException.class, () -> closed.writePixel(0, 0, Color.BLACK),
+                "BVA02: Pixel written after close");
+        // ... and closing again does nothing
+        assertDoesNotThrow(closed::close, "BVA02: Second close failed");
+    }
+}
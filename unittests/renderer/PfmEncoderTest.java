@@ -0,0 +1,41 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing PfmEncoder
+ */
+class PfmEncoderTest {
+    /**
+     * Test method for {@link renderer.PfmEncoder#write(Path, int, int, PfmEncoder.RowSource, float)}
+     */
+    @Test
+    void testWrite() throws IOException {
+        Path path = Files.createTempFile("image", ".pfm");
+        path.toFile().deleteOnExit();
+        // two rows of two pixels, the top row brighter than white
+        float[] rgb = {510, 0, 0, 0, 510, 0, 255, 0, 0, 0, 0, 255};
+        PfmEncoder.write(path, 2, 2, (row, out) -> System.arraycopy(rgb, row * 6, out, 0, 6), 1f / 255);
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the header, then the bottom row first, scaled and unclamped
+        byte[] bytes = Files.readAllBytes(path);
+        String header = "PF\n2 2\n-1.0\n";
+        assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII), "EP01: Wrong header");
+        ByteBuffer data = ByteBuffer.wrap(bytes, header.length(), bytes.length - header.length())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        float[] expected = {1, 0, 0, 0, 0, 1, 2, 0, 0, 0, 2, 0};
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals(expected[i], data.getFloat(), 1e-6, "EP01: Wrong value " + i);
+        assertFalse(data.hasRemaining(), "EP01: Extra data");
+    }
+}
@@ -0,0 +1,76 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing PngEncoder
+ */
+class PngEncoderTest {
+    /**
+     * Encode an image, row by row from its bytes, and decode it back with ImageIO
+     *
+     * @param width  amount of pixels in a row
+     * @param height amount of rows
+     * @param rgb    the image bytes
+     * @return the decoded image
+     */
+    private static BufferedImage roundTrip(int width, int height, byte[] rgb) throws IOException {
+        Path path = Files.createTempFile("image", ".png");
+        path.toFile().deleteOnExit();
+        int rowSize = 3 * width;
+        PngEncoder.write(path, width, height,
+                (row, out, offset) -> System.arraycopy(rgb, row * rowSize, out, offset, rowSize));
+        return ImageIO.read(path.toFile());
+    }
+
+    /**
+     * Check that a decoded image has the encoded bytes
+     *
+     * @param image   the decoded image
+     * @param rgb     the encoded bytes
+     * @param message the message prefix
+     */
+    private static void assertImage(BufferedImage image, byte[] rgb, String message) {
+        for (int row = 0, k = 0; row < image.getHeight(); ++row)
+            for (int column = 0; column < image.getWidth(); ++column, k += 3) {
+                int expected = (rgb[k] & 0xFF) << 16 | (rgb[k + 1] & 0xFF) << 8 | rgb[k + 2] & 0xFF;
+                assertEquals(expected, image.getRGB(column, row) & 0xFFFFFF,
+                        message + ": Wrong pixel " + column + "," + row);
+            }
+    }
+
+    /**
+     * Test method for {@link renderer.PngEncoder#write(Path, int, int, PngEncoder.RowSource)}
+     */
+    @Test
+    void testWrite() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: an image of many strips - gradients (every filter wins somewhere) and noise
+        int width = 300, height = 1000;
+        byte[] rgb = new byte[3 * width * height];
+        Random random = new Random(3);
+        for (int row = 0, k = 0; row < height; ++row)
+            for (int column = 0; column < width; ++column) {
+                rgb[k++] = (byte) column;
+                rgb[k++] = (byte) (row + column);
+                rgb[k++] = (byte) (row < height / 2 ? row : random.nextInt(256));
+            }
+        BufferedImage image = roundTrip(width, height, rgb);
+        assertEquals(width, image.getWidth(), "EP01: Wrong width");
+        assertEquals(height, image.getHeight(), "EP01: Wrong height");
+        assertImage(image, rgb, "EP01");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a single pixel
+        assertImage(roundTrip(1, 1, new byte[]{1, 2, 3}), new byte[]{1, 2, 3}, "BVA01");
+    }
+}
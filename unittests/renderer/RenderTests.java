@@ -7,12 +7,11 @@ import org.junit.jupiter.api.Test;
 import geometries.Sphere;
 import geometries.Triangle;
 import lighting.AmbientLight;
-import org.xml.sax.SAXException;
 import primitives.*;
 import scene.Scene;
 import scene.SceneBuilder;
 
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 
 /**
@@ -101,16 +100,9 @@ public class RenderTests {
 	    * Test for XML based scene - for bonus
 	    * See {@link scene.SceneBuilder}
 	    */
-	 //  @Test
-	 /*  public void basicRenderXml() {
-	      Scene  scene  = new Scene("XML Test scene");
-
-	      try {
-	         scene = new SceneBuilder("xml/basicRenderTestTwoColors2.xml", scene).getScene();
-	      }
-	      catch (ParserConfigurationException e) {}
-	      catch (IOException e) {}
-	      catch (SAXException e) {}
+	   @Test
+	   public void basicRenderXml() throws IOException, XMLStreamException {
+	      Scene scene = new SceneBuilder("xml/basicRenderTestTwoColors2.xml", new Scene("XML Test scene")).getScene();
 
 	      Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0))
 	         .setVPDistance(100)
@@ -120,5 +112,5 @@ public class RenderTests {
 	      camera.renderImage();
 	      camera.printGrid(100, new Color(YELLOW));
 	      camera.writeToImage();
-	   }*/
+	   }
 }
\ No newline at end of file
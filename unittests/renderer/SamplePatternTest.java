@@ -0,0 +1,112 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the sample patterns
+ */
+class SamplePatternTest {
+    /**
+     * Check that all the offsets of a pattern lie inside the pixel
+     *
+     * @param pattern the pattern
+     * @param count   amount of samples
+     * @param name    the pattern name for the messages
+     * @return the offsets of one pixel
+     */
+    private double[] inside(SamplePattern pattern, int count, String name) {
+        double[] offsets = new double[2 * count];
+        for (int row = 0; row < 8; ++row)
+            for (int column = 0; column < 8; ++column) {
+                pattern.fill(offsets, column, row);
+                for (double offset : offsets)
+                    assertTrue(offset >= -0.5 && offset < 0.5, name + ": Offset outside the pixel " + offset);
+            }
+        return offsets;
+    }
+
+    /**
+     * Test method for {@link renderer.JitteredPattern#fill(double[], int, int)}
+     */
+    @Test
+    void testJittered() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: one sample in every cell of the grid
+        double[] offsets = inside(new JitteredPattern(1), 16, "EP01");
+        for (int k = 0; k < 16; ++k) {
+            assertEquals(k % 4, (int) ((offsets[2 * k] + 0.5) * 4), "EP01: Sample outside its column");
+            assertEquals(k / 4, (int) ((offsets[2 * k + 1] + 0.5) * 4), "EP01: Sample outside its row");
+        }
+
+        // EP02: the same pixel gets the same samples, another pixel gets other samples
+        double[] first = new double[32];
+        double[] second = new double[32];
+        new JitteredPattern(1).fill(first, 3, 4);
+        new JitteredPattern(1).fill(second, 3, 4);
+        assertArrayEquals(first, second, 0, "EP02: Pattern is not deterministic");
+        new JitteredPattern(1).fill(second, 4, 3);
+        assertNotEquals(first[0], second[0], "EP02: Pixels share the samples");
+    }
+
+    /**
+     * Test method for {@link renderer.HaltonPattern#fill(double[], int, int)}
+     */
+    @Test
+    void testHalton() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the first points of the sequence
+        double[] offsets = inside(new HaltonPattern(), 3, "EP01");
+        assertArrayEquals(new double[]{0, -1d / 6, -0.25, 1d / 6, 0.25, -7d / 18}, offsets, 1e-12,
+                "EP01: Wrong points");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: radical inverse of zero
+        assertEquals(0, HaltonPattern.radicalInverse(0, 2), "BVA01: Wrong radical inverse");
+    }
+
+    /**
+     * Test method for {@link renderer.CranleyPattersonPattern#fill(double[], int, int)}
+     */
+    @Test
+    void testCranleyPatterson() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the samples are shifted together - the differences between them are kept (around the torus)
+        double[] base = new double[8];
+        new GridPattern().fill(base, 2, 5);
+        double[] rotated = inside(new CranleyPattersonPattern(new GridPattern(), 7), 4, "EP01");
+        new CranleyPattersonPattern(new GridPattern(), 7).fill(rotated, 2, 5);
+        for (int k = 2; k < 8; ++k) {
+            double expected = base[k] - base[k % 2];
+            double actual = rotated[k] - rotated[k % 2];
+            double wrapped = actual - Math.round(actual - expected);
+            assertEquals(expected, wrapped, 1e-12, "EP01: Samples not shifted together");
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.BlueNoisePattern#fill(double[], int, int)}
+     */
+    @Test
+    void testBlueNoise() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the samples are spread - no two closer than half of the grid cell
+        double[] offsets = inside(new BlueNoisePattern(3), 16, "EP01");
+        for (int i = 0; i < 16; ++i)
+            for (int j = i + 1; j < 16; ++j) {
+                double dx = Math.abs(offsets[2 * i] - offsets[2 * j]);
+                double dy = Math.abs(offsets[2 * i + 1] - offsets[2 * j + 1]);
+                dx = Math.min(dx, 1 - dx);
+                dy = Math.min(dy, 1 - dy);
+                assertTrue(dx * dx + dy * dy > 0.125 * 0.125, "EP01: Samples too close");
+            }
+
+        // EP02: neighbour pixels use different sets
+        double[] neighbour = new double[32];
+        new BlueNoisePattern(3).fill(neighbour, 1, 0);
+        double[] own = new double[32];
+        new BlueNoisePattern(3).fill(own, 0, 0);
+        assertNotEquals(own[0], neighbour[0], "EP02: Neighbours share the set");
+    }
+}
@@ -61,4 +61,58 @@ class SuperSamplingTest {
         List<Ray> actual2 = superSampling.constructRaysThroughGrid(width, height, source, gridCenter, vUp, vRight);
         assertEquals(expected2,actual2, "EP02: Wrong rays");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link renderer.SuperSampling#sampleAdaptive(
+     * primitives.Point, double, double, primitives.Vector, primitives.Vector, primitives.Color[],
+     * java.util.function.Function)}
+     */
+    @Test
+    void testSampleAdaptive() {
+        Point center = new Point(0, 0, 0);
+        Vector vUp = new Vector(0, 1, 0);
+        Vector vRight = new Vector(1, 0, 0);
+        Color white = new Color(255, 255, 255);
+        SuperSampling adaptive = new SuperSampling().setSize(4).setAdaptive(true).setThreshold(4);
+        int[] samples = {0};
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: similar corners - no more samples
+        Color[] flat = {Color.BLACK, Color.BLACK, new Color(2, 2, 2), new Color(2, 2, 2)};
+        Color color = adaptive.sampleAdaptive(center, 2, 2, vUp, vRight, flat, p -> {
+            ++samples[0];
+            return Color.BLACK;
+        });
+        assertEquals(0, samples[0], "EP01: Similar corners subdivided");
+        assertTrue(color.isSimilar(new Color(1, 1, 1), 1e-10), "EP01: Wrong average");
+
+        // EP02: a vertical edge in the middle of the pixel - subdivided down to the grid size only near the edge
+        Color[] edge = {Color.BLACK, white, Color.BLACK, white};
+        color = adaptive.sampleAdaptive(center, 2, 2, vUp, vRight, edge, p -> {
+            ++samples[0];
+            return p.getX() < 0 ? Color.BLACK : white;
+        });
+        assertTrue(samples[0] > 0 && samples[0] < 16, "EP02: Wrong amount of samples " + samples[0]);
+        assertTrue(color.isSimilar(new Color(127.5, 127.5, 127.5), 32), "EP02: Wrong edge color " + color);
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a single sample per pixel isn't adaptive
+        assertFalse(new SuperSampling().setAdaptive(true).isAdaptive(), "BVA01: Single sample is adaptive");
+    }
+
+    /**
+     * Test method for {@link renderer.SuperSampling#getOffsets(int, int, double[])}
+     */
+    @Test
+    void testGetOffsets() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: a 2x2 grid - the cell centers, row by row from the bottom
+        assertArrayEquals(new double[]{-0.25, 0.25, 0.25, 0.25, -0.25, -0.25, 0.25, -0.25},
+                new SuperSampling().setSize(2).getOffsets(5, 7, null), 1e-10, "EP01: Wrong offsets");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a single sample at the pixel center
+        assertArrayEquals(new double[]{0, 0}, new SuperSampling().getOffsets(5, 7, null), 1e-10,
+                "BVA01: Wrong offsets");
+    }
+}
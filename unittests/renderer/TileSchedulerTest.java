@@ -0,0 +1,167 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing TileScheduler
+ */
+class TileSchedulerTest {
+    /**
+     * Test method for {@link renderer.TileScheduler#orderTiles(int, int, TileScheduler.TileOrder)}
+     */
+    @Test
+    void testOrderTiles() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every order lists every tile exactly once
+        for (TileScheduler.TileOrder order : TileScheduler.TileOrder.values()) {
+            int[] tiles = TileScheduler.orderTiles(5, 3, order);
+            boolean[] seen = new boolean[15];
+            for (int tile : tiles) {
+                assertFalse(seen[tile], "EP01: Tile listed twice in " + order);
+                seen[tile] = true;
+            }
+            assertEquals(15, tiles.length, "EP01: Wrong amount of tiles in " + order);
+        }
+
+        // EP02: consecutive tiles of the Hilbert order are adjacent
+        int[] tiles = TileScheduler.orderTiles(8, 8, TileScheduler.TileOrder.HILBERT);
+        for (int i = 1; i < tiles.length; ++i) {
+            int dx = Math.abs(tiles[i] % 8 - tiles[i - 1] % 8);
+            int dy = Math.abs(tiles[i] / 8 - tiles[i - 1] / 8);
+            assertEquals(1, dx + dy, "EP02: Hilbert tiles are not adjacent");
+        }
+
+        // ============= Boundary Values Tests =================
+        // BVA01: a single tile
+        assertArrayEquals(new int[]{0}, TileScheduler.orderTiles(1, 1, TileScheduler.TileOrder.HILBERT),
+                "BVA01: Wrong single tile");
+    }
+
+    /**
+     * Test method for {@link renderer.TileScheduler#render(int, TileScheduler.PixelRenderer, double)}
+     */
+    @Test
+    void testRender() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: several threads, the image is not a multiple of the tile size
+        TileScheduler scheduler = new TileScheduler(37, 21, 8, TileScheduler.TileOrder.MORTON);
+        AtomicIntegerArray counts = new AtomicIntegerArray(37 * 21);
+        scheduler.render(4, (column, row) -> counts.incrementAndGet(row * 37 + column), 0);
+        for (int i = 0; i < counts.length(); ++i)
+            assertEquals(1, counts.get(i), "EP01: Pixel not rendered exactly once");
+        assertEquals(37 * 21, scheduler.getPixelsDone(), "EP01: Wrong progress");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: no threads - the calling thread renders the tiles
+        TileScheduler single = new TileScheduler(5, 5, 2, TileScheduler.TileOrder.SCANLINE);
+        AtomicIntegerArray singleCounts = new AtomicIntegerArray(25);
+        single.render(0, (column, row) -> singleCounts.incrementAndGet(row * 5 + column), 0);
+        for (int i = 0; i < singleCounts.length(); ++i)
+            assertEquals(1, singleCounts.get(i), "BVA01: Pixel not rendered exactly once");
+        assertEquals(9, single.getTileCount(), "BVA01: Wrong amount of tiles");
+
+        // BVA02: tile size must be positive
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileScheduler(5, 5, 0, TileScheduler.TileOrder.HILBERT),
+                "BVA02: Zero tile size accepted");
+    }
+
+    /**
+     * Test method for {@link renderer.TileScheduler#render(int, TileScheduler.BlockRenderer, double)}
+     */
+    @Test
+    void testRenderBlocks() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: the blocks cover the image once, and stay inside their tiles
+        TileScheduler scheduler = new TileScheduler(37, 21, 16, TileScheduler.TileOrder.HILBERT);
+        AtomicIntegerArray counts = new AtomicIntegerArray(37 * 21);
+        scheduler.render(3, (column0, row0, columns, rows) -> {
+            assertEquals(column0 / 16, (column0 + columns - 1) / 16, "EP01: Block crosses tile columns");
+            assertEquals(row0 / 16, (row0 + rows - 1) / 16, "EP01: Block crosses tile rows");
+            for (int row = row0; row < row0 + rows; ++row)
+                for (int column = column0; column < column0 + columns; ++column)
+                    counts.incrementAndGet(row * 37 + column);
+        }, 0);
+        for (int i = 0; i < counts.length(); ++i)
+            assertEquals(1, counts.get(i), "EP01: Pixel not rendered exactly once");
+        assertEquals(37 * 21, scheduler.getPixelsDone(), "EP01: Wrong progress");
+
+        // ============= Boundary Values Tests =================
+        // BVA01: tiles smaller than a band are handed out whole
+        TileScheduler small = new TileScheduler(5, 5, 2, TileScheduler.TileOrder.SCANLINE);
+        AtomicIntegerArray blocks = new AtomicIntegerArray(1);
+        small.render(0, (column0, row0, columns, rows) -> {
+            assertTrue(columns <= 2 && rows <= 2, "BVA01: Block larger than the tile");
+            blocks.incrementAndGet(0);
+        }, 0);
+        assertEquals(9, blocks.get(0), "BVA01: Wrong amount of blocks");
+    }
+
+    /**
+     * Test method for {@link renderer.TileScheduler#renderAsync(Semaphore, TileScheduler.PixelRenderer, Duration)}
+     */
+    @Test
+    void testRenderAsync() throws Exception {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: every pixel is rendered once, and no more tiles than permits run together
+        TileScheduler scheduler = new TileScheduler(37, 21, 4, TileScheduler.TileOrder.HILBERT);
+        AtomicIntegerArray counts = new AtomicIntegerArray(37 * 21);
+        Semaphore permits = new Semaphore(2);
+        scheduler.renderAsync(permits, (column, row) -> {
+            assertTrue(permits.availablePermits() < 2, "EP01: Pixel rendered without a permit");
+            counts.incrementAndGet(row * 37 + column);
+        }, null).get();
+        for (int i = 0; i < counts.length(); ++i)
+            assertEquals(1, counts.get(i), "EP01: Pixel not rendered exactly once");
+        assertEquals(2, permits.availablePermits(), "EP01: Permits not released");
+
+        // EP02: a cancelled render stops
+        TileScheduler slow = new TileScheduler(64, 64, 1, TileScheduler.TileOrder.SCANLINE);
+        Semaphore permit = new Semaphore(1);
+        CompletableFuture<Void> cancelled = slow.renderAsync(permit, (column, row) -> sleep(), null);
+        cancelled.cancel(false);
+        // the tile rendering at the cancel counts its pixels before it gives the permit back - on a busy
+        // machine that may take longer than a fixed wait
+        for (int wait = 0; wait < 100 && permit.availablePermits() == 0; ++wait)
+            Thread.sleep(50);
+        long done = slow.getPixelsDone();
+        Thread.sleep(50);
+        assertEquals(done, slow.getPixelsDone(), "EP02: Render goes on after cancel");
+        assertTrue(done < 64 * 64, "EP02: Render not stopped");
+
+        // EP03: a missed deadline fails the render
+        CompletableFuture<Void> late = new TileScheduler(64, 64, 1, TileScheduler.TileOrder.SCANLINE)
+                .renderAsync(new Semaphore(1), (column, row) -> sleep(), Duration.ofMillis(20));
+        ExecutionException e = assertThrows(ExecutionException.class, late::get, "EP03: Deadline ignored");
+        assertInstanceOf(TimeoutException.class, e.getCause(), "EP03: Wrong failure");
+
+        // EP04: an error in a pixel fails the render instead of leaving it pending
+        CompletableFuture<Void> failed = new TileScheduler(16, 16, 4, TileScheduler.TileOrder.SCANLINE)
+                .renderAsync(new Semaphore(1), (column, row) -> {
+                    throw new AssertionError("pixel failed");
+                }, null);
+        e = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS), "EP04: Error ignored");
+        assertInstanceOf(AssertionError.class, e.getCause(), "EP04: Wrong failure");
+    }
+
+    /**
+     * Slow down a pixel
+     */
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException ignore) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}